@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer;
+
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent I/O operations on one storage backend.
+ *
+ * The limit is adapted to the backend in an AIMD fashion:
+ * it is increased additively as long as the latency stays close to
+ * the baseline latency of the backend and decreased multiplicatively
+ * when requests fail or the latency grows, which indicates that the
+ * backend is saturated or throttling.
+ */
+public class AdaptiveConcurrencyLimiter
+{
+	private static final double LATENCY_TOLERANCE = 2.0;
+	private static final double DECREASE_FACTOR = 0.75;
+	private static final long BASELINE_WINDOW_NANOS = 30_000_000_000L;
+	private static final double SMOOTHING = 0.1;
+
+	private final String name;
+	private final int minLimit;
+	private final int maxLimit;
+
+	private double limit;
+	private int numInFlight = 0;
+	private double baselineLatencyNanos = Double.MAX_VALUE;
+	private double windowMinLatencyNanos = Double.MAX_VALUE;
+	private double previousWindowMinLatencyNanos = Double.MAX_VALUE;
+	private long windowStartNanos = System.nanoTime();
+	private double smoothedLatencyNanos = 0;
+	private long lastDecreaseNanos = 0;
+	private long numCompleted = 0;
+	private long numFailed = 0;
+
+	public AdaptiveConcurrencyLimiter( String name, int initialLimit, int minLimit, int maxLimit )
+	{
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max( minLimit, Math.min( maxLimit, initialLimit ) );
+	}
+
+	/**
+	 * Restarts the adaptation from the given limit,
+	 * e.g. after the user has changed the number of I/O threads.
+	 */
+	public synchronized void reset( int initialLimit )
+	{
+		limit = Math.max( minLimit, Math.min( maxLimit, initialLimit ) );
+		baselineLatencyNanos = Double.MAX_VALUE;
+		windowMinLatencyNanos = Double.MAX_VALUE;
+		previousWindowMinLatencyNanos = Double.MAX_VALUE;
+		windowStartNanos = System.nanoTime();
+		smoothedLatencyNanos = 0;
+		notifyAll();
+	}
+
+	public synchronized void acquire() throws InterruptedException
+	{
+		while ( numInFlight >= ( int ) limit )
+			wait();
+		numInFlight++;
+	}
+
+	/**
+	 * @param latencyNanos
+	 * 			the duration of the operation
+	 * @param success
+	 * 			false if the operation failed, e.g. due to throttling by the backend
+	 */
+	public synchronized void release( long latencyNanos, boolean success )
+	{
+		numInFlight--;
+
+		if ( ! success )
+		{
+			numFailed++;
+			decrease();
+		}
+		else
+		{
+			numCompleted++;
+
+			updateBaseline( latencyNanos );
+			smoothedLatencyNanos = smoothedLatencyNanos == 0 ? latencyNanos : ( 1 - SMOOTHING ) * smoothedLatencyNanos + SMOOTHING * latencyNanos;
+
+			if ( smoothedLatencyNanos > LATENCY_TOLERANCE * baselineLatencyNanos )
+				decrease();
+			else if ( numInFlight + 1 >= ( int ) limit )
+				limit = Math.min( maxLimit, limit + 1.0 / limit ); // only grow if the limit is actually used
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * Runs an I/O operation as soon as the limit permits.
+	 */
+	public < T > T call( Supplier< T > operation )
+	{
+		try
+		{
+			acquire();
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( "Interrupted while waiting for " + name, e );
+		}
+
+		final long start = System.nanoTime();
+		boolean success = false;
+		try
+		{
+			final T result = operation.get();
+			success = true;
+			return result;
+		}
+		finally
+		{
+			release( System.nanoTime() - start, success );
+		}
+	}
+
+	public synchronized int getLimit()
+	{
+		return ( int ) limit;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return name + ": limit=" + ( int ) limit + ", completed=" + numCompleted + ", failed=" + numFailed;
+	}
+
+	/*
+	 * The baseline is the minimal latency within the last one to two windows,
+	 * such that it follows lasting changes of the network conditions.
+	 */
+	private void updateBaseline( long latencyNanos )
+	{
+		final long now = System.nanoTime();
+		if ( now - windowStartNanos > BASELINE_WINDOW_NANOS )
+		{
+			previousWindowMinLatencyNanos = windowMinLatencyNanos;
+			windowMinLatencyNanos = Double.MAX_VALUE;
+			windowStartNanos = now;
+		}
+		windowMinLatencyNanos = Math.min( windowMinLatencyNanos, latencyNanos );
+		baselineLatencyNanos = Math.min( previousWindowMinLatencyNanos, windowMinLatencyNanos );
+	}
+
+	private void decrease()
+	{
+		// decrease at most once per round trip, as the operations
+		// that are still in flight were started under the old limit
+		final long now = System.nanoTime();
+		final double roundTripNanos = baselineLatencyNanos == Double.MAX_VALUE ? 0 : baselineLatencyNanos;
+		if ( now - lastDecreaseNanos < roundTripNanos ) return;
+
+		limit = Math.max( minLimit, limit * DECREASE_FACTOR );
+		lastDecreaseNanos = now;
+	}
+}
@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Notifies listeners of selection, focus, colouring and timepoint
+ * events on a small, fixed pool of threads.
+ *
+ * The notifications of one listener are delivered one after the other,
+ * in the order in which the events happened. If an event of the same type
+ * is already waiting to be delivered to a listener, it is replaced by the
+ * new one, such that a burst of events, e.g. selecting many table rows,
+ * results in only one notification per listener.
+ */
+public abstract class EventDispatcher
+{
+	public enum Event
+	{
+		SelectionChanged,
+		Focus,
+		ColoringChanged,
+		TimepointChanged
+	}
+
+	private static final int N_THREADS = Math.max( 1, Math.min( 4, Runtime.getRuntime().availableProcessors() - 1 ) );
+
+	private static final ExecutorService executorService = Executors.newFixedThreadPool( N_THREADS, runnable -> {
+		final Thread thread = new Thread( runnable, "MoBIE events" );
+		thread.setDaemon( true );
+		return thread;
+	} );
+
+	// weak keys, such that closed viewers can be garbage collected
+	private static final Map< Object, ListenerQueue > listenerToQueue = Collections.synchronizedMap( new WeakHashMap<>() );
+
+	/**
+	 * @param listener
+	 * 			the listener that is notified
+	 * @param event
+	 * 			the type of the event, pending notifications of the same type are replaced
+	 * @param notification
+	 * 			notifies the listener
+	 */
+	public static void dispatch( Object listener, Event event, Runnable notification )
+	{
+		listenerToQueue.computeIfAbsent( listener, l -> new ListenerQueue( l.getClass().getName() ) ).add( event, notification );
+	}
+
+	private static class ListenerQueue
+	{
+		// only the name, a reference to the listener would keep it from being garbage collected
+		private final String listenerName;
+		private final LinkedHashMap< Event, Runnable > pending = new LinkedHashMap<>(); // guarded by this
+		private boolean isScheduled = false; // guarded by this
+
+		ListenerQueue( String listenerName )
+		{
+			this.listenerName = listenerName;
+		}
+
+		synchronized void add( Event event, Runnable notification )
+		{
+			// re-insert, such that the order is the one of the latest events
+			pending.remove( event );
+			pending.put( event, notification );
+
+			if ( ! isScheduled )
+			{
+				isScheduled = true;
+				executorService.submit( this::deliver );
+			}
+		}
+
+		private void deliver()
+		{
+			while ( true )
+			{
+				final Map.Entry< Event, Runnable > notification;
+				synchronized ( this )
+				{
+					final Iterator< Map.Entry< Event, Runnable > > iterator = pending.entrySet().iterator();
+					if ( ! iterator.hasNext() )
+					{
+						isScheduled = false;
+						return;
+					}
+					notification = new AbstractMap.SimpleImmutableEntry<>( iterator.next() );
+					iterator.remove();
+				}
+
+				try
+				{
+					notification.getValue().run();
+				}
+				catch ( Exception e )
+				{
+					// a failing listener must not keep the other notifications from being delivered
+					System.err.println( "[WARNING] Could not notify " + listenerName + " of " + notification.getKey() + ": " + e );
+				}
+			}
+		}
+	}
+}
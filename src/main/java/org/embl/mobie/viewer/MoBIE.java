@@ -43,18 +43,28 @@ import org.embl.mobie.viewer.display.SegmentationDisplay;
 import org.embl.mobie.viewer.display.RegionDisplay;
 import org.embl.mobie.viewer.annotate.RegionCreator;
 import org.embl.mobie.viewer.annotate.RegionTableRow;
+import org.embl.mobie.viewer.cache.ChunkCachingN5Reader;
+import org.embl.mobie.viewer.cache.DelegatingN5Reader;
+import org.embl.mobie.viewer.cache.CacheManager;
+import org.embl.mobie.viewer.cache.DiskChunkCache;
+import org.embl.mobie.viewer.cache.FetchLimitingN5Reader;
 import org.embl.mobie.viewer.plugins.platybrowser.GeneSearchCommand;
 import org.embl.mobie.viewer.serialize.DatasetJsonParser;
+import org.embl.mobie.viewer.serialize.DatasetManifestJsonParser;
 import org.embl.mobie.viewer.serialize.ProjectJsonParser;
 import org.embl.mobie.viewer.source.ImageSource;
+import org.embl.mobie.viewer.source.LazySourceAndConverterCreator;
+import org.embl.mobie.viewer.source.SourceMetadata;
+import org.embl.mobie.viewer.source.SourceRegistry;
 import org.embl.mobie.viewer.source.SegmentationSource;
+import org.embl.mobie.viewer.table.ColumnarTable;
+import org.embl.mobie.viewer.table.TableReader;
 import org.embl.mobie.viewer.table.TableDataFormat;
 import org.embl.mobie.viewer.table.TableHelper;
 import org.embl.mobie.viewer.ui.UserInterface;
 import org.embl.mobie.viewer.ui.WindowArrangementHelper;
 import org.embl.mobie.viewer.view.View;
 import org.embl.mobie.viewer.view.ViewManager;
-import de.embl.cba.tables.TableColumns;
 import de.embl.cba.tables.TableRows;
 import de.embl.cba.tables.github.GitHubUtils;
 import de.embl.cba.tables.tablerow.TableRowImageSegment;
@@ -66,15 +76,12 @@ import sc.fiji.bdvpg.scijava.services.SourceAndConverterService;
 import sc.fiji.bdvpg.services.SourceAndConverterServices;
 import sc.fiji.bdvpg.sourceandconverter.importer.SourceAndConverterFromSpimDataCreator;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class MoBIE
 {
@@ -93,9 +100,13 @@ public class MoBIE
 	private String projectRoot;
 	private String imageRoot;
 	private String tableRoot;
-	private HashMap< String, ImgLoader > sourceNameToImgLoader;
+	private Map< String, ImgLoader > sourceNameToImgLoader;
+	private DatasetManifest manifest = new DatasetManifest();
 	private Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter;
 	private ArrayList< String > projectCommands = new ArrayList<>();;
+	private DiskChunkCache chunkCache;
+	// the image loaders whose readers could not be decorated, such that this is only logged once per loader
+	private final Set< Class< ? > > loadersWithoutN5Reader = ConcurrentHashMap.newKeySet();
 	public static int minLogTimeMillis = 100;
 	public static boolean initiallyShowSourceNames = false;
 
@@ -121,6 +132,8 @@ public class MoBIE
 
 		this.settings = settings.projectLocation( projectLocation );
 		setS3Credentials( settings );
+		setChunkCache( settings );
+		CacheManager.getInstance().setMaxBytes( this, settings.values.getMemoryCacheMaxBytes() );
 		setProjectImageAndTableRootLocations( );
 		registerProjectPlugins( settings.values.getProjectLocation() );
 		projectName = MoBIEHelper.getName( projectLocation );
@@ -170,6 +183,17 @@ public class MoBIE
 		}
 	}
 
+	private void setChunkCache( MoBIESettings settings )
+	{
+		final String chunkCacheDirectory = settings.values.getChunkCacheDirectory();
+		CacheManager.getInstance().setDiskCache( null );
+		if ( chunkCacheDirectory == null ) return;
+
+		chunkCache = new DiskChunkCache( new File( chunkCacheDirectory ), settings.values.getChunkCacheMaxBytes() );
+		CacheManager.getInstance().setDiskCache( chunkCache );
+		IJ.log( "Chunk cache: " + chunkCacheDirectory + " (" + chunkCache.getUsedBytes() / 1000000 + " MB used)" );
+	}
+
 	private void setImageDataFormats( String projectLocation )
 	{
 		final Set< ImageDataFormat > imageDataFormat = settings.values.getImageDataFormats();
@@ -261,63 +285,37 @@ public class MoBIE
 	 * are containing all the sourceTransforms.
 	 * This can be confusing...
 	 */
-	public Map< String, SourceAndConverter< ? > > openSourceAndConverters( Collection< String > sources )
+	public SourceRegistry openSourceAndConverters( Collection< String > sources )
 	{
 		final long startTime = System.currentTimeMillis();
 
-		Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverters = new ConcurrentHashMap< >();
-
-		final ArrayList< Future< ? > > futures = MultiThreading.getFutures();
-		AtomicInteger sourceIndex = new AtomicInteger(0);
-		final int numImages = sources.size();
-		AtomicInteger sourceLoggingModulo = new AtomicInteger(1);
-		AtomicLong lastLogMillis = new AtomicLong( System.currentTimeMillis() );
+		SourceRegistry sourceNameToSourceAndConverters = new SourceRegistry();
 
+		final TaskGroup taskGroup = MultiThreading.createTaskGroup( "Opening images", this ).continueOnFailure();
+		taskGroup.addProgressListener( TaskGroup.progressLogger( "Opening images", 5000 ) );
 		for ( String sourceName : sources )
 		{
-			futures.add(
-					MultiThreading.ioExecutorService.submit( () -> {
-						String log = getLog( sourceIndex, numImages, sourceLoggingModulo, lastLogMillis );
-						sourceNameToSourceAndConverters.put( sourceName, openSourceAndConverter( sourceName, log ) );
-					}
-				) );
+			taskGroup.submit( () -> {
+				sourceNameToSourceAndConverters.put( sourceName, openSourceAndConverter( sourceName ) );
+			} );
 		}
-		MultiThreading.waitUntilFinished( futures );
+		taskGroup.join();
 
-		IJ.log( "Opened " + sourceNameToSourceAndConverters.size() + " image(s) in " + (System.currentTimeMillis() - startTime) + " ms, using up to " + MultiThreading.getNumIoThreads() + " thread(s).");
+		if ( ! taskGroup.getFailures().isEmpty() )
+			IJ.log( "[WARNING] Could not open " + taskGroup.getFailures().size() + " image(s), see the console for details." );
+		IJ.log( "Opened " + sourceNameToSourceAndConverters.size() + " image(s) in " + (System.currentTimeMillis() - startTime) + " ms.");
 
 		return sourceNameToSourceAndConverters;
 	}
 
-	private String getLog( AtomicInteger index, int numTotal, AtomicInteger modulo, AtomicLong lastLogMillis )
-	{
-		if ( ( index.incrementAndGet() - 1 ) % modulo.get() == 0  )
-		{
-			final long currentTimeMillis = System.currentTimeMillis();
-			if ( currentTimeMillis - lastLogMillis.get() < 4000 )
-			{
-				modulo.set( modulo.get() * 2 );
-			}
-			else if ( currentTimeMillis - lastLogMillis.get() > 6000 )
-			{
-				modulo.set( modulo.get() / 2 );
-			}
-			lastLogMillis.set( currentTimeMillis );
-			return "Opening (" + index.get() + "/" + numTotal + "): ";
-		}
-		else
-		{
-			return null;
-		}
-	}
-
 	private void openDataset( String datasetName ) throws IOException
 	{
 		IJ.log("Opening dataset: " + datasetName );
-		sourceNameToImgLoader = new HashMap<>();
+		sourceNameToImgLoader = new ConcurrentHashMap<>();
 		sourceNameToSourceAndConverter = new ConcurrentHashMap<>();
 		setDatasetName( datasetName );
 		dataset = new DatasetJsonParser().parseDataset( getDatasetPath( "dataset.json" ) );
+		manifest = new DatasetManifestJsonParser().tryParseManifest( getDatasetPath( DatasetManifest.MANIFEST_JSON ) );
 		userInterface = new UserInterface( this );
 		viewManager = new ViewManager( this, userInterface, dataset.is2D );
 		final View view = getView();
@@ -403,7 +401,10 @@ public class MoBIE
 			IJ.log( "Closing MoBIE..." );
 			IJ.log( "Closing I/O threads..." );
 			MultiThreading.resetIOThreads();
+			if ( chunkCache != null )
+				IJ.log( chunkCache.getStatistics() );
 			viewManager.close();
+			CacheManager.getInstance().removeMaxBytes( this );
 			IJ.log( "MoBIE closed." );
 			IJ.log( "Closing MoBIE may have lead to errors due to processes that are interrupted." );
 			IJ.log( "Usually it is fine to ignore those errors." );
@@ -421,27 +422,56 @@ public class MoBIE
 		return dataset.sources.get( sourceName ).get();
 	}
 
-	public SourceAndConverter< ? > openSourceAndConverter( String sourceName, String log )
+	/**
+	 * The source is named like in the dataset, also if the
+	 * image data names it differently, because the tables,
+	 * displays and the {@link SourceRegistry} refer to this name.
+	 */
+	public SourceAndConverter< ? > openSourceAndConverter( String sourceName )
+	{
+		final SourceMetadata manifestMetadata = manifest.sources.get( sourceName );
+		if ( manifestMetadata != null && manifestMetadata.getType() != null )
+		{
+			// The image container is only opened once
+			// its data is accessed for the first time
+			return new LazySourceAndConverterCreator( sourceName, manifestMetadata, () -> createSourceAndConverter( openSpimData( sourceName ) ) ).getSourceAndConverter();
+		}
+
+		// Only read the metadata here, the image data
+		// is opened once it is accessed for the first time
+		final SpimData spimData = openSpimData( sourceName );
+		final SourceMetadata metadata = SourceMetadata.fromSpimData( spimData, 0 );
+		return new LazySourceAndConverterCreator( sourceName, metadata, () -> createSourceAndConverter( spimData ) ).getSourceAndConverter();
+	}
+
+	private static SourceAndConverter< ? > createSourceAndConverter( SpimData spimData )
+	{
+		final SourceAndConverterFromSpimDataCreator creator = new SourceAndConverterFromSpimDataCreator( spimData );
+		return creator.getSetupIdToSourceAndConverter().values().iterator().next();
+	}
+
+	private SpimData openSpimData( String sourceName )
 	{
 		final ImageSource imageSource = getSource( sourceName );
 
 		ImageDataFormat imageDataFormat = getImageDataFormat( sourceName, imageSource.imageData.keySet() );
 
 		final String imagePath = getImagePath( imageSource, imageDataFormat );
-        if( log != null )
-            IJ.log( log + imagePath );
 
 		try
 		{
-			SpimData spimData = tryOpenSpimData( imagePath, imageDataFormat );
-			sourceNameToImgLoader.put( sourceName, spimData.getSequenceDescription().getImgLoader() );
-
-			final SourceAndConverterFromSpimDataCreator creator = new SourceAndConverterFromSpimDataCreator( spimData );
-			SourceAndConverter< ? > sourceAndConverter = creator.getSetupIdToSourceAndConverter().values().iterator().next();
-            // Touch the source once to initiate the cache,
-            // as this speeds up future accesses significantly
-            sourceAndConverter.getSpimSource().getSource( 0,0 );
-			return sourceAndConverter;
+			SpimData spimData = MultiThreading.read( imagePath, () -> tryOpenSpimData( imagePath, imageDataFormat ) );
+			final ImgLoader imgLoader = spimData.getSequenceDescription().getImgLoader();
+			final String backend = MultiThreading.getBackend( imagePath );
+			final boolean installed;
+			if ( chunkCache != null && isS3( imageDataFormat ) )
+				installed = DelegatingN5Reader.install( imgLoader, reader -> new ChunkCachingN5Reader( new FetchLimitingN5Reader( reader, backend ), chunkCache, imagePath ) );
+			else
+				installed = DelegatingN5Reader.install( imgLoader, reader -> new FetchLimitingN5Reader( reader, backend ) );
+			if ( ! installed && loadersWithoutN5Reader.add( imgLoader.getClass() ) )
+				IJ.log( "[WARNING] The chunk cache and the fetch limits do not apply to images that are opened with " + imgLoader.getClass().getSimpleName() + ", because its N5Reader could not be replaced." );
+			sourceNameToImgLoader.put( sourceName, imgLoader );
+			return spimData;
 		}
 		catch ( Exception e )
 		{
@@ -450,6 +480,20 @@ public class MoBIE
 		}
     }
 
+	private static boolean isS3( ImageDataFormat imageDataFormat )
+	{
+		switch ( imageDataFormat )
+		{
+			case BdvN5S3:
+			case BdvOmeZarrS3:
+			case OmeZarrS3:
+			case OpenOrganelleS3:
+				return true;
+			default:
+				return false;
+		}
+	}
+
 	private ImageDataFormat getImageDataFormat( String sourceName, Set< ImageDataFormat > sourceDataFormats )
 	{
 		for ( ImageDataFormat sourceDataFormat : sourceDataFormats )
@@ -473,16 +517,7 @@ public class MoBIE
 	{
 		try
 		{
-			if ( imageDataFormat.equals( ImageDataFormat.BdvOmeZarrS3) ||
-					imageDataFormat.equals( ImageDataFormat.BdvOmeZarr) )
-			{
-				// TODO enable shared queues
-				return ( SpimData ) new SpimDataOpener().openSpimData( imagePath, imageDataFormat );
-			}
-			else
-			{
-				return ( SpimData ) new SpimDataOpener().openSpimData( imagePath, imageDataFormat, MultiThreading.sharedQueue );
-			}
+			return ( SpimData ) new SpimDataOpener().openSpimData( imagePath, imageDataFormat, MultiThreading.sharedQueue );
 		}
 		catch ( SpimDataException e )
 		{
@@ -546,13 +581,11 @@ public class MoBIE
 		return location;
 	}
 
-	private List< TableRowImageSegment > loadImageSegmentsTable( String sourceName, String tableName, String log )
+	private List< TableRowImageSegment > loadImageSegmentsTable( String sourceName, String tableName )
 	{
 		final SegmentationSource tableSource = ( SegmentationSource ) getSource( sourceName );
 		final String defaultTablePath = getTablePath( tableSource, tableName );
-		if ( log != null )
-			IJ.log( log + defaultTablePath );
-		final List< TableRowImageSegment > segments = MoBIEHelper.createAnnotatedImageSegmentsFromTableFile( defaultTablePath, sourceName );
+		final List< TableRowImageSegment > segments = MultiThreading.read( defaultTablePath, () -> MoBIEHelper.createAnnotatedImageSegmentsFromTableFile( defaultTablePath, sourceName ) );
 		return segments;
 	}
 
@@ -561,23 +594,22 @@ public class MoBIE
 		final List< Map< String, List< String > > > additionalTables = new CopyOnWriteArrayList<>();
 
 		final long start = System.currentTimeMillis();
-		final ExecutorService executorService = MultiThreading.ioExecutorService;
-		final ArrayList< Future< ? > > futures = MultiThreading.getFutures();
+		final TaskGroup taskGroup = MultiThreading.createTaskGroup( "Reading " + table + " tables", this );
+		taskGroup.addProgressListener( TaskGroup.progressLogger( "Reading " + table + " tables", 5000 ) );
 		for ( String sourceName : sources )
 		{
-			futures.add(
-				executorService.submit( () -> {
-					Map< String, List< String > > columns = TableHelper.loadTableAndAddImageIdColumn( sourceName, getTablePath( ( SegmentationSource ) getSource( sourceName ), table ) );
+			taskGroup.submit( () -> {
+				final String tablePath = getTablePath( ( SegmentationSource ) getSource( sourceName ), table );
+				Map< String, List< String > > columns = MultiThreading.read( tablePath, () -> TableHelper.loadTableAndAddImageIdColumn( sourceName, tablePath ) );
 				additionalTables.add( columns );
-				} )
-			);
+			} );
 		}
-		MultiThreading.waitUntilFinished( futures );
+		taskGroup.join();
 
 		final long durationMillis = System.currentTimeMillis() - start;
 
 		if ( durationMillis > minLogTimeMillis )
-			IJ.log( "Read " + sources.size() + " table(s) in " + durationMillis + " ms, using up to " + MultiThreading.getNumIoThreads() + " thread(s).");
+			IJ.log( "Read " + sources.size() + " table(s) in " + durationMillis + " ms.");
 
 		return additionalTables;
 	}
@@ -587,54 +619,6 @@ public class MoBIE
 		return sourceNameToSourceAndConverter;
 	}
 
-	private Collection< List< TableRowImageSegment > > loadPrimarySegmentsTables( SegmentationDisplay segmentationDisplay, String tableName )
-	{
-		final List< String > segmentationDisplaySources = segmentationDisplay.getSources();
-		final ConcurrentHashMap< String, Set< Source< ? > > > sourceNameToRootSources = new ConcurrentHashMap();
-
-		for ( String sourceName : segmentationDisplaySources )
-		{
-			Set< Source< ? > > rootSources = ConcurrentHashMap.newKeySet();
-			MoBIEHelper.fetchRootSources( sourceNameToSourceAndConverter.get( sourceName ).getSpimSource(), rootSources );
-			sourceNameToRootSources.put( sourceName, rootSources );
-		}
-
-		final Queue< List< TableRowImageSegment > > primaryTables = new ConcurrentLinkedQueue<>();
-		final int numTables = getNumTables( segmentationDisplaySources, sourceNameToRootSources );
-		final long startTimeMillis = System.currentTimeMillis();
-		final AtomicLong lastLogMillis = new AtomicLong(startTimeMillis);
-		final AtomicInteger tableLoggingModulo = new AtomicInteger(1);
-		final AtomicInteger tableIndex = new AtomicInteger();
-		final ArrayList< Future< ? > > futures = MultiThreading.getFutures();
-		for ( String displayedSourceName : segmentationDisplaySources )
-		{
-			final Set< Source< ? > > rootSources = sourceNameToRootSources.get( displayedSourceName );
-			for ( Source rootSource : rootSources )
-			{
-				futures.add( MultiThreading.ioExecutorService.submit( () ->
-				{
-					final String log = getLog( tableIndex, numTables, tableLoggingModulo, lastLogMillis );
-					final List< TableRowImageSegment > primaryTable = loadImageSegmentsTable( rootSource.getName(), tableName, log );
-					primaryTables.add( primaryTable );
-				} ) );
-			}
-		}
-		MultiThreading.waitUntilFinished( futures );
-		IJ.log( "Read " + numTables + " table(s) in " + (System.currentTimeMillis() - startTimeMillis) + " ms, using up to " + MultiThreading.getNumIoThreads() + " thread(s).");
-		return primaryTables;
-	}
-
-	private int getNumTables( List< String > segmentationDisplaySources, ConcurrentHashMap< String, Set< Source< ? > > > sourceNameToRootSources )
-	{
-		int numTables = 0;
-		for ( String displayedSourceName : segmentationDisplaySources )
-		{
-			final Set< Source< ? > > rootSources = sourceNameToRootSources.get( displayedSourceName );
-			numTables += rootSources.size();
-		}
-		return numTables;
-	}
-
 	private void mergeSegmentsTable( List< TableRowImageSegment > tableRows, Map< String, List< String > > additionalTable )
 	{
 		// prepare
@@ -655,7 +639,7 @@ public class MoBIE
 			final List< Map< String, List< String > > > additionalTables = loadAdditionalTables( imageSourceNames, table );
 
 			// concatenate
-			Map< String, List< String > > concatenatedTable = TableColumns.concatenate( additionalTables );
+			Map< String, List< String > > concatenatedTable = ColumnarTable.concatenate( additionalTables );
 
 			// merge
 			mergeSegmentsTable( tableRows, concatenatedTable );
@@ -677,33 +661,74 @@ public class MoBIE
 	}
 
 	/**
-	 * Primary segment tables must contain the image segment properties.
+	 * Loads the primary and additional segment tables of each source and
+	 * passes the segments of a source to the consumer as soon as all of
+	 * its tables are loaded, such that they can be shown while the tables
+	 * of the other sources are still loading.
+	 *
+	 * The consumer is called from the loading threads.
+	 *
+	 * @return the task group, which can be used to wait for or cancel the loading
 	 */
-	public void loadPrimarySegmentsTables( SegmentationDisplay segmentationDisplay )
+	public TaskGroup loadSegmentsTables( SegmentationDisplay segmentationDisplay, Consumer< List< TableRowImageSegment > > segmentsConsumer )
 	{
-		segmentationDisplay.tableRows = new ArrayList<>();
-		final Collection< List< TableRowImageSegment > > primaryTables = loadPrimarySegmentsTables( segmentationDisplay, segmentationDisplay.getTables().get( 0 ) );
+		final List< String > tables = segmentationDisplay.getTables();
+		final String primaryTable = tables.get( 0 );
+		final List< String > additionalTables = tables.subList( 1, tables.size() );
 
-		for ( List< TableRowImageSegment > primaryTable : primaryTables )
+		// primary segment tables must contain the image segment properties
+		// and belong to the root sources
+		final Set< String > rootSourceNames = new LinkedHashSet<>();
+		for ( String sourceName : segmentationDisplay.getSources() )
 		{
-			segmentationDisplay.tableRows.addAll( primaryTable );
+			Set< Source< ? > > rootSources = ConcurrentHashMap.newKeySet();
+			MoBIEHelper.fetchRootSources( sourceNameToSourceAndConverter.get( sourceName ).getSpimSource(), rootSources );
+			for ( Source< ? > rootSource : rootSources )
+				rootSourceNames.add( rootSource.getName() );
 		}
+
+		final TaskGroup taskGroup = MultiThreading.createTaskGroup( "Reading " + primaryTable + " tables", this );
+		taskGroup.addProgressListener( TaskGroup.progressLogger( "Reading " + primaryTable + " tables", 5000 ) );
+
+		for ( String sourceName : rootSourceNames )
+		{
+			taskGroup.submit( () ->
+			{
+				final List< TableRowImageSegment > segments = loadImageSegmentsTable( sourceName, primaryTable );
+				for ( String table : additionalTables )
+				{
+					final String tablePath = getTablePath( ( SegmentationSource ) getSource( sourceName ), table );
+					final Map< String, List< String > > additionalTable = MultiThreading.read( tablePath, () -> TableHelper.loadTableAndAddImageIdColumn( sourceName, tablePath ) );
+					mergeSegmentsTable( segments, additionalTable );
+				}
+				segmentsConsumer.accept( segments );
+			} );
+		}
+
+		return taskGroup;
 	}
 
 	public List< RegionTableRow > createRegionTableRows( RegionDisplay regionDisplay )
 	{
 		// read
-		final List< Map< String, List< String > > > tables = new ArrayList<>();
-		for ( String table : regionDisplay.getTables() )
+		final List< String > tableNames = regionDisplay.getTables();
+		final Map< String, List< String > >[] tableArray = new Map[ tableNames.size() ];
+		final TaskGroup taskGroup = MultiThreading.createTaskGroup( "Reading region tables", this );
+		for ( int i = 0; i < tableArray.length; i++ )
 		{
-			String tablePath = getTablePath( regionDisplay.getTableDataFolder( TableDataFormat.TabDelimitedFile ), table );
-			tablePath = MoBIEHelper.resolveTablePath( tablePath );
-			final long startTime = System.currentTimeMillis();
-			tables.add( TableColumns.stringColumnsFromTableFile( tablePath ) );
-			final long durationMillis = System.currentTimeMillis() - startTime;
-			if ( durationMillis > minLogTimeMillis )
-				Logger.log( "Read in "+ durationMillis +" ms: " + tablePath );
-		}
+			final int tableIndex = i;
+			taskGroup.submit( () ->
+			{
+				final String tablePath = MoBIEHelper.resolveTablePath( getTablePath( regionDisplay.getTableDataFolder( TableDataFormat.TabDelimitedFile ), tableNames.get( tableIndex ) ) );
+				final long startTime = System.currentTimeMillis();
+				tableArray[ tableIndex ] = MultiThreading.read( tablePath, () -> TableReader.read( tablePath ) );
+				final long durationMillis = System.currentTimeMillis() - startTime;
+				if ( durationMillis > minLogTimeMillis )
+					Logger.log( "Read in "+ durationMillis +" ms: " + tablePath );
+			} );
+		}
+		taskGroup.join();
+		final List< Map< String, List< String > > > tables = Arrays.asList( tableArray );
 
 		// create primary table
 		final Map< String, List< String > > referenceTable = tables.get( 0 );
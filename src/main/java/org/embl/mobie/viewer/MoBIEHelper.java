@@ -35,7 +35,6 @@ import bdv.util.ResampledSource;
 import bdv.viewer.Source;
 import bdv.viewer.SourceAndConverter;
 import de.embl.cba.tables.TableColumns;
-import de.embl.cba.tables.Tables;
 import de.embl.cba.tables.imagesegment.SegmentProperty;
 import de.embl.cba.tables.imagesegment.SegmentUtils;
 import de.embl.cba.tables.tablerow.TableRowImageSegment;
@@ -45,7 +44,7 @@ import ij.gui.GenericDialog;
 import loci.plugins.in.ImagePlusReader;
 import loci.plugins.in.ImportProcess;
 import loci.plugins.in.ImporterOptions;
-import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.Interval;
 import net.imglib2.RealInterval;
 import net.imglib2.RealPoint;
 import net.imglib2.realtransform.AffineTransform3D;
@@ -55,7 +54,9 @@ import net.imglib2.roi.geom.GeomMasks;
 import net.imglib2.util.Intervals;
 import org.embl.mobie.io.util.IOHelper;
 import org.embl.mobie.viewer.source.LabelSource;
+import org.embl.mobie.viewer.source.SourceHelper;
 import org.embl.mobie.viewer.transform.MergedGridSource;
+import org.embl.mobie.viewer.table.TableReader;
 import org.embl.mobie.viewer.transform.TransformHelper;
 
 import javax.swing.*;
@@ -64,6 +65,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -166,13 +168,20 @@ public abstract class MoBIEHelper
 	}
 
 	public static RealMaskRealInterval unionRealMask( List< ? extends Source< ? > > sources )
+	{
+		final ArrayList< RealMaskRealInterval > masks = new ArrayList<>();
+		for ( Source< ? > source : sources )
+			masks.add( getMask( source ) );
+
+		return unionRealMask( masks );
+	}
+
+	public static RealMaskRealInterval unionRealMask( Collection< RealMaskRealInterval > masks )
 	{
 		RealMaskRealInterval union = null;
 
-		for ( Source< ? > source : sources )
+		for ( RealMaskRealInterval mask : masks )
 		{
-			final RealMaskRealInterval mask = getMask( source );
-
 			if ( union == null )
 			{
 				union = mask;
@@ -374,7 +383,7 @@ public abstract class MoBIEHelper
 	{
 		tablePath = resolveTablePath( tablePath );
 
-		Map< String, List< String > > columns = TableColumns.stringColumnsFromTableFile( tablePath );
+		Map< String, List< String > > columns = TableReader.read( tablePath );
 
 		TableColumns.addLabelImageIdColumn(
 				columns,
@@ -471,9 +480,9 @@ public abstract class MoBIEHelper
 	{
 		final AffineTransform3D affineTransform3D = new AffineTransform3D();
 		source.getSourceTransform( 0, 0, affineTransform3D );
-		final RandomAccessibleInterval< ? > rai = source.getSource( 0, 0 );
-		final double[] min = rai.minAsDoubleArray();
-		final double[] max = rai.maxAsDoubleArray();
+		final Interval interval = SourceHelper.getInterval( source, 0 );
+		final double[] min = interval.minAsDoubleArray();
+		final double[] max = interval.maxAsDoubleArray();
 		final double[] voxelSizes = new double[ 3 ];
 		source.getVoxelDimensions().dimensions( voxelSizes );
 		for ( int d = 0; d < 3; d++ )
@@ -499,16 +508,4 @@ public abstract class MoBIEHelper
 		}
 	}
 
-	public static void toDoubleStrings( List< String > values )
-	{
-		if ( ! Tables.isNumeric( values.get( 0 ) ) )
-			return;
-
-		final int size = values.size();
-		for ( int i = 0; i < size; i++ )
-		{
-			values.set( i, String.valueOf( Double.parseDouble( values.get( i ) ) ) );
-		}
-	}
-
 }
@@ -29,6 +29,7 @@
 package org.embl.mobie.viewer;
 
 import org.embl.mobie.io.ImageDataFormat;
+import org.embl.mobie.viewer.cache.CacheManager;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -104,6 +105,47 @@ public class MoBIESettings
 		return this;
 	}
 
+	/**
+	 * Enables a persistent, size-bounded cache on the local disk
+	 * for image chunks that are fetched from S3.
+	 *
+	 * @param chunkCacheDirectory
+	 * 			the directory of the cache, it will be created if it does not exist
+	 */
+	public MoBIESettings chunkCacheDirectory( String chunkCacheDirectory )
+	{
+		this.values.chunkCacheDirectory = chunkCacheDirectory;
+		return this;
+	}
+
+	public MoBIESettings chunkCacheMaxBytes( long chunkCacheMaxBytes )
+	{
+		this.values.chunkCacheMaxBytes = chunkCacheMaxBytes;
+		return this;
+	}
+
+	/**
+	 * Sets the memory budget of the caches that MoBIE creates itself,
+	 * e.g. for merged grids; by default, a quarter of the maximum heap size.
+	 */
+	public MoBIESettings memoryCacheMaxBytes( long memoryCacheMaxBytes )
+	{
+		this.values.memoryCacheMaxBytes = memoryCacheMaxBytes;
+		return this;
+	}
+
+	/**
+	 * Sets how many bits of the label values of merged label grids hold the
+	 * label value of a grid source; the remaining bits hold the source name.
+	 * The default of 16 bits supports 65,535 labels per grid source; for more,
+	 * use uint64 label images and more bits.
+	 */
+	public MoBIESettings labelValueBits( int labelValueBits )
+	{
+		this.values.labelValueBits = labelValueBits;
+		return this;
+	}
+
 	public static class Values
 	{
 		public String[] s3AccessAndSecretKey;
@@ -116,6 +158,10 @@ public class MoBIESettings
 		private String imageDataLocation;
 		private String tableDataLocation;
 		private String view = "default";
+		private String chunkCacheDirectory;
+		private long chunkCacheMaxBytes = 10L * 1024 * 1024 * 1024;
+		private long memoryCacheMaxBytes = CacheManager.DEFAULT_MAX_BYTES;
+		private int labelValueBits = SourceNameEncoder.DEFAULT_VALUE_BITS;
 
 		public String getDataset()
 		{
@@ -168,5 +214,25 @@ public class MoBIESettings
 		{
 			return s3AccessAndSecretKey;
 		}
+
+		public String getChunkCacheDirectory()
+		{
+			return chunkCacheDirectory;
+		}
+
+		public long getChunkCacheMaxBytes()
+		{
+			return chunkCacheMaxBytes;
+		}
+
+		public long getMemoryCacheMaxBytes()
+		{
+			return memoryCacheMaxBytes;
+		}
+
+		public int getLabelValueBits()
+		{
+			return labelValueBits;
+		}
 	}
 }
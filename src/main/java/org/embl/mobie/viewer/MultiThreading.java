@@ -30,34 +30,123 @@ package org.embl.mobie.viewer;
 
 import bdv.util.volatiles.SharedQueue;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class MultiThreading
 {
-	private static int N_IO_THREADS = 16;
-	private static final int N_FETCHER_THREADS = Runtime.getRuntime().availableProcessors() - 1;
-	private static final int N_THREADS = Runtime.getRuntime().availableProcessors() - 1;
+	private static int N_IO_THREADS = 16; // initial concurrency per storage backend
+	private static final int MAX_IO_THREADS_REMOTE = 64;
+	private static final int MAX_IO_THREADS_LOCAL = 256;
+	private static final int N_FETCHER_THREADS = Math.max( 1, Runtime.getRuntime().availableProcessors() - 1 );
+	private static final int N_THREADS = Math.max( 1, Runtime.getRuntime().availableProcessors() - 1 );
 
-	public static ExecutorService ioExecutorService = Executors.newFixedThreadPool( N_IO_THREADS );
+	// The number of concurrent operations per backend is
+	// limited by the I/O limiters, not by the executor.
+	public static ExecutorService ioExecutorService = createIOExecutorService();
+
+	// All image loaders must use this queue, such that there is only one set of fetcher
+	// threads and the BDV renderer can prioritise the chunks that are currently visible.
 	public static final SharedQueue sharedQueue = new SharedQueue( N_FETCHER_THREADS );
+	// Reading tables and metadata and fetching chunks are limited separately,
+	// because their latencies are too different for one common baseline.
+	private static final Map< String, AdaptiveConcurrencyLimiter > backendToIOLimiter = new ConcurrentHashMap<>();
+	private static final Map< String, AdaptiveConcurrencyLimiter > backendToFetchLimiter = new ConcurrentHashMap<>();
+
+	private static final Set< TaskGroup > taskGroups = ConcurrentHashMap.newKeySet();
+	static final ScheduledExecutorService timeoutService = Executors.newSingleThreadScheduledExecutor( runnable -> {
+		final Thread thread = new Thread( runnable, "MoBIE task timeouts" );
+		thread.setDaemon( true );
+		return thread;
+	} );
 	public static ExecutorService executorService = Executors.newFixedThreadPool( N_THREADS );
 
 	public static void resetIOThreads()
 	{
+		for ( TaskGroup taskGroup : taskGroups )
+			taskGroup.cancel();
 		ioExecutorService.shutdownNow();
-		ioExecutorService = Executors.newFixedThreadPool( N_IO_THREADS );
+		ioExecutorService = createIOExecutorService();
 	}
 
+	/**
+	 * Sets the initial number of concurrent I/O operations per storage backend.
+	 * The I/O limits of all backends are reset, including the ones
+	 * that are used by images that are already open.
+	 */
 	public static void setNumIoThreads( int numIoThreads )
 	{
 		N_IO_THREADS = numIoThreads;
-		ioExecutorService = Executors.newFixedThreadPool( N_IO_THREADS );
+		for ( AdaptiveConcurrencyLimiter limiter : backendToIOLimiter.values() )
+			limiter.reset( numIoThreads );
+		for ( AdaptiveConcurrencyLimiter limiter : backendToFetchLimiter.values() )
+			limiter.reset( numIoThreads );
+	}
+
+	/*
+	 * Uses virtual threads where the JVM supports them (Java 21+),
+	 * as the I/O tasks mostly block and the fan out can be very wide.
+	 */
+	private static ExecutorService createIOExecutorService()
+	{
+		try
+		{
+			return ( ExecutorService ) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+		}
+		catch ( Exception e )
+		{
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor( MAX_IO_THREADS_LOCAL, MAX_IO_THREADS_LOCAL, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>() );
+			executor.allowCoreThreadTimeOut( true );
+			return executor;
+		}
+	}
+
+	public static TaskGroup createTaskGroup( String name )
+	{
+		return createTaskGroup( name, null );
+	}
+
+	/**
+	 * @param owner
+	 * 			the object on whose behalf the tasks are run, e.g. a MoBIE instance,
+	 * 			see {@link #cancelTaskGroups(Object)}
+	 */
+	public static TaskGroup createTaskGroup( String name, Object owner )
+	{
+		final TaskGroup taskGroup = new TaskGroup( name, owner );
+		taskGroups.add( taskGroup );
+		return taskGroup;
+	}
+
+	static void removeTaskGroup( TaskGroup taskGroup )
+	{
+		taskGroups.remove( taskGroup );
+	}
+
+	/**
+	 * Cancels the task groups of one owner that are currently running,
+	 * e.g. because the user switched to another view.
+	 * The task groups of other owners, e.g. of other MoBIE instances, keep running.
+	 */
+	public static void cancelTaskGroups( Object owner )
+	{
+		for ( TaskGroup taskGroup : taskGroups )
+			if ( taskGroup.getOwner() == owner )
+				taskGroup.cancel();
 	}
 
 	public static int getNumIoThreads()
@@ -65,6 +154,69 @@ public class MultiThreading
 		return N_IO_THREADS;
 	}
 
+	/**
+	 * @param backend
+	 * 			the storage backend, see {@link #getBackend(String)}
+	 * @return the limiter for the number of concurrent reads of tables and metadata from this backend
+	 */
+	public static AdaptiveConcurrencyLimiter getIOLimiter( String backend )
+	{
+		return backendToIOLimiter.computeIfAbsent( backend, b ->
+				new AdaptiveConcurrencyLimiter( b, N_IO_THREADS, 1, b.equals( "file" ) ? MAX_IO_THREADS_LOCAL : MAX_IO_THREADS_REMOTE ) );
+	}
+
+	/**
+	 * @param backend
+	 * 			the storage backend, see {@link #getBackend(String)}
+	 * @return the limiter for the number of concurrent chunk fetches from this backend
+	 */
+	public static AdaptiveConcurrencyLimiter getFetchLimiter( String backend )
+	{
+		return backendToFetchLimiter.computeIfAbsent( backend, b ->
+				new AdaptiveConcurrencyLimiter( b + " (chunks)", N_IO_THREADS, 1, getMaxFetches( b ) ) );
+	}
+
+	/*
+	 * A remote backend may occupy at most all but one of the fetcher threads
+	 * of the shared queue, such that a slow or throttling backend cannot
+	 * stall the fetching from the other backends.
+	 * Local files are not limited beyond the number of fetcher threads.
+	 */
+	private static int getMaxFetches( String backend )
+	{
+		if ( backend.equals( "file" ) )
+			return MAX_IO_THREADS_LOCAL;
+		else
+			return Math.max( 1, N_FETCHER_THREADS - 1 );
+	}
+
+	/**
+	 * Reads from a location, respecting the I/O limit of its storage backend.
+	 */
+	public static < T > T read( String location, Supplier< T > reader )
+	{
+		return getIOLimiter( getBackend( location ) ).call( reader );
+	}
+
+	/**
+	 * @return the host of a remote location or "file" for a local path
+	 */
+	public static String getBackend( String location )
+	{
+		try
+		{
+			final String host = URI.create( location.replace( " ", "%20" ) ).getHost();
+			if ( host != null ) return host;
+			if ( location.startsWith( "s3://" ) )
+				return location.substring( 5 ).split( "/" )[ 0 ];
+		}
+		catch ( Exception e )
+		{
+			// e.g. a Windows path
+		}
+		return "file";
+	}
+
 	public static void waitUntilFinished( List< Future< ? > > futures )
 	{
 		for ( Future< ? > future : futures )
@@ -74,15 +226,27 @@ public class MultiThreading
 				future.get();
 			} catch ( InterruptedException e )
 			{
-				break; // loading has been interrupted
+				cancel( futures ); // loading has been interrupted
+				break;
+			}
+			catch ( CancellationException e )
+			{
+				// continue with the remaining ones
 			}
 			catch ( ExecutionException e )
 			{
-				break; // loading has been interrupted
+				cancel( futures ); // don't leave the remaining tasks running
+				break;
 			}
 		}
 	}
 
+	private static void cancel( List< Future< ? > > futures )
+	{
+		for ( Future< ? > future : futures )
+			future.cancel( true );
+	}
+
 	public static ArrayList< Future< ? > > getFutures()
 	{
 		return new ArrayList<>();
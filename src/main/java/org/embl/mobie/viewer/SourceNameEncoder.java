@@ -28,20 +28,78 @@
  */
 package org.embl.mobie.viewer;
 
-import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.Volatile;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.volatiles.VolatileUnsignedIntType;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public abstract class SourceNameEncoder
+/**
+ * Encodes the name of a source into the upper bits of its label values,
+ * such that labels of different sources can be merged into one image.
+ *
+ * The lower {@link #getValueBits()} bits hold the label value and the
+ * remaining upper bits the index of the source name. With the default
+ * of 16 value bits, uint32 images can hold 65,535 labels per source;
+ * for sources with more labels, use uint64 images and more value bits.
+ *
+ * The number of value bits is fixed per encoder, such that merged grids
+ * with different numbers of value bits can be shown at the same time;
+ * the indices of the source names are shared by all encoders.
+ *
+ * Decoding does not allocate and does not lock, such that it can be
+ * called for every pixel while rendering.
+ */
+public class SourceNameEncoder
 {
-	private static Map< String, Long > nameToLong = new HashMap< String, Long >();
-	private static Map< Long, String > longToName = new HashMap< Long, String >();
-	private static long count = 0;
+	public static final int DEFAULT_VALUE_BITS = 16;
+
+	private static final Map< String, Integer > nameToIndex = new ConcurrentHashMap<>();
+
+	// written only while holding the class lock and published by
+	// re-assigning the volatile field
+	private static volatile String[] indexToName = new String[ 64 ];
+	private static int numNames = 0;
+
+	private final int valueBits;
+	private final long valueMask;
+
+	public SourceNameEncoder()
+	{
+		this( DEFAULT_VALUE_BITS );
+	}
+
+	/**
+	 * @param valueBits
+	 * 			how many of the lower bits hold the label value;
+	 * 			the remaining upper bits hold the source name
+	 */
+	public SourceNameEncoder( int valueBits )
+	{
+		if ( valueBits < 1 || valueBits > 63 )
+			throw new IllegalArgumentException( "The number of value bits must be within [1, 63], but is " + valueBits );
+
+		this.valueBits = valueBits;
+		this.valueMask = ( 1L << valueBits ) - 1;
+	}
+
+	public int getValueBits()
+	{
+		return valueBits;
+	}
 
-	public static Integer valueBits = 16;
+	/**
+	 * @return the largest label value that can be encoded
+	 */
+	public long getMaxValue()
+	{
+		return valueMask;
+	}
 
 	public static synchronized void addNames( Collection< String > names )
 	{
@@ -51,55 +109,91 @@ public abstract class SourceNameEncoder
 		}
 	}
 
-	public static void addName( String name )
+	/**
+	 * @return the index of the name
+	 */
+	public static synchronized int addName( String name )
 	{
-		if ( ! nameToLong.containsKey( name ) )
-		{
-			nameToLong.put( name, count );
-			longToName.put( count, name );
-			count++;
-		}
+		final Integer index = nameToIndex.get( name );
+		if ( index != null )
+			return index;
+
+		String[] names = indexToName;
+		if ( numNames == names.length )
+			names = Arrays.copyOf( names, 2 * names.length );
+		names[ numNames ] = name;
+		indexToName = names;
+		nameToIndex.put( name, numNames );
+		return numNames++;
 	}
 
-	public static String getName( final UnsignedIntType unsignedIntType )
+	public String getName( final IntegerType< ? > value )
 	{
-		final long imageIndex = unsignedIntType.get() >> valueBits;
-		final String name = longToName.get( imageIndex );
-		return name;
+		return getName( value.getIntegerLong() );
 	}
 
-	public static String getName( final VolatileUnsignedIntType unsignedIntType )
+	public String getName( final VolatileUnsignedIntType value )
 	{
-		return getName( unsignedIntType.get().get() );
+		return getName( value.get().get() );
 	}
 
-	public static String getName( final long l )
+	public String getName( final long l )
 	{
-		final long imageIndex = l >> valueBits;
-		final String name = longToName.get( imageIndex );
-		return name;
+		final long index = l >>> valueBits;
+		final String[] names = indexToName;
+		if ( index >= names.length )
+			return null;
+		return names[ ( int ) index ];
 	}
 
-	public static long getValue( final UnsignedIntType unsignedIntType )
+	public long getValue( final IntegerType< ? > value )
 	{
-		return getValue( unsignedIntType.get() );
+		return getValue( value.getIntegerLong() );
 	}
 
-	public static long getValue( final VolatileUnsignedIntType unsignedIntType )
+	public long getValue( final VolatileUnsignedIntType value )
 	{
-		return getValue( unsignedIntType.get().get() );
+		return getValue( value.get().get() );
 	}
 
-	public static long getValue( final long l )
+	public long getValue( final long l )
 	{
-		final long value = l & 0x0000FFFF;
-		return value;
+		return l & valueMask;
+	}
+
+	public void encodeName( final IntegerType< ? > value, final String name )
+	{
+		value.setInteger( value.getIntegerLong() + getEncodedName( name ) );
+	}
+
+	/**
+	 * Names that have not been added yet are added.
+	 *
+	 * @return the number that {@link #encodeName} adds to a value
+	 */
+	public long getEncodedName( final String name )
+	{
+		Integer index = nameToIndex.get( name );
+		if ( index == null )
+			index = addName( name );
+
+		if ( valueBits + 32 - Integer.numberOfLeadingZeros( index ) > 64 )
+			throw new UnsupportedOperationException( "Cannot encode more than 2^" + ( 64 - valueBits ) + " source names with " + valueBits + " value bits." );
+		return ( ( long ) index ) << valueBits;
 	}
 
-	public static void encodeName( final UnsignedIntType value, final String name )
+	/**
+	 * As {@link #getEncodedName( String )}, but also checks that
+	 * the encoded labels fit into pixels of the given type.
+	 *
+	 * @throws UnsupportedOperationException if the encoded labels do not fit
+	 */
+	public long getEncodedName( final String name, final Type< ? > type )
 	{
-		final long l = value.get();
-		final long encoded = l + ( nameToLong.get( name ) << valueBits );
-		value.set( encoded );
+		final long encodedName = getEncodedName( name );
+		final Object value = type instanceof Volatile ? ( ( Volatile< ? > ) type ).get() : type;
+		if ( value instanceof RealType && ( double ) encodedName + valueMask > ( ( RealType< ? > ) value ).getMaxValue() )
+			throw new UnsupportedOperationException( "Cannot encode the name of " + name + " into labels of type " + value.getClass().getSimpleName() + "; please use uint64 labels or less value bits." );
+		return encodedName;
 	}
 }
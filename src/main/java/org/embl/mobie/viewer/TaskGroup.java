@@ -0,0 +1,292 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer;
+
+import ij.IJ;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A group of tasks that succeed or fail together.
+ *
+ * If one task fails or exceeds its timeout, or if the group is cancelled,
+ * all other tasks of the group are cancelled.
+ * Groups whose tasks are independent of each other can instead
+ * {@link #continueOnFailure() continue on failure}.
+ * Progress listeners are notified whenever a task has finished.
+ *
+ * Task groups are created via {@link MultiThreading#createTaskGroup(String, Object)}.
+ */
+public class TaskGroup
+{
+	public interface ProgressListener
+	{
+		void progress( TaskGroup taskGroup, int numFinished, int numTasks );
+	}
+
+	private final String name;
+	private final Object owner;
+	private final List< Future< ? > > futures = new CopyOnWriteArrayList<>();
+	private final List< ProgressListener > progressListeners = new CopyOnWriteArrayList<>();
+	private final AtomicInteger numTasks = new AtomicInteger();
+	private final AtomicInteger numFinished = new AtomicInteger();
+	private final AtomicReference< Throwable > failure = new AtomicReference<>();
+	private final List< Throwable > failures = new CopyOnWriteArrayList<>();
+	private volatile boolean cancelled = false;
+	private volatile boolean continueOnFailure = false;
+
+	TaskGroup( String name, Object owner )
+	{
+		this.name = name;
+		this.owner = owner;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public Object getOwner()
+	{
+		return owner;
+	}
+
+	/**
+	 * Lets the other tasks continue if a task fails;
+	 * the failures are logged and collected, see {@link #getFailures()},
+	 * and {@link #join()} does not throw because of them.
+	 */
+	public TaskGroup continueOnFailure()
+	{
+		continueOnFailure = true;
+		return this;
+	}
+
+	public void addProgressListener( ProgressListener progressListener )
+	{
+		progressListeners.add( progressListener );
+	}
+
+	/**
+	 * Submits an I/O task.
+	 */
+	public void submit( Runnable task )
+	{
+		submit( MultiThreading.ioExecutorService, task, 0 );
+	}
+
+	/**
+	 * Submits an I/O task that fails the group if it does not finish within the timeout.
+	 */
+	public void submit( Runnable task, long timeoutMillis )
+	{
+		submit( MultiThreading.ioExecutorService, task, timeoutMillis );
+	}
+
+	/**
+	 * @param timeoutMillis
+	 * 			the timeout, measured from submission; 0 means no timeout
+	 */
+	public void submit( ExecutorService executorService, Runnable task, long timeoutMillis )
+	{
+		if ( cancelled ) return;
+
+		numTasks.incrementAndGet();
+		final Future< ? > future = executorService.submit( () ->
+		{
+			try
+			{
+				if ( ! cancelled )
+					task.run();
+			}
+			catch ( Throwable throwable )
+			{
+				fail( throwable );
+			}
+			finally
+			{
+				final int finished = numFinished.incrementAndGet();
+				for ( ProgressListener progressListener : progressListeners )
+					progressListener.progress( this, finished, numTasks.get() );
+			}
+		} );
+		futures.add( future );
+
+		if ( timeoutMillis > 0 )
+		{
+			MultiThreading.timeoutService.schedule( () -> {
+				if ( ! future.isDone() )
+				{
+					fail( new TimeoutException( name + ": task did not finish within " + timeoutMillis + " ms." ) );
+					future.cancel( true );
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS );
+		}
+
+		// the group may have been cancelled while submitting
+		if ( cancelled )
+			future.cancel( true );
+	}
+
+	/**
+	 * Cancels all tasks of this group, interrupting the running ones.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+		for ( Future< ? > future : futures )
+			future.cancel( true );
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * @return whether all submitted tasks have finished or were cancelled
+	 */
+	public boolean isDone()
+	{
+		for ( Future< ? > future : futures )
+			if ( ! future.isDone() )
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the first failure of a task, or null
+	 */
+	public Throwable getFailure()
+	{
+		return failure.get();
+	}
+
+	/**
+	 * @return the failures of all tasks
+	 */
+	public List< Throwable > getFailures()
+	{
+		return failures;
+	}
+
+	/**
+	 * Waits until all tasks have finished or were cancelled.
+	 */
+	public void waitUntilFinished()
+	{
+		try
+		{
+			for ( Future< ? > future : futures )
+			{
+				try
+				{
+					future.get();
+				}
+				catch ( CancellationException | ExecutionException e )
+				{
+					// the group has been cancelled or the failure was recorded by the task itself
+				}
+				catch ( InterruptedException e )
+				{
+					cancel();
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		finally
+		{
+			MultiThreading.removeTaskGroup( this );
+		}
+	}
+
+	/**
+	 * Waits until all tasks have finished and throws if the group has failed or was cancelled.
+	 *
+	 * @throws CancellationException if the group was cancelled
+	 * @throws RuntimeException if a task has failed, unless the group continues on failure
+	 */
+	public void join()
+	{
+		waitUntilFinished();
+
+		final Throwable throwable = failure.get();
+		if ( throwable != null && ! continueOnFailure )
+			throw new RuntimeException( name + " failed: " + throwable.getMessage(), throwable );
+
+		if ( cancelled )
+			throw new CancellationException( name + " was cancelled." );
+	}
+
+	/**
+	 * Creates a listener that logs the progress at most every
+	 * few seconds, such that the log window is not flooded
+	 * when there are many tasks.
+	 */
+	public static ProgressListener progressLogger( String action, long intervalMillis )
+	{
+		final AtomicLong lastLogMillis = new AtomicLong( System.currentTimeMillis() );
+		return ( taskGroup, numFinished, numTasks ) ->
+		{
+			final long currentTimeMillis = System.currentTimeMillis();
+			final long last = lastLogMillis.get();
+			if ( currentTimeMillis - last > intervalMillis && lastLogMillis.compareAndSet( last, currentTimeMillis ) )
+				IJ.log( action + " (" + numFinished + "/" + numTasks + ")..." );
+		};
+	}
+
+	private void fail( Throwable throwable )
+	{
+		if ( cancelled ) return; // errors of interrupted tasks
+
+		failures.add( throwable );
+		if ( continueOnFailure )
+		{
+			failure.compareAndSet( null, throwable );
+			System.err.println( name + ": " + throwable );
+			throwable.printStackTrace();
+			return;
+		}
+
+		if ( failure.compareAndSet( null, throwable ) )
+			System.err.println( name + ": " + throwable );
+		cancel();
+	}
+}
@@ -33,12 +33,16 @@ import bdv.viewer.SourceAndConverter;
 import ij.IJ;
 import net.imglib2.roi.RealMaskRealInterval;
 import org.embl.mobie.viewer.MoBIEHelper;
+import org.embl.mobie.viewer.MultiThreading;
 import org.embl.mobie.viewer.TableColumnNames;
+import org.embl.mobie.viewer.TaskGroup;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public class RegionCreator
@@ -48,6 +52,9 @@ public class RegionCreator
 	private final Function< String, SourceAndConverter< ? > > sourceAndConverterSupplier;
 	private List< RegionTableRow > regionTableRows;
 
+	// the same source may be part of several regions
+	private final Map< Source< ? >, RealMaskRealInterval > sourceToMask = new ConcurrentHashMap<>();
+
 	public RegionCreator( Map< String, List< String > > columns, Map< String, List< String > > annotationIdToSources, Function< String, SourceAndConverter< ? > > sourceAndConverterSupplier)
 	{
 		this.columns = columns;
@@ -60,33 +67,53 @@ public class RegionCreator
 	{
 		final long currentTimeMillis = System.currentTimeMillis();
 
-		regionTableRows = new ArrayList<>();
-		final Set< String > annotationIds = annotationIdToSources.keySet();
-		final List< String > annotationIdColumn = columns.get( TableColumnNames.REGION_ID );
+		final List< String > annotationIds = new ArrayList<>( annotationIdToSources.keySet() );
+		final Map< String, Integer > annotationIdToRowIndex = createRowIndex( columns.get( TableColumnNames.REGION_ID ) );
 
-		for ( String annotationId : annotationIds )
+		// the masks may require opening the sources,
+		// thus they are computed concurrently
+		final RegionTableRow[] tableRows = new RegionTableRow[ annotationIds.size() ];
+		final TaskGroup taskGroup = MultiThreading.createTaskGroup( "Creating regions" );
+		for ( int i = 0; i < tableRows.length; i++ )
 		{
-			final ArrayList< Source< ? > > sources = getSources( annotationId );
-
-			final RealMaskRealInterval mask = MoBIEHelper.unionRealMask( sources );
-			//System.out.println( annotationId );
-			//System.out.println( sources.size() );
-			//System.out.println( Arrays.toString( mask.minAsDoubleArray() ));
-
-			regionTableRows.add(
-					new DefaultRegionTableRow(
-							annotationId,
-							mask,
-							columns,
-							annotationIdColumn.indexOf( annotationId ) )
-			);
+			final int regionIndex = i;
+			taskGroup.submit( () ->
+			{
+				final String annotationId = annotationIds.get( regionIndex );
+				final RealMaskRealInterval mask = MoBIEHelper.unionRealMask( getMasks( annotationId ) );
+				tableRows[ regionIndex ] = new DefaultRegionTableRow(
+						annotationId,
+						mask,
+						columns,
+						annotationIdToRowIndex.getOrDefault( annotationId, -1 ) );
+			} );
 		}
+		taskGroup.join();
+
+		regionTableRows = new ArrayList<>( Arrays.asList( tableRows ) );
 
 		final long durationMillis = System.currentTimeMillis() - currentTimeMillis;
 		if ( durationMillis > 100 )
 			IJ.log("Created " + annotationIds.size() + " annotated intervals in " + durationMillis + " ms.");
 	}
 
+	// like List.indexOf, the first row of a region id wins
+	private static Map< String, Integer > createRowIndex( List< String > annotationIdColumn )
+	{
+		final Map< String, Integer > annotationIdToRowIndex = new HashMap<>( 2 * annotationIdColumn.size() );
+		for ( int rowIndex = 0; rowIndex < annotationIdColumn.size(); rowIndex++ )
+			annotationIdToRowIndex.putIfAbsent( annotationIdColumn.get( rowIndex ), rowIndex );
+		return annotationIdToRowIndex;
+	}
+
+	private List< RealMaskRealInterval > getMasks( String annotationId )
+	{
+		final ArrayList< RealMaskRealInterval > masks = new ArrayList<>();
+		for ( Source< ? > source : getSources( annotationId ) )
+			masks.add( sourceToMask.computeIfAbsent( source, MoBIEHelper::getMask ) );
+		return masks;
+	}
+
 	private ArrayList< Source< ? > > getSources( String annotationId )
 	{
 		final ArrayList< Source< ? > > sources = new ArrayList<>();
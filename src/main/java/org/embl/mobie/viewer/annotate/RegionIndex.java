@@ -0,0 +1,257 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.annotate;
+
+import net.imglib2.AbstractRealInterval;
+import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.util.Intervals;
+
+import java.util.List;
+
+/**
+ * A uniform grid over the bounding boxes of region masks,
+ * for finding the region at a location without testing all masks.
+ *
+ * Each grid cell holds the indices of the masks whose bounding boxes
+ * intersect it, in ascending order, such that, for overlapping regions,
+ * the region with the lowest index is found, as with a linear search.
+ */
+public class RegionIndex
+{
+	private final List< ? extends RealMaskRealInterval > masks;
+	private final RealInterval unionInterval;
+	private final RealMaskRealInterval unionMask;
+	private final int numDimensions;
+	private final double[] min;
+	private final double[] cellSize;
+	private final int[] numCells;
+	private final int[][] cellToMasks;
+
+	public RegionIndex( List< ? extends RealMaskRealInterval > masks )
+	{
+		if ( masks.isEmpty() )
+			throw new IllegalArgumentException( "Cannot index an empty list of regions." );
+
+		this.masks = masks;
+
+		RealInterval union = masks.get( 0 );
+		for ( RealMaskRealInterval mask : masks )
+			union = Intervals.union( union, mask );
+		unionInterval = union;
+		numDimensions = unionInterval.numDimensions();
+
+		min = unionInterval.minAsDoubleArray();
+		cellSize = new double[ numDimensions ];
+		numCells = new int[ numDimensions ];
+		configureGrid( masks.size() );
+
+		cellToMasks = createCells();
+		unionMask = new UnionMask( unionInterval );
+	}
+
+	/**
+	 * @return the index of the first mask containing the location, or -1
+	 */
+	public int getRegionIndex( RealLocalizable location )
+	{
+		final int cell = getCell( location );
+		if ( cell == -1 )
+			return -1;
+
+		for ( int maskIndex : cellToMasks[ cell ] )
+			if ( masks.get( maskIndex ).test( location ) )
+				return maskIndex;
+
+		return -1;
+	}
+
+	public RealInterval getUnionInterval()
+	{
+		return unionInterval;
+	}
+
+	/**
+	 * @return the exact union of all masks
+	 */
+	public RealMaskRealInterval getUnionMask()
+	{
+		return unionMask;
+	}
+
+	int getNumCells()
+	{
+		return cellToMasks.length;
+	}
+
+	// about one cell per region, with cubic cells along the dimensions
+	// in which the regions extend by more than one cell
+	private void configureGrid( int numRegions )
+	{
+		final double[] extents = new double[ numDimensions ];
+		for ( int d = 0; d < numDimensions; d++ )
+			extents[ d ] = unionInterval.realMax( d ) - min[ d ];
+
+		double size = 0;
+		boolean isThin = true;
+		while ( isThin )
+		{
+			double volume = 1;
+			int numExtendedDimensions = 0;
+			for ( int d = 0; d < numDimensions; d++ )
+			{
+				if ( extents[ d ] > size )
+				{
+					volume *= extents[ d ];
+					numExtendedDimensions++;
+				}
+			}
+
+			if ( numExtendedDimensions == 0 ) break;
+
+			final double previousSize = size;
+			size = Math.pow( volume / numRegions, 1.0 / numExtendedDimensions );
+
+			// dimensions thinner than a cell only get one cell
+			isThin = false;
+			for ( int d = 0; d < numDimensions; d++ )
+				if ( extents[ d ] > previousSize && extents[ d ] <= size )
+					isThin = true;
+		}
+
+		for ( int d = 0; d < numDimensions; d++ )
+		{
+			numCells[ d ] = extents[ d ] > size ? ( int ) Math.round( extents[ d ] / size ) : 1;
+			cellSize[ d ] = extents[ d ] > 0 ? extents[ d ] / numCells[ d ] : 1;
+		}
+	}
+
+	private int[][] createCells()
+	{
+		int numCellsTotal = 1;
+		for ( int d = 0; d < numDimensions; d++ )
+			numCellsTotal *= numCells[ d ];
+
+		// first count and then fill, which keeps the mask indices sorted
+		final int[] counts = new int[ numCellsTotal ];
+		forEachCell( ( cell, maskIndex ) -> counts[ cell ]++ );
+
+		final int[][] cells = new int[ numCellsTotal ][];
+		for ( int cell = 0; cell < numCellsTotal; cell++ )
+			cells[ cell ] = new int[ counts[ cell ] ];
+
+		final int[] fill = new int[ numCellsTotal ];
+		forEachCell( ( cell, maskIndex ) -> cells[ cell ][ fill[ cell ]++ ] = maskIndex );
+
+		return cells;
+	}
+
+	private interface CellConsumer
+	{
+		void accept( int cell, int maskIndex );
+	}
+
+	private void forEachCell( CellConsumer consumer )
+	{
+		final int[] cellMin = new int[ numDimensions ];
+		final int[] cellMax = new int[ numDimensions ];
+		final int[] position = new int[ numDimensions ];
+
+		for ( int maskIndex = 0; maskIndex < masks.size(); maskIndex++ )
+		{
+			final RealMaskRealInterval mask = masks.get( maskIndex );
+			for ( int d = 0; d < numDimensions; d++ )
+			{
+				cellMin[ d ] = toCell( mask.realMin( d ), d );
+				cellMax[ d ] = toCell( mask.realMax( d ), d );
+				position[ d ] = cellMin[ d ];
+			}
+
+			// iterate over all cells in [ cellMin, cellMax ]
+			while ( true )
+			{
+				consumer.accept( toIndex( position ), maskIndex );
+
+				int d = 0;
+				for ( ; d < numDimensions; d++ )
+				{
+					if ( position[ d ] < cellMax[ d ] )
+					{
+						position[ d ]++;
+						break;
+					}
+					position[ d ] = cellMin[ d ];
+				}
+				if ( d == numDimensions ) break;
+			}
+		}
+	}
+
+	private int getCell( RealLocalizable location )
+	{
+		int index = 0;
+		for ( int d = numDimensions - 1; d >= 0; d-- )
+		{
+			final double position = location.getDoublePosition( d );
+			if ( position < min[ d ] || position > unionInterval.realMax( d ) )
+				return -1;
+			index = index * numCells[ d ] + toCell( position, d );
+		}
+		return index;
+	}
+
+	private int toCell( double position, int d )
+	{
+		final int cell = ( int ) Math.floor( ( position - min[ d ] ) / cellSize[ d ] );
+		return Math.max( 0, Math.min( numCells[ d ] - 1, cell ) );
+	}
+
+	private int toIndex( int[] position )
+	{
+		int index = 0;
+		for ( int d = numDimensions - 1; d >= 0; d-- )
+			index = index * numCells[ d ] + position[ d ];
+		return index;
+	}
+
+	private class UnionMask extends AbstractRealInterval implements RealMaskRealInterval
+	{
+		UnionMask( RealInterval interval )
+		{
+			super( interval );
+		}
+
+		@Override
+		public boolean test( RealLocalizable location )
+		{
+			return getRegionIndex( location ) != -1;
+		}
+	}
+}
@@ -34,9 +34,7 @@ import bdv.util.RealRandomAccessibleIntervalSource;
 import bdv.viewer.SourceAndConverter;
 import ij.IJ;
 import net.imglib2.Interval;
-import net.imglib2.RealInterval;
 import net.imglib2.roi.RealMaskRealInterval;
-import net.imglib2.roi.geom.GeomMasks;
 import org.embl.mobie.viewer.MoBIE;
 import org.embl.mobie.viewer.color.ListItemsARGBConverter;
 import de.embl.cba.tables.color.ColorUtils;
@@ -61,7 +59,7 @@ public class TableRowsIntervalImage< T extends RegionTableRow >
 	private String name;
 	private SourceAndConverter< IntType > sourceAndConverter;
 	private RealMaskRealInterval unionMask;
-	private RealInterval unionInterval;
+	private RegionIndex regionIndex;
 	private int size;
 
 	public TableRowsIntervalImage(
@@ -88,51 +86,20 @@ public class TableRowsIntervalImage< T extends RegionTableRow >
 	{
 		size = tableRows.size();
 
+		final ArrayList< RealMaskRealInterval > masks = new ArrayList<>( size );
 		for ( T tableRow : tableRows )
-		{
-			final RealMaskRealInterval mask = tableRow.mask();
-
-			if ( unionInterval == null )
-			{
-				//unionMask = mask;
-				unionInterval = mask;
-			}
-			else
-			{
-
-				if ( Intervals.equals(  mask, unionInterval ) )
-				{
-					continue;
-				}
-				else
-				{
-					// TODO: Below hangs
-					//unionMask = unionMask.or( mask );
-					unionInterval = Intervals.union( unionInterval, mask );
-				}
-			}
-		}
-
-		// TODO: this is a work around
-		unionMask = GeomMasks.closedBox( unionInterval.minAsDoubleArray(), unionInterval.maxAsDoubleArray() );
+			masks.add( tableRow.mask() );
+
+		regionIndex = new RegionIndex( masks );
+		unionMask = regionIndex.getUnionMask();
 	}
 
 	private void createImage( )
 	{
 		BiConsumer< RealLocalizable, IntType > biConsumer = ( location, value ) ->
 		{
-			value.setInteger( ListItemsARGBConverter.OUT_OF_BOUNDS_ROW_INDEX );
-
-			for ( int i = 0; i < size; i++ )
-			{
-				final RealMaskRealInterval mask = tableRows.get( i ).mask();
-
-				if ( mask.test( location ) )
-				{
-					value.setInteger( i );
-					return;
-				}
-			}
+			// the region index is -1, i.e. OUT_OF_BOUNDS_ROW_INDEX, outside of all regions
+			value.setInteger( regionIndex.getRegionIndex( location ) );
 		};
 
 		final ArrayList< Integer > timePoints = configureTimePoints();
@@ -341,7 +341,8 @@ public class ScreenShotMaker
         final Cursor< ARGBType > argbCursor = Views.iterable( argbTarget ).localizingCursor();
         final int numVisibleSources = argbSources.size();
         Cursor< ARGBType >[] cursors = getCursors( argbSources, numVisibleSources );
-        final ArrayList< ArrayList< Integer > > occlusions = AccumulateOccludingProjectorARGB.getOcclusions( sacs );
+        final boolean[] isOccluding = AccumulateOccludingProjectorARGB.isOccluding( AccumulateOccludingProjectorARGB.getBlendingModes( sacs ) );
+        final int[] argbs = new int[ numVisibleSources ];
 
         while ( argbCursor.hasNext() )
         {
@@ -349,8 +350,8 @@ public class ScreenShotMaker
             {
                 argbCursor.fwd();
                 for ( int i = 0; i < numVisibleSources; i++ )
-                    cursors[ i ].fwd();
-                final int argbIndex = AccumulateOccludingProjectorARGB.getArgbIndex( cursors, occlusions );
+                    argbs[ i ] = cursors[ i ].next().get();
+                final int argbIndex = AccumulateOccludingProjectorARGB.blend( argbs, isOccluding );
                 argbCursor.get().set( argbIndex );
             }
             catch ( Exception e )
@@ -29,24 +29,54 @@
 package org.embl.mobie.viewer.bdv.render;
 
 import bdv.viewer.SourceAndConverter;
-import bdv.viewer.render.AccumulateProjector;
 import bdv.viewer.render.VolatileProjector;
-import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.util.Intervals;
 import sc.fiji.bdvpg.services.ISourceAndConverterService;
 import sc.fiji.bdvpg.services.SourceAndConverterServices;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 
-public class AccumulateOccludingProjectorARGB extends AccumulateProjector< ARGBType, ARGBType >
+/**
+ * Sums the ARGB values of all sources, where occluding sources
+ * (see {@link BlendingMode#isOccluding}) attenuate the sources
+ * that are drawn before them by their alpha value.
+ *
+ * The blending modes are kept per projector, such that several
+ * viewers with different sources can render concurrently.
+ *
+ * The target is rendered in tiles of {@link #TILE_HEIGHT} rows.
+ * Sources that are fully transparent within a tile, e.g. because
+ * they do not cover it, are skipped for all pixels of that tile.
+ * If the screen images are backed by int arrays, as is the case
+ * for the screen images of BigDataViewer, they are accessed directly.
+ */
+public class AccumulateOccludingProjectorARGB implements VolatileProjector
 {
-	private static BlendingMode[] blendingModes;
-	private static ArrayList< ArrayList< Integer > > isOccludedBy;
-	private static ArrayList< Boolean > isOccluding;
+	public static final int TILE_HEIGHT = 32;
+
+	private final List< VolatileProjector > sourceProjectors;
+	private final List< ? extends RandomAccessible< ? extends ARGBType > > sourceScreenImages;
+	private final RandomAccessibleInterval< ARGBType > target;
+	private final boolean[] isOccluding;
+	private final int numThreads;
+	private final ExecutorService executorService;
+
+	// null if the images are not backed by int arrays of the target size
+	private final int[][] sourceData;
+	private final int[] targetData;
+
+	private volatile boolean interrupted = false;
+	private volatile boolean valid = false;
+	private long lastFrameRenderNanoTime;
 
 	public AccumulateOccludingProjectorARGB(
 			final List< VolatileProjector > sourceProjectors,
@@ -56,16 +86,26 @@ public class AccumulateOccludingProjectorARGB extends AccumulateProjector< ARGBT
 			final int numThreads,
 			final ExecutorService executorService )
 	{
-		super( sourceProjectors, sourceScreenImages, target, numThreads, executorService );
-		blendingModes = getBlendingModes( sources );
-		initOcclusions( blendingModes );
+		this( sourceProjectors, getBlendingModes( sources ), sourceScreenImages, target, numThreads, executorService );
 	}
 
-	public static ArrayList< ArrayList< Integer > > getOcclusions( List< SourceAndConverter< ? > > sacs )
+	public AccumulateOccludingProjectorARGB(
+			final List< VolatileProjector > sourceProjectors,
+			final BlendingMode[] blendingModes,
+			final List< ? extends RandomAccessible< ? extends ARGBType > > sourceScreenImages,
+			final RandomAccessibleInterval< ARGBType > target,
+			final int numThreads,
+			final ExecutorService executorService )
 	{
-		final BlendingMode[] blendingModes = getBlendingModes( sacs );
-		initOcclusions( blendingModes );
-		return isOccludedBy;
+		this.sourceProjectors = sourceProjectors;
+		this.sourceScreenImages = sourceScreenImages;
+		this.target = target;
+		this.isOccluding = isOccluding( blendingModes );
+		this.numThreads = numThreads;
+		this.executorService = executorService;
+
+		targetData = getData( target, target );
+		sourceData = getSourceData( sourceScreenImages, target, targetData );
 	}
 
 	public static BlendingMode[] getBlendingModes( List< SourceAndConverter< ? > > sources )
@@ -85,91 +125,272 @@ public class AccumulateOccludingProjectorARGB extends AccumulateProjector< ARGBT
 		return blendingModes;
 	}
 
-	private static void initOcclusions( BlendingMode[] blendingModes )
+	public static boolean[] isOccluding( BlendingMode[] blendingModes )
 	{
-		isOccluding = new ArrayList();
-
+		final boolean[] isOccluding = new boolean[ blendingModes.length ];
 		for ( int sourceIndex = 0; sourceIndex < blendingModes.length; sourceIndex++ )
+			isOccluding[ sourceIndex ] = BlendingMode.isOccluding( blendingModes[ sourceIndex ] );
+		return isOccluding;
+	}
+
+	/**
+	 * Blends the ARGB values of all sources.
+	 *
+	 * @param argbs
+	 * 			the ARGB value of each source
+	 * @param isOccluding
+	 * 			whether the source at the same index is occluding
+	 */
+	public static int blend( int[] argbs, boolean[] isOccluding )
+	{
+		int rAccu = 0, gAccu = 0, bAccu = 0;
+
+		for ( int sourceIndex = 0; sourceIndex < argbs.length; sourceIndex++ )
 		{
-			isOccluding.add( BlendingMode.isOccluding( blendingModes[ sourceIndex ] ) );
+			final int argb = argbs[ sourceIndex ];
+			final int a = ARGBType.alpha( argb );
+			if ( a == 0 ) continue;
+
+			final double alpha = a / 255.0;
+
+			if ( isOccluding[ sourceIndex ] )
+			{
+				rAccu *= ( 1 - alpha );
+				gAccu *= ( 1 - alpha );
+				bAccu *= ( 1 - alpha );
+			}
+
+			rAccu += ARGBType.red( argb ) * alpha;
+			gAccu += ARGBType.green( argb ) * alpha;
+			bAccu += ARGBType.blue( argb ) * alpha;
 		}
+
+		return toARGB( rAccu, gAccu, bAccu );
 	}
 
 	@Override
-	protected void accumulate(
-			final Cursor< ? extends ARGBType >[] accesses,
-			final ARGBType target )
+	public boolean map()
 	{
-		final int argbIndex = getArgbIndex( accesses, isOccludedBy );
-		target.set( argbIndex );
+		return map( true );
 	}
 
-	public static int getArgbIndex( Cursor< ? extends ARGBType >[] accesses, ArrayList< ArrayList< Integer > > occludedBy )
+	@Override
+	public boolean map( final boolean clearUntouchedTargetPixels )
 	{
-		int aAccu = 0, rAccu = 0, gAccu = 0, bAccu = 0;
-
-		int[] argbs = getARGBs( accesses );
+		interrupted = false;
+		final long startTimeNanos = System.nanoTime();
 
-		for ( int sourceIndex = 0; sourceIndex < accesses.length; sourceIndex++ )
+		boolean valid = true;
+		for ( final VolatileProjector projector : sourceProjectors )
 		{
-			final int argb = argbs[ sourceIndex ];
-			final double alpha = ARGBType.alpha( argb ) / 255.0;
-			if ( alpha == 0 ) continue;
-
-			final int r = ARGBType.red( argb );
-			final int g = ARGBType.green( argb );
-			final int b = ARGBType.blue( argb );
-
-			if ( isOccluding.get( sourceIndex ) )
+			if ( ! projector.isValid() )
 			{
-				rAccu *= (1 - alpha);
-				gAccu *= (1 - alpha);
-				bAccu *= (1 - alpha);
+				if ( ! projector.map( clearUntouchedTargetPixels ) )
+					return false;
+				valid &= projector.isValid();
 			}
+		}
+		this.valid = valid;
 
-			rAccu += r * alpha;
-			gAccu += g * alpha;
-			bAccu += b * alpha;
+		final int height = ( int ) target.dimension( 1 );
+		final ArrayList< Callable< Void > > tasks = new ArrayList<>();
+		for ( int minY = 0; minY < height; minY += TILE_HEIGHT )
+		{
+			final int tileMinY = minY;
+			final int tileMaxY = Math.min( minY + TILE_HEIGHT, height ) - 1;
+			tasks.add( () ->
+			{
+				if ( ! interrupted )
+					accumulateTile( tileMinY, tileMaxY );
+				return null;
+			} );
 		}
 
-		if ( aAccu > 255 )
-			aAccu = 255;
-		if ( rAccu > 255 )
-			rAccu = 255;
-		if ( gAccu > 255 )
-			gAccu = 255;
-		if ( bAccu > 255 )
-			bAccu = 255;
+		try
+		{
+			if ( numThreads > 1 && executorService != null && tasks.size() > 1 )
+				executorService.invokeAll( tasks );
+			else
+				for ( Callable< Void > task : tasks )
+					task.call();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			interrupted = true;
+		}
+		catch ( final Exception e )
+		{
+			throw new RuntimeException( e );
+		}
 
-		return ARGBType.rgba( rAccu, gAccu, bAccu, aAccu );
+		lastFrameRenderNanoTime = System.nanoTime() - startTimeNanos;
+
+		return ! interrupted;
 	}
 
-	private static int occludingAlpha( int[] argbs, ArrayList< Integer > occludingSourceIndices )
+	@Override
+	public void cancel()
 	{
-		// TODO: maybe we have to multiply the (1-alpha) of all the occluding
-		//   sources?! Rather than just return the first one, which
-		//   seems weird anyway?
+		interrupted = true;
+		for ( final VolatileProjector projector : sourceProjectors )
+			projector.cancel();
+	}
 
-		for ( Integer occludingSourceIndex : occludingSourceIndices )
+	@Override
+	public long getLastFrameRenderNanoTime()
+	{
+		return lastFrameRenderNanoTime;
+	}
+
+	@Override
+	public boolean isValid()
+	{
+		return valid;
+	}
+
+	private void accumulateTile( int minY, int maxY )
+	{
+		final int width = ( int ) target.dimension( 0 );
+		final int numSources = sourceScreenImages.size();
+
+		// the sources that are not transparent within this tile
+		final int[] sourceIndices = new int[ numSources ];
+		int numVisibleSources = 0;
+		for ( int sourceIndex = 0; sourceIndex < numSources; sourceIndex++ )
+			if ( ! isTransparent( sourceIndex, width, minY, maxY ) )
+				sourceIndices[ numVisibleSources++ ] = sourceIndex;
+
+		if ( targetData != null && sourceData != null )
+			accumulateData( sourceIndices, numVisibleSources, width, minY, maxY );
+		else
+			accumulateGeneric( sourceIndices, numVisibleSources, width, minY, maxY );
+	}
+
+	private void accumulateData( int[] sourceIndices, int numVisibleSources, int width, int minY, int maxY )
+	{
+		final int[][] data = new int[ numVisibleSources ][];
+		final boolean[] occluding = new boolean[ numVisibleSources ];
+		for ( int i = 0; i < numVisibleSources; i++ )
+		{
+			data[ i ] = sourceData[ sourceIndices[ i ] ];
+			occluding[ i ] = isOccluding[ sourceIndices[ i ] ];
+		}
+
+		final int[] argbs = new int[ numVisibleSources ];
+		final int maxOffset = ( maxY + 1 ) * width;
+		for ( int offset = minY * width; offset < maxOffset; offset++ )
+		{
+			for ( int i = 0; i < numVisibleSources; i++ )
+				argbs[ i ] = data[ i ][ offset ];
+			targetData[ offset ] = blend( argbs, occluding );
+		}
+	}
+
+	private void accumulateGeneric( int[] sourceIndices, int numVisibleSources, int width, int minY, int maxY )
+	{
+		final RandomAccess< ? extends ARGBType >[] accesses = new RandomAccess[ numVisibleSources ];
+		final boolean[] occluding = new boolean[ numVisibleSources ];
+		for ( int i = 0; i < numVisibleSources; i++ )
+		{
+			accesses[ i ] = sourceScreenImages.get( sourceIndices[ i ] ).randomAccess();
+			occluding[ i ] = isOccluding[ sourceIndices[ i ] ];
+		}
+		final RandomAccess< ARGBType > targetAccess = target.randomAccess();
+
+		final int[] argbs = new int[ numVisibleSources ];
+		final long[] position = new long[ 2 ];
+		for ( int y = minY; y <= maxY; y++ )
 		{
-			final int alpha = ARGBType.alpha( argbs[ occludingSourceIndex ] );
+			position[ 0 ] = target.min( 0 );
+			position[ 1 ] = target.min( 1 ) + y;
+			for ( int i = 0; i < numVisibleSources; i++ )
+				accesses[ i ].setPosition( position );
+			targetAccess.setPosition( position );
 
-			if ( alpha > 0 )
+			for ( int x = 0; x < width; x++ )
 			{
-				return alpha;
+				for ( int i = 0; i < numVisibleSources; i++ )
+				{
+					argbs[ i ] = accesses[ i ].get().get();
+					accesses[ i ].fwd( 0 );
+				}
+				targetAccess.get().set( blend( argbs, occluding ) );
+				targetAccess.fwd( 0 );
 			}
 		}
+	}
 
-		return 0;
+	private boolean isTransparent( int sourceIndex, int width, int minY, int maxY )
+	{
+		if ( sourceData != null )
+		{
+			final int[] data = sourceData[ sourceIndex ];
+			final int maxOffset = ( maxY + 1 ) * width;
+			for ( int offset = minY * width; offset < maxOffset; offset++ )
+				if ( ( data[ offset ] & 0xff000000 ) != 0 )
+					return false;
+			return true;
+		}
+		else
+		{
+			final RandomAccess< ? extends ARGBType > access = sourceScreenImages.get( sourceIndex ).randomAccess();
+			for ( int y = minY; y <= maxY; y++ )
+			{
+				access.setPosition( target.min( 0 ), 0 );
+				access.setPosition( target.min( 1 ) + y, 1 );
+				for ( int x = 0; x < width; x++ )
+				{
+					if ( ARGBType.alpha( access.get().get() ) != 0 )
+						return false;
+					access.fwd( 0 );
+				}
+			}
+			return true;
+		}
 	}
 
-	private static int[] getARGBs( Cursor< ? extends ARGBType >[] accesses )
+	private static int toARGB( int r, int g, int b )
 	{
-		int[] argbs = new int[ accesses.length ];
-		for ( int sourceIndex = 0; sourceIndex < accesses.length; sourceIndex++ )
+		if ( r > 255 )
+			r = 255;
+		if ( g > 255 )
+			g = 255;
+		if ( b > 255 )
+			b = 255;
+
+		// the target is opaque, its alpha is not used for rendering
+		return ARGBType.rgba( r, g, b, 0 );
+	}
+
+	private static int[][] getSourceData( List< ? extends RandomAccessible< ? extends ARGBType > > sourceScreenImages, RandomAccessibleInterval< ARGBType > target, int[] targetData )
+	{
+		if ( targetData == null )
+			return null;
+
+		final int[][] sourceData = new int[ sourceScreenImages.size() ][];
+		for ( int sourceIndex = 0; sourceIndex < sourceData.length; sourceIndex++ )
 		{
-			argbs[ sourceIndex ] = accesses[ sourceIndex ].get().get();
+			sourceData[ sourceIndex ] = getData( sourceScreenImages.get( sourceIndex ), target );
+			if ( sourceData[ sourceIndex ] == null )
+				return null;
 		}
-		return argbs;
+		return sourceData;
+	}
+
+	private static int[] getData( RandomAccessible< ? > image, RandomAccessibleInterval< ? > target )
+	{
+		if ( ! ( image instanceof ArrayImg ) )
+			return null;
+
+		final ArrayImg< ?, ? > arrayImg = ( ArrayImg< ?, ? > ) image;
+		if ( arrayImg.numDimensions() != 2 || ! Intervals.equals( arrayImg, target ) )
+			return null;
+
+		final Object access = arrayImg.update( null );
+		if ( ! ( access instanceof IntArray ) )
+			return null;
+
+		return ( ( IntArray ) access ).getCurrentStorageArray();
 	}
 }
@@ -55,6 +55,7 @@ public abstract class AbstractSliceView implements SliceView
 	{
 		for ( SourceAndConverter< ? > sourceAndConverter : display.sourceNameToSourceAndConverter.values() )
 		{
+			sliceViewer.hide( sourceAndConverter );
 			moBIE.closeSourceAndConverter( sourceAndConverter, closeImgLoader );
 		}
 		display.sourceNameToSourceAndConverter.clear();
@@ -71,7 +71,8 @@ public class SegmentationSliceView extends AnnotationSliceView< TableRowImageSeg
 
 	private LabelConverter getLabelConverter( SegmentationDisplay display, SourceAndConverter< ? > sourceAndConverter )
 	{
-		if ( MergedGridSource.instanceOf( sourceAndConverter ) )
+		final MergedGridSource< ? > mergedGridSource = MergedGridSource.unwrap( sourceAndConverter.getSpimSource() );
+		if ( mergedGridSource != null && mergedGridSource.getSourceNameEncoder() != null )
 		{
 			// The source name is not the one from which the
 			// image segments should be fetched.
@@ -79,6 +80,7 @@ public class SegmentationSliceView extends AnnotationSliceView< TableRowImageSeg
 			// is determined from encoding in the label is chosen.
 			return new LabelConverter(
 					display.segmentAdapter,
+					mergedGridSource.getSourceNameEncoder(),
 					display.selectionColoringModel );
 		}
 		else
@@ -92,9 +94,9 @@ public class SegmentationSliceView extends AnnotationSliceView< TableRowImageSeg
 
 	private SourceAndConverter asLabelSourceAndConverter( SourceAndConverter< ? > sourceAndConverter, LabelConverter labelConverter )
 	{
-		LabelSource volatileLabelSource = new LabelSource( sourceAndConverter.asVolatile().getSpimSource() );
-		SourceAndConverter volatileSourceAndConverter = new SourceAndConverter( volatileLabelSource, labelConverter );
 		LabelSource labelSource = new LabelSource( sourceAndConverter.getSpimSource() );
+		LabelSource volatileLabelSource = new LabelSource( sourceAndConverter.asVolatile().getSpimSource(), labelSource );
+		SourceAndConverter volatileSourceAndConverter = new SourceAndConverter( volatileLabelSource, labelConverter );
 		return new SourceAndConverter( labelSource, labelConverter, volatileSourceAndConverter );
 	}
 
@@ -30,6 +30,7 @@ package org.embl.mobie.viewer.bdv.view;
 
 import bdv.util.BdvHandle;
 import bdv.viewer.SourceAndConverter;
+import bdv.viewer.ViewerStateChange;
 import ij.IJ;
 import org.embl.mobie.viewer.MoBIE;
 import org.embl.mobie.viewer.bdv.MobieBdvSupplier;
@@ -38,6 +39,7 @@ import org.embl.mobie.viewer.bdv.SourceNamesRenderer;
 import org.embl.mobie.viewer.bdv.SourcesAtMousePositionSupplier;
 import org.embl.mobie.viewer.bdv.ViewerTransformLogger;
 import org.embl.mobie.viewer.bdv.render.BlendingMode;
+import org.embl.mobie.viewer.cache.CacheManager;
 import org.embl.mobie.viewer.color.OpacityAdjuster;
 import org.embl.mobie.viewer.command.BigWarpRegistrationCommand;
 import org.embl.mobie.viewer.command.ConfigureLabelRenderingCommand;
@@ -50,6 +52,8 @@ import org.embl.mobie.viewer.command.SourceAndConverterBlendingModeChangerComman
 import org.embl.mobie.viewer.display.AbstractSourceDisplay;
 import org.embl.mobie.viewer.segment.SliceViewRegionSelector;
 import org.embl.mobie.viewer.source.SourceHelper;
+import org.embl.mobie.viewer.transform.MergedGridPrefetcher;
+import org.embl.mobie.viewer.transform.MergedGridSource;
 import org.scijava.ui.behaviour.ClickBehaviour;
 import org.scijava.ui.behaviour.io.InputTriggerConfig;
 import org.scijava.ui.behaviour.util.Behaviours;
@@ -62,8 +66,11 @@ import sc.fiji.bdvpg.services.SourceAndConverterServices;
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.embl.mobie.viewer.ui.WindowArrangementHelper.setBdvWindowPositionAndSize;
 
@@ -82,6 +89,7 @@ public class SliceViewer
 	private SourceAndConverterContextMenuClickBehaviour contextMenu;
 	private final SourceAndConverterService sacService;
 	private SourceNamesRenderer sourceNameRenderer;
+	private final Map< SourceAndConverter< ? >, MergedGridPrefetcher > sourceToPrefetcher = new HashMap<>();
 
 	public SliceViewer( MoBIE moBIE, boolean is2D )
 	{
@@ -99,6 +107,18 @@ public class SliceViewer
 		sourceNameRenderer = new SourceNamesRenderer( bdvHandle, moBIE.initiallyShowSourceNames );
 
 		installContextMenuAndKeyboardShortCuts();
+
+		// the cached data of the visible sources is evicted last
+		bdvHandle.getViewerPanel().state().changeListeners().add( change -> {
+			if ( change == ViewerStateChange.VISIBILITY_CHANGED || change == ViewerStateChange.NUM_SOURCES_CHANGED )
+				updateVisibleSources();
+		} );
+	}
+
+	private void updateVisibleSources()
+	{
+		final Set< String > sourceNames = bdvHandle.getViewerPanel().state().getVisibleSources().stream().map( sac -> sac.getSpimSource().getName() ).collect( Collectors.toSet() );
+		CacheManager.getInstance().setVisible( this, sourceNames );
 	}
 
 	public SourceNamesRenderer getSourceNameRenderer()
@@ -219,6 +239,22 @@ public class SliceViewer
 		// show in Bdv
 		SourceAndConverterServices.getBdvDisplayService().show( bdvHandle, display.isVisible(), sourceAndConverter );
 		updateTimepointSlider();
+
+		// prefetch the viewed part of merged grids at the neighbouring timepoints
+		final MergedGridSource< ? > mergedGridSource = MergedGridSource.unwrap( sourceAndConverter.getSpimSource() );
+		if ( mergedGridSource != null )
+		{
+			final MergedGridPrefetcher prefetcher = new MergedGridPrefetcher( bdvHandle.getViewerPanel(), sourceAndConverter.getSpimSource(), mergedGridSource );
+			bdvHandle.getViewerPanel().addTimePointListener( prefetcher );
+			sourceToPrefetcher.put( sourceAndConverter, prefetcher );
+		}
+	}
+
+	public void hide( SourceAndConverter< ? > sourceAndConverter )
+	{
+		final MergedGridPrefetcher prefetcher = sourceToPrefetcher.remove( sourceAndConverter );
+		if ( prefetcher != null )
+			bdvHandle.getViewerPanel().removeTimePointListener( prefetcher );
 	}
 
 	public void updateTimepointSlider( )
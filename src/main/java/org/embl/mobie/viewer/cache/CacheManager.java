@@ -0,0 +1,393 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.cache.img.LoadedCellCacheLoader;
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+
+import java.io.File;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounds the memory of all in-memory caches that MoBIE creates,
+ * e.g. the caches of the merged grids.
+ *
+ * Once the memory budget is exceeded, the least recently used entries
+ * are evicted, starting with the ones of the sources that are not visible.
+ * In contrast to soft reference caches, the memory is released immediately
+ * and not only when the garbage collector runs out of memory.
+ *
+ * The caches are only weakly referenced, such that the memory of images
+ * that are no longer used is released once they are garbage collected.
+ *
+ * The in-memory overviews of merged grids are not accounted for;
+ * they are small and their number is bounded, see {@link org.embl.mobie.viewer.transform.MergedGridSource}.
+ */
+public class CacheManager
+{
+	// evict down to this fraction of the budget, such that not every new entry triggers an eviction
+	private static final double LOW_WATER_MARK = 0.9;
+
+	/**
+	 * The default memory budget: a quarter of the maximum heap size.
+	 */
+	public static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 4;
+
+	/**
+	 * Where the overviews of merged grids are stored if there is no
+	 * disk cache, such that they survive a restart of MoBIE.
+	 */
+	public static final File DEFAULT_OVERVIEW_CACHE_DIRECTORY = new File( System.getProperty( "user.home" ), ".mobie" + File.separator + "overview-cache" );
+
+	public static final long DEFAULT_OVERVIEW_CACHE_MAX_BYTES = 1024L * 1024 * 1024;
+
+	private static final CacheManager instance = new CacheManager( DEFAULT_MAX_BYTES );
+
+	private final long defaultMaxBytes;
+	private volatile long maxBytes;
+	private final AtomicLong usedBytes = new AtomicLong();
+	private final AtomicLong clock = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicBoolean evicting = new AtomicBoolean();
+	private final Set< CacheReference > caches = ConcurrentHashMap.newKeySet();
+	private final ReferenceQueue< ManagedLoaderCache< ?, ? > > collectedCaches = new ReferenceQueue<>();
+	private final Map< CachedCellImg< ?, ? >, ManagedLoaderCache< ?, ? > > imgToCache = Collections.synchronizedMap( new WeakHashMap<>() );
+	private final Map< Object, Long > ownerToMaxBytes = new ConcurrentHashMap<>();
+	private final Map< Object, Set< String > > viewerToVisibleSourceNames = new ConcurrentHashMap<>();
+	private volatile DiskChunkCache diskCache;
+	private DiskChunkCache defaultOverviewCache; // created lazily, guarded by this
+	private boolean defaultOverviewCacheFailed = false; // guarded by this
+
+	/**
+	 * A weak reference to a cache that remembers the memory
+	 * that the cache uses, such that it can be released
+	 * once the cache is garbage collected.
+	 */
+	private static class CacheReference extends WeakReference< ManagedLoaderCache< ?, ? > >
+	{
+		final String sourceName;
+		final AtomicLong usedBytes;
+
+		CacheReference( ManagedLoaderCache< ?, ? > cache, ReferenceQueue< ManagedLoaderCache< ?, ? > > queue )
+		{
+			super( cache, queue );
+			this.sourceName = cache.getSourceName();
+			this.usedBytes = cache.getUsedBytesCounter();
+		}
+	}
+
+	/**
+	 * @param maxBytes
+	 * 			the memory budget, as long as no owner has set one, see {@link #setMaxBytes( Object, long )}
+	 */
+	public CacheManager( long maxBytes )
+	{
+		this.defaultMaxBytes = maxBytes;
+		this.maxBytes = maxBytes;
+	}
+
+	public static CacheManager getInstance()
+	{
+		return instance;
+	}
+
+	public < K, V > ManagedLoaderCache< K, V > createCache( String sourceName, ToLongFunction< V > weigher )
+	{
+		expungeCollectedCaches();
+		final ManagedLoaderCache< K, V > cache = new ManagedLoaderCache<>( this, sourceName, weigher );
+		caches.add( new CacheReference( cache, collectedCaches ) );
+		return cache;
+	}
+
+	/**
+	 * Creates a read-only cell image whose cells are cached by this manager.
+	 * The accesses are volatile, such that the image can be wrapped
+	 * with {@link bdv.util.volatiles.VolatileViews}.
+	 */
+	public < T extends NativeType< T > > CachedCellImg< T, ? > createImg( String sourceName, long[] dimensions, int[] cellDimensions, T type, CellLoader< T > cellLoader )
+	{
+		return createImg( sourceName, new CellGrid( dimensions, cellDimensions ), type, cellLoader );
+	}
+
+	private < T extends NativeType< T >, A extends ArrayDataAccess< A > > CachedCellImg< T, A > createImg( String sourceName, CellGrid grid, T type, CellLoader< T > cellLoader )
+	{
+		final Set< AccessFlags > flags = AccessFlags.setOf( AccessFlags.VOLATILE );
+		final LoadedCellCacheLoader< T, A > cacheLoader = LoadedCellCacheLoader.get( grid, cellLoader, type, flags );
+		final long bytesPerPixel = estimateBytesPerPixel( type );
+		final ManagedLoaderCache< Long, Cell< A > > cache = createCache( sourceName, cell -> cell.size() * bytesPerPixel );
+		final A accessType = ArrayDataAccessFactory.get( type, flags );
+		final CachedCellImg< T, A > img = new CachedCellImg<>( grid, type, cache.withLoader( cacheLoader ), accessType );
+		imgToCache.put( img, cache );
+		return img;
+	}
+
+	/**
+	 * Releases all cached data of an image that was created by {@link #createImg}.
+	 */
+	public void remove( CachedCellImg< ?, ? > img )
+	{
+		final ManagedLoaderCache< ?, ? > cache = imgToCache.remove( img );
+		if ( cache != null )
+			remove( cache );
+	}
+
+	public void remove( ManagedLoaderCache< ?, ? > cache )
+	{
+		caches.removeIf( reference -> reference.get() == cache );
+		cache.invalidateAll();
+	}
+
+	private void expungeCollectedCaches()
+	{
+		CacheReference reference;
+		while ( ( reference = ( CacheReference ) collectedCaches.poll() ) != null )
+		{
+			if ( caches.remove( reference ) )
+				usedBytes.addAndGet( - reference.usedBytes.getAndSet( 0 ) );
+		}
+	}
+
+	/**
+	 * @return the cache on the local disk for data that should
+	 * survive a restart of MoBIE, or null, if there is none
+	 */
+	public DiskChunkCache getDiskCache()
+	{
+		return diskCache;
+	}
+
+	public void setDiskCache( DiskChunkCache diskCache )
+	{
+		this.diskCache = diskCache;
+	}
+
+	/**
+	 * @return the cache on the local disk for the overviews of merged grids:
+	 * the disk cache, if there is one, otherwise a cache in the
+	 * {@link #DEFAULT_OVERVIEW_CACHE_DIRECTORY}; or null, if that cannot be created
+	 */
+	public DiskChunkCache getOverviewCache()
+	{
+		final DiskChunkCache diskCache = this.diskCache;
+		if ( diskCache != null )
+			return diskCache;
+
+		synchronized ( this )
+		{
+			if ( defaultOverviewCache == null && ! defaultOverviewCacheFailed )
+			{
+				try
+				{
+					defaultOverviewCache = new DiskChunkCache( DEFAULT_OVERVIEW_CACHE_DIRECTORY, DEFAULT_OVERVIEW_CACHE_MAX_BYTES );
+				}
+				catch ( RuntimeException e )
+				{
+					System.err.println( "[WARNING] Could not create the overview cache: " + e.getMessage() );
+					defaultOverviewCacheFailed = true;
+				}
+			}
+			return defaultOverviewCache;
+		}
+	}
+
+	/**
+	 * Sets the sources that are visible in a viewer;
+	 * the data of visible sources is evicted last.
+	 */
+	public void setVisible( Object viewer, Collection< String > sourceNames )
+	{
+		if ( sourceNames.isEmpty() )
+			viewerToVisibleSourceNames.remove( viewer );
+		else
+			viewerToVisibleSourceNames.put( viewer, new HashSet<>( sourceNames ) );
+	}
+
+	/**
+	 * Sets the memory budget that an owner, e.g. a MoBIE project, requests.
+	 * As the memory is shared, the largest of the requested budgets is used.
+	 */
+	public void setMaxBytes( Object owner, long maxBytes )
+	{
+		ownerToMaxBytes.put( owner, maxBytes );
+		updateMaxBytes();
+	}
+
+	public void removeMaxBytes( Object owner )
+	{
+		ownerToMaxBytes.remove( owner );
+		updateMaxBytes();
+	}
+
+	private void updateMaxBytes()
+	{
+		maxBytes = ownerToMaxBytes.values().stream().mapToLong( Long::longValue ).max().orElse( defaultMaxBytes );
+		if ( usedBytes.get() > maxBytes )
+			evict();
+	}
+
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	public long getUsedBytes()
+	{
+		expungeCollectedCaches();
+		return usedBytes.get();
+	}
+
+	public long getUsedBytes( String sourceName )
+	{
+		long bytes = 0;
+		for ( CacheReference reference : caches )
+			if ( reference.sourceName.equals( sourceName ) )
+				bytes += reference.usedBytes.get();
+		return bytes;
+	}
+
+	/**
+	 * @return the memory that is used by the caches of each source, in bytes
+	 */
+	public Map< String, Long > getUsedBytesPerSource()
+	{
+		final Map< String, Long > sourceNameToBytes = new TreeMap<>();
+		for ( CacheReference reference : caches )
+			sourceNameToBytes.merge( reference.sourceName, reference.usedBytes.get(), Long::sum );
+		return sourceNameToBytes;
+	}
+
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	public String getStatistics()
+	{
+		return String.format( "Memory cache: %.1f of %.1f MB used, %d evictions.", getUsedBytes() / 1.0E6, maxBytes / 1.0E6, getEvictions() );
+	}
+
+	long tick()
+	{
+		return clock.incrementAndGet();
+	}
+
+	void added( long numBytes )
+	{
+		expungeCollectedCaches();
+		if ( usedBytes.addAndGet( numBytes ) > maxBytes )
+			evict();
+	}
+
+	void removed( long numBytes )
+	{
+		usedBytes.addAndGet( - numBytes );
+	}
+
+	private void evict()
+	{
+		// if another thread is already evicting, there is no need to wait for it
+		if ( ! evicting.compareAndSet( false, true ) ) return;
+
+		try
+		{
+			final Set< String > visibleSourceNames = new HashSet<>();
+			for ( Set< String > sourceNames : viewerToVisibleSourceNames.values() )
+				visibleSourceNames.addAll( sourceNames );
+
+			// invisible sources first, then the visible ones
+			final long targetBytes = ( long ) ( LOW_WATER_MARK * maxBytes );
+			for ( boolean visible : new boolean[]{ false, true } )
+			{
+				while ( usedBytes.get() > targetBytes )
+				{
+					final ManagedLoaderCache< ?, ? > cache = getLeastRecentlyUsed( visibleSourceNames, visible );
+					if ( cache == null || ! cache.evictEldest() ) break;
+					evictions.incrementAndGet();
+				}
+			}
+		}
+		finally
+		{
+			evicting.set( false );
+		}
+	}
+
+	/*
+	 * The caches evict their entries in the order of access,
+	 * thus only their least recently used entries need to be compared.
+	 */
+	private ManagedLoaderCache< ?, ? > getLeastRecentlyUsed( Set< String > visibleSourceNames, boolean visible )
+	{
+		ManagedLoaderCache< ?, ? > leastRecentlyUsed = null;
+		long eldestAccess = Long.MAX_VALUE;
+		for ( CacheReference reference : caches )
+		{
+			if ( visibleSourceNames.contains( reference.sourceName ) != visible ) continue;
+
+			final ManagedLoaderCache< ?, ? > cache = reference.get();
+			if ( cache == null ) continue;
+
+			final long access = cache.getEldestAccess();
+			if ( access < eldestAccess )
+			{
+				eldestAccess = access;
+				leastRecentlyUsed = cache;
+			}
+		}
+		return leastRecentlyUsed;
+	}
+
+	private static long estimateBytesPerPixel( NativeType< ? > type )
+	{
+		if ( type instanceof RealType )
+			return Math.max( 1, ( ( RealType< ? > ) type ).getBitsPerPixel() / 8 );
+		else
+			return 4; // e.g. ARGBType
+	}
+}
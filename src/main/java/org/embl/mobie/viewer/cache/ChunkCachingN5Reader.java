@@ -0,0 +1,109 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.N5Reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wraps an {@link N5Reader} such that all data blocks
+ * are read through a {@link DiskChunkCache}.
+ */
+public class ChunkCachingN5Reader extends DelegatingN5Reader
+{
+	private final DiskChunkCache cache;
+	private final String location;
+
+	public ChunkCachingN5Reader( N5Reader reader, DiskChunkCache cache, String location )
+	{
+		super( reader );
+		this.cache = cache;
+		this.location = location;
+	}
+
+	@Override
+	public DataBlock< ? > readBlock( String pathName, DatasetAttributes datasetAttributes, long... gridPosition ) throws IOException
+	{
+		final String key = DiskChunkCache.createKey( location, pathName, gridPosition );
+
+		final byte[] bytes = cache.get( key );
+		if ( bytes != null )
+		{
+			final DataBlock< ? > dataBlock = deserialize( bytes, datasetAttributes.getDataType(), gridPosition );
+			if ( dataBlock != null )
+				return dataBlock;
+		}
+
+		final DataBlock< ? > dataBlock = reader.readBlock( pathName, datasetAttributes, gridPosition );
+		if ( dataBlock != null )
+			cache.put( key, serialize( dataBlock ) );
+		return dataBlock;
+	}
+
+	/*
+	 * Layout: number of dimensions, block size, number of elements, data.
+	 */
+	private static byte[] serialize( DataBlock< ? > dataBlock )
+	{
+		final int[] size = dataBlock.getSize();
+		final ByteBuffer data = dataBlock.toByteBuffer();
+		final ByteBuffer buffer = ByteBuffer.allocate( 4 * ( size.length + 2 ) + data.remaining() );
+		buffer.putInt( size.length );
+		for ( int s : size )
+			buffer.putInt( s );
+		buffer.putInt( dataBlock.getNumElements() );
+		buffer.put( data );
+		return buffer.array();
+	}
+
+	private static DataBlock< ? > deserialize( byte[] bytes, DataType dataType, long[] gridPosition )
+	{
+		try
+		{
+			final ByteBuffer buffer = ByteBuffer.wrap( bytes );
+			final int[] size = new int[ buffer.getInt() ];
+			for ( int d = 0; d < size.length; d++ )
+				size[ d ] = buffer.getInt();
+			final int numElements = buffer.getInt();
+			final DataBlock< ? > dataBlock = dataType.createDataBlock( size, gridPosition, numElements );
+			dataBlock.readData( buffer.slice() );
+			return dataBlock;
+		}
+		catch ( Exception e )
+		{
+			// corrupt or incompatible cache entry, fetch from the original location
+			return null;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import mpicbg.spim.data.sequence.ImgLoader;
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.N5Reader;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Base class for {@link N5Reader} decorators that only
+ * change how data blocks are read.
+ */
+public abstract class DelegatingN5Reader implements N5Reader
+{
+	protected final N5Reader reader;
+
+	public DelegatingN5Reader( N5Reader reader )
+	{
+		this.reader = reader;
+	}
+
+	/**
+	 * Replaces the {@link N5Reader} fields of an image loader by decorated readers.
+	 * This must be called before the image loader has loaded any data.
+	 *
+	 * Fields whose declared type cannot hold the decorated reader,
+	 * e.g. fields of a concrete reader class, are left as they are.
+	 *
+	 * @return true if a reader was found and replaced
+	 */
+	public static boolean install( ImgLoader imgLoader, UnaryOperator< N5Reader > decorator )
+	{
+		boolean installed = false;
+		Class< ? > clazz = imgLoader.getClass();
+		while ( clazz != null && ! clazz.equals( Object.class ) )
+		{
+			for ( Field field : clazz.getDeclaredFields() )
+			{
+				if ( Modifier.isStatic( field.getModifiers() ) ) continue;
+				if ( field.getType().isPrimitive() ) continue;
+				if ( ! field.getType().isAssignableFrom( N5Reader.class ) && ! N5Reader.class.isAssignableFrom( field.getType() ) ) continue;
+
+				try
+				{
+					field.setAccessible( true );
+					final Object value = field.get( imgLoader );
+					if ( ! ( value instanceof N5Reader ) ) continue;
+					final N5Reader decorated = decorator.apply( ( N5Reader ) value );
+					if ( ! field.getType().isInstance( decorated ) ) continue;
+					field.set( imgLoader, decorated );
+					installed = true;
+				}
+				catch ( Exception e )
+				{
+					System.err.println( "[WARNING] Could not decorate the N5Reader of " + imgLoader.getClass().getSimpleName() + ": " + e.getMessage() );
+				}
+			}
+			clazz = clazz.getSuperclass();
+		}
+		return installed;
+	}
+
+	public N5Reader getReader()
+	{
+		return reader;
+	}
+
+	@Override
+	public DataBlock< ? > readBlock( String pathName, DatasetAttributes datasetAttributes, long... gridPosition ) throws IOException
+	{
+		return reader.readBlock( pathName, datasetAttributes, gridPosition );
+	}
+
+	@Override
+	public < T > T getAttribute( String pathName, String key, Class< T > clazz ) throws IOException
+	{
+		return reader.getAttribute( pathName, key, clazz );
+	}
+
+	@Override
+	public < T > T getAttribute( String pathName, String key, Type type ) throws IOException
+	{
+		return reader.getAttribute( pathName, key, type );
+	}
+
+	@Override
+	public DatasetAttributes getDatasetAttributes( String pathName ) throws IOException
+	{
+		return reader.getDatasetAttributes( pathName );
+	}
+
+	@Override
+	public Version getVersion() throws IOException
+	{
+		return reader.getVersion();
+	}
+
+	@Override
+	public boolean exists( String pathName )
+	{
+		return reader.exists( pathName );
+	}
+
+	@Override
+	public boolean datasetExists( String pathName ) throws IOException
+	{
+		return reader.datasetExists( pathName );
+	}
+
+	@Override
+	public String[] list( String pathName ) throws IOException
+	{
+		return reader.list( pathName );
+	}
+
+	@Override
+	public Map< String, Class< ? > > listAttributes( String pathName ) throws IOException
+	{
+		return reader.listAttributes( pathName );
+	}
+}
@@ -0,0 +1,321 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded, persistent cache of image chunks on the local disk.
+ *
+ * Chunks are stored as one file per chunk; the file name is a hash of
+ * the storage location and the chunk coordinates. The least recently
+ * used chunks are deleted once the cache exceeds its size limit.
+ * As the access order is stored in the modification time of the files,
+ * the cache survives restarts of MoBIE.
+ */
+public class DiskChunkCache
+{
+	private static final String SUFFIX = ".chunk";
+	private static final long TOUCH_INTERVAL_MILLIS = 60 * 1000;
+
+	private final File directory;
+	private final long maxBytes;
+
+	// access ordered, i.e. the first entry is the least recently used one
+	private final LinkedHashMap< String, Entry > fileNameToEntry = new LinkedHashMap<>( 16, 0.75f, true );
+	private long usedBytes = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static class Entry
+	{
+		final long numBytes;
+		long lastTouchedMillis;
+
+		Entry( long numBytes, long lastTouchedMillis )
+		{
+			this.numBytes = numBytes;
+			this.lastTouchedMillis = lastTouchedMillis;
+		}
+	}
+
+	public DiskChunkCache( File directory, long maxBytes )
+	{
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		directory.mkdirs();
+		if ( ! directory.isDirectory() )
+			throw new RuntimeException( "Could not create chunk cache directory: " + directory );
+		indexExistingChunks();
+	}
+
+	public static String createKey( String location, String dataset, long[] gridPosition )
+	{
+		return location + "|" + dataset + "|" + Arrays.toString( gridPosition );
+	}
+
+	/**
+	 * @param key
+	 * 			the chunk key, see {@link #createKey}
+	 * @return the cached bytes, or null if the chunk is not cached
+	 */
+	public byte[] get( String key )
+	{
+		final String fileName = toFileName( key );
+		final boolean touch;
+		synchronized ( this )
+		{
+			final Entry entry = fileNameToEntry.get( fileName );
+			if ( entry == null )
+			{
+				misses.incrementAndGet();
+				return null;
+			}
+
+			final long currentTimeMillis = System.currentTimeMillis();
+			touch = currentTimeMillis - entry.lastTouchedMillis > TOUCH_INTERVAL_MILLIS;
+			if ( touch )
+				entry.lastTouchedMillis = currentTimeMillis;
+		}
+
+		final File file = toFile( fileName );
+		try
+		{
+			final byte[] bytes = Files.readAllBytes( file.toPath() );
+			if ( touch )
+				file.setLastModified( System.currentTimeMillis() );
+			hits.incrementAndGet();
+			return bytes;
+		}
+		catch ( IOException e )
+		{
+			// the file may have been removed by another process
+			remove( fileName );
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	public void put( String key, byte[] bytes )
+	{
+		if ( bytes.length > maxBytes )
+			return;
+
+		final String fileName = toFileName( key );
+		final File file = toFile( fileName );
+
+		try
+		{
+			file.getParentFile().mkdirs();
+			final File tmp = new File( file.getParentFile(), fileName + "." + Thread.currentThread().getId() + ".tmp" );
+			Files.write( tmp.toPath(), bytes );
+			try
+			{
+				Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+			}
+			catch ( IOException e )
+			{
+				Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+			}
+		}
+		catch ( IOException e )
+		{
+			System.err.println( "[WARNING] Could not write chunk to cache: " + file );
+			return;
+		}
+
+		final List< String > evicted;
+		synchronized ( this )
+		{
+			final Entry previous = fileNameToEntry.put( fileName, new Entry( bytes.length, System.currentTimeMillis() ) );
+			if ( previous != null )
+				usedBytes -= previous.numBytes;
+			usedBytes += bytes.length;
+			evicted = evict();
+		}
+
+		delete( evicted );
+	}
+
+	public synchronized void clear()
+	{
+		final ArrayList< String > fileNames = new ArrayList<>( fileNameToEntry.keySet() );
+		fileNameToEntry.clear();
+		usedBytes = 0;
+		delete( fileNames );
+	}
+
+	public synchronized long getUsedBytes()
+	{
+		return usedBytes;
+	}
+
+	public synchronized int getNumChunks()
+	{
+		return fileNameToEntry.size();
+	}
+
+	public long getMaxBytes()
+	{
+		return maxBytes;
+	}
+
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	public String getStatistics()
+	{
+		final long hits = getHits();
+		final long misses = getMisses();
+		final long requests = hits + misses;
+		final double hitRate = requests == 0 ? 0 : 100.0 * hits / requests;
+		return String.format( "Chunk cache %s: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d chunks, %.1f of %.1f MB used.",
+				directory.getAbsolutePath(), hits, misses, hitRate, getEvictions(), getNumChunks(), getUsedBytes() / 1.0E6, maxBytes / 1.0E6 );
+	}
+
+	// must be called while holding the lock
+	private List< String > evict()
+	{
+		final ArrayList< String > evicted = new ArrayList<>();
+		final Iterator< Map.Entry< String, Entry > > iterator = fileNameToEntry.entrySet().iterator();
+		while ( usedBytes > maxBytes && iterator.hasNext() )
+		{
+			final Map.Entry< String, Entry > eldest = iterator.next();
+			usedBytes -= eldest.getValue().numBytes;
+			evicted.add( eldest.getKey() );
+			iterator.remove();
+			evictions.incrementAndGet();
+		}
+		return evicted;
+	}
+
+	private synchronized void remove( String fileName )
+	{
+		final Entry entry = fileNameToEntry.remove( fileName );
+		if ( entry != null )
+			usedBytes -= entry.numBytes;
+	}
+
+	private void delete( List< String > fileNames )
+	{
+		for ( String fileName : fileNames )
+			toFile( fileName ).delete();
+	}
+
+	private void indexExistingChunks()
+	{
+		final ArrayList< File > files = new ArrayList<>();
+		final File[] subDirectories = directory.listFiles( File::isDirectory );
+		if ( subDirectories == null ) return;
+
+		for ( File subDirectory : subDirectories )
+		{
+			final File[] chunkFiles = subDirectory.listFiles();
+			if ( chunkFiles == null ) continue;
+			for ( File file : chunkFiles )
+			{
+				if ( file.getName().endsWith( SUFFIX ) )
+					files.add( file );
+				else if ( file.getName().endsWith( ".tmp" ) )
+					file.delete(); // left over from an interrupted write
+			}
+		}
+
+		// least recently used first
+		files.sort( Comparator.comparingLong( File::lastModified ) );
+
+		final List< String > evicted;
+		synchronized ( this )
+		{
+			for ( File file : files )
+			{
+				final long length = file.length();
+				fileNameToEntry.put( file.getName(), new Entry( length, file.lastModified() ) );
+				usedBytes += length;
+			}
+			evicted = evict();
+		}
+		delete( evicted );
+	}
+
+	private File toFile( String fileName )
+	{
+		return new File( new File( directory, fileName.substring( 0, 2 ) ), fileName );
+	}
+
+	private static String toFileName( String key )
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+			final byte[] hash = digest.digest( key.getBytes( StandardCharsets.UTF_8 ) );
+			final StringBuilder builder = new StringBuilder( 2 * hash.length + SUFFIX.length() );
+			for ( byte b : hash )
+				builder.append( String.format( "%02x", b ) );
+			return builder.append( SUFFIX ).toString();
+		}
+		catch ( NoSuchAlgorithmException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import org.embl.mobie.viewer.AdaptiveConcurrencyLimiter;
+import org.embl.mobie.viewer.MultiThreading;
+import org.janelia.saalfeldlab.n5.DataBlock;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.N5Reader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Wraps an {@link N5Reader} such that the number of data blocks
+ * that are concurrently read from one storage backend is limited.
+ *
+ * @see MultiThreading#getFetchLimiter(String)
+ */
+public class FetchLimitingN5Reader extends DelegatingN5Reader
+{
+	private final String backend;
+
+	public FetchLimitingN5Reader( N5Reader reader, String backend )
+	{
+		super( reader );
+		this.backend = backend;
+	}
+
+	@Override
+	public DataBlock< ? > readBlock( String pathName, DatasetAttributes datasetAttributes, long... gridPosition ) throws IOException
+	{
+		final AdaptiveConcurrencyLimiter limiter = MultiThreading.getFetchLimiter( backend );
+		try
+		{
+			limiter.acquire();
+		}
+		catch ( InterruptedException e )
+		{
+			throw new InterruptedIOException( "Interrupted while waiting to fetch " + pathName );
+		}
+
+		final long start = System.nanoTime();
+		boolean success = false;
+		try
+		{
+			final DataBlock< ? > dataBlock = reader.readBlock( pathName, datasetAttributes, gridPosition );
+			success = true;
+			return dataBlock;
+		}
+		finally
+		{
+			limiter.release( System.nanoTime() - start, success );
+		}
+	}
+}
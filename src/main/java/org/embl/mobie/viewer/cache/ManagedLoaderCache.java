@@ -0,0 +1,285 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import net.imglib2.cache.CacheLoader;
+import net.imglib2.cache.LoaderCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A cache with hard references, whose entries are evicted
+ * by the {@link CacheManager} once its memory budget is used up.
+ *
+ * Concurrent requests for the same key are only loaded once.
+ */
+public class ManagedLoaderCache< K, V > implements LoaderCache< K, V >
+{
+	private final CacheManager cacheManager;
+	private final String sourceName;
+	private final ToLongFunction< V > weigher;
+	private final ConcurrentHashMap< K, Entry< V > > keyToEntry = new ConcurrentHashMap<>();
+	private final AtomicLong usedBytes = new AtomicLong();
+
+	// the loaded entries, in the order in which they were accessed; guarded by itself
+	private final LinkedHashMap< K, Entry< V > > leastRecentlyUsed = new LinkedHashMap<>( 16, 0.75f, true );
+
+	static class Entry< V >
+	{
+		final CompletableFuture< V > value = new CompletableFuture<>();
+		long lastAccess; // guarded by leastRecentlyUsed
+		volatile long numBytes = -1; // unknown, while loading
+		boolean accounted = false; // guarded by the entry
+	}
+
+	/**
+	 * @param sourceName
+	 * 			the name of the source whose data is cached, used for the
+	 * 			memory statistics and to prioritise the visible sources
+	 * @param weigher
+	 * 			estimates the memory that a value occupies, in bytes
+	 */
+	ManagedLoaderCache( CacheManager cacheManager, String sourceName, ToLongFunction< V > weigher )
+	{
+		this.cacheManager = cacheManager;
+		this.sourceName = sourceName;
+		this.weigher = weigher;
+	}
+
+	public String getSourceName()
+	{
+		return sourceName;
+	}
+
+	public long getUsedBytes()
+	{
+		return usedBytes.get();
+	}
+
+	/**
+	 * The memory that is used by this cache; the {@link CacheManager}
+	 * holds on to it, such that it can release the memory of caches
+	 * that were garbage collected.
+	 */
+	AtomicLong getUsedBytesCounter()
+	{
+		return usedBytes;
+	}
+
+	public int size()
+	{
+		return keyToEntry.size();
+	}
+
+	public V getIfPresent( K key )
+	{
+		final Entry< V > entry = keyToEntry.get( key );
+		if ( entry == null || ! entry.value.isDone() || entry.value.isCompletedExceptionally() )
+			return null;
+
+		accessed( key );
+		return entry.value.getNow( null );
+	}
+
+	public V get( K key, CacheLoader< ? super K, ? extends V > loader ) throws ExecutionException
+	{
+		Entry< V > entry = keyToEntry.get( key );
+		if ( entry == null )
+		{
+			final Entry< V > newEntry = new Entry<>();
+			entry = keyToEntry.putIfAbsent( key, newEntry );
+			if ( entry == null )
+			{
+				entry = newEntry;
+				load( key, newEntry, loader );
+			}
+		}
+
+		accessed( key );
+		try
+		{
+			return entry.value.get();
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new ExecutionException( e );
+		}
+	}
+
+	private void load( K key, Entry< V > entry, CacheLoader< ? super K, ? extends V > loader )
+	{
+		final V value;
+		try
+		{
+			value = loader.get( key );
+		}
+		catch ( Exception e )
+		{
+			// do not cache failures, the next request will try again
+			keyToEntry.remove( key, entry );
+			entry.value.completeExceptionally( e );
+			return;
+		}
+
+		final long numBytes = weigher.applyAsLong( value );
+		final boolean accounted;
+		synchronized ( entry )
+		{
+			entry.numBytes = numBytes;
+			// the entry may have been invalidated while it was loading
+			accounted = keyToEntry.get( key ) == entry;
+			entry.accounted = accounted;
+			if ( accounted )
+			{
+				usedBytes.addAndGet( numBytes );
+				synchronized ( leastRecentlyUsed )
+				{
+					entry.lastAccess = cacheManager.tick();
+					leastRecentlyUsed.put( key, entry );
+				}
+			}
+		}
+		entry.value.complete( value );
+
+		if ( accounted )
+			cacheManager.added( numBytes );
+	}
+
+	private void accessed( K key )
+	{
+		synchronized ( leastRecentlyUsed )
+		{
+			// moves the entry to the end of the access order, if it is loaded
+			final Entry< V > entry = leastRecentlyUsed.get( key );
+			if ( entry != null )
+				entry.lastAccess = cacheManager.tick();
+		}
+	}
+
+	/**
+	 * @return the time of the access to the least recently used entry,
+	 * in ticks of the {@link CacheManager}, or {@code Long.MAX_VALUE} if no entry is loaded
+	 */
+	long getEldestAccess()
+	{
+		synchronized ( leastRecentlyUsed )
+		{
+			final Iterator< Entry< V > > iterator = leastRecentlyUsed.values().iterator();
+			return iterator.hasNext() ? iterator.next().lastAccess : Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entry; used by the {@link CacheManager}.
+	 *
+	 * @return false, if no entry is loaded
+	 */
+	boolean evictEldest()
+	{
+		final K key;
+		synchronized ( leastRecentlyUsed )
+		{
+			final Iterator< K > iterator = leastRecentlyUsed.keySet().iterator();
+			if ( ! iterator.hasNext() ) return false;
+			key = iterator.next();
+		}
+		invalidate( key );
+		return true;
+	}
+
+	public void persist( K key )
+	{
+		// nothing is persisted
+	}
+
+	public void persistIf( Predicate< K > condition )
+	{
+		// nothing is persisted
+	}
+
+	public void persistAll()
+	{
+		// nothing is persisted
+	}
+
+	public void invalidate( K key )
+	{
+		final Entry< V > entry = keyToEntry.remove( key );
+		if ( entry == null ) return;
+
+		final boolean accounted;
+		synchronized ( entry )
+		{
+			accounted = entry.accounted;
+			entry.accounted = false;
+			if ( accounted )
+			{
+				usedBytes.addAndGet( - entry.numBytes );
+				synchronized ( leastRecentlyUsed )
+				{
+					leastRecentlyUsed.remove( key, entry );
+				}
+			}
+		}
+
+		if ( accounted )
+			cacheManager.removed( entry.numBytes );
+	}
+
+	public void invalidateIf( long parallelismThreshold, Predicate< K > condition )
+	{
+		invalidateIf( condition );
+	}
+
+	public void invalidateIf( Predicate< K > condition )
+	{
+		for ( K key : keyToEntry.keySet() )
+			if ( condition.test( key ) )
+				invalidate( key );
+	}
+
+	public void invalidateAll( long parallelismThreshold )
+	{
+		invalidateAll();
+	}
+
+	public void invalidateAll()
+	{
+		for ( K key : keyToEntry.keySet() )
+			invalidate( key );
+	}
+}
@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.color;
+
+import net.imglib2.type.numeric.ARGBType;
+
+/**
+ * A lossy cache of the final ARGB colour of labels, such that
+ * rendering a pixel usually is a single array lookup.
+ *
+ * The cache is direct mapped: each key is hashed to one slot and a
+ * colliding key simply replaces the entry. Entries are immutable,
+ * such that render threads can read and write the cache without locks.
+ *
+ * Each entry stores the version of the colouring with which it was
+ * computed, and entries of other versions are ignored. Thus, the
+ * version must change whenever the colours may have changed, and it
+ * must be fetched before computing a colour that is put into the cache,
+ * such that colours of an outdated colouring are not cached.
+ */
+public class ColorCache
+{
+	private final Entry[] entries;
+	private final int shift;
+
+	private static class Entry
+	{
+		final long key;
+		final int timepoint;
+		final int version;
+		final int argb;
+
+		Entry( long key, int timepoint, int version, int argb )
+		{
+			this.key = key;
+			this.timepoint = timepoint;
+			this.version = version;
+			this.argb = argb;
+		}
+	}
+
+	public ColorCache()
+	{
+		this( 1 << 14 );
+	}
+
+	/**
+	 * @param size
+	 * 			the number of cached colours, will be rounded up to a power of two
+	 */
+	public ColorCache( int size )
+	{
+		final int numSlots = Integer.highestOneBit( Math.max( 1, size - 1 ) << 1 );
+		entries = new Entry[ numSlots ];
+		shift = 64 - Integer.numberOfTrailingZeros( numSlots );
+	}
+
+	/**
+	 * @return whether the colour was cached, in which case it is set to the output
+	 */
+	public boolean get( long key, int timepoint, int version, ARGBType output )
+	{
+		final Entry entry = entries[ slot( key, timepoint ) ];
+		if ( entry == null
+				|| entry.key != key
+				|| entry.timepoint != timepoint
+				|| entry.version != version )
+			return false;
+
+		output.set( entry.argb );
+		return true;
+	}
+
+	/**
+	 * @param version
+	 * 			the version of the colouring before the colour was computed
+	 */
+	public void put( long key, int timepoint, int version, int argb )
+	{
+		entries[ slot( key, timepoint ) ] = new Entry( key, timepoint, version, argb );
+	}
+
+	// Fibonacci hashing, which spreads consecutive labels over all slots
+	private int slot( long key, int timepoint )
+	{
+		final long hash = ( key + 31L * timepoint ) * 0x9E3779B97F4A7C15L;
+		return ( int ) ( hash >>> shift );
+	}
+}
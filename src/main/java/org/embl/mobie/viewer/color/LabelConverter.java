@@ -29,13 +29,13 @@
 package org.embl.mobie.viewer.color;
 
 import bdv.viewer.TimePointListener;
-import net.imglib2.type.volatiles.VolatileUnsignedIntType;
 import org.embl.mobie.viewer.SourceNameEncoder;
 import org.embl.mobie.viewer.segment.SegmentAdapter;
 import de.embl.cba.tables.imagesegment.ImageSegment;
 import net.imglib2.Volatile;
 import net.imglib2.converter.Converter;
 import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
 
 import static net.imglib2.type.numeric.ARGBType.alpha;
@@ -47,17 +47,23 @@ public class LabelConverter< S extends ImageSegment > implements Converter< Real
 {
 	private final SegmentAdapter< S > segmentAdapter;
 	private final String imageId;
+	private final SourceNameEncoder sourceNameEncoder;
 	private final SelectionColoringModel< S > coloringModel;
 
-	private int timePointIndex = 0;
-	private double opacity = 1.0;
+	private final ColorCache colorCache = new ColorCache();
+
+	private volatile int timePointIndex = 0;
+	private volatile double opacity = 1.0;
+	private volatile int opacityVersion = 0;
 
 	public LabelConverter(
 			SegmentAdapter< S > segmentAdapter,
+			SourceNameEncoder sourceNameEncoder,
 			SelectionColoringModel< S > coloringModel )
 	{
 		this.segmentAdapter = segmentAdapter;
 		this.imageId = null; // No imageId given => decode from pixel value
+		this.sourceNameEncoder = sourceNameEncoder;
 		this.coloringModel = coloringModel;
 	}
 
@@ -68,6 +74,7 @@ public class LabelConverter< S extends ImageSegment > implements Converter< Real
 	{
 		this.segmentAdapter = segmentAdapter;
 		this.imageId = imageId;
+		this.sourceNameEncoder = null;
 		this.coloringModel = coloringModel;
 	}
 
@@ -83,9 +90,14 @@ public class LabelConverter< S extends ImageSegment > implements Converter< Real
 			}
 		}
 
+		// fetch the version before computing the colour,
+		// such that colours of an outdated colouring are not cached
+		final int version = getVersion();
+
 		if ( imageId == null )
 		{
-			final long labelId = SourceNameEncoder.getValue( ( VolatileUnsignedIntType ) label );
+			final long encodedLabel = getEncodedLabel( label );
+			final long labelId = sourceNameEncoder.getValue( encodedLabel );
 
 			if ( labelId == 0 )
 			{
@@ -93,9 +105,14 @@ public class LabelConverter< S extends ImageSegment > implements Converter< Real
 				return;
 			}
 
-			final String imageId = SourceNameEncoder.getName( ( VolatileUnsignedIntType ) label );
+			if ( colorCache.get( encodedLabel, timePointIndex, version, color ) )
+				return;
+
+			final String imageId = sourceNameEncoder.getName( encodedLabel );
 			S segment = segmentAdapter.getSegment( labelId, timePointIndex, imageId );
 			setColorBySegment( color, segment );
+			if ( segment != null )
+				colorCache.put( encodedLabel, timePointIndex, version, color.get() );
 		}
 		else
 		{
@@ -107,13 +124,41 @@ public class LabelConverter< S extends ImageSegment > implements Converter< Real
 				return;
 			}
 
+			final long key = Double.doubleToRawLongBits( labelId );
+			if ( colorCache.get( key, timePointIndex, version, color ) )
+				return;
+
 			final S segment = segmentAdapter.getSegment( labelId, timePointIndex, imageId );
 			setColorBySegment( color, segment );
+			if ( segment != null )
+				colorCache.put( key, timePointIndex, version, color.get() );
 		}
 	}
 
+	private int getVersion()
+	{
+		return coloringModel.getVersion() + opacityVersion;
+	}
+
+	// uint64 labels do not fit into a double without loss
+	public static long getEncodedLabel( RealType label )
+	{
+		final Object type = label instanceof Volatile ? ( ( Volatile ) label ).get() : label;
+		if ( type instanceof IntegerType )
+			return ( ( IntegerType ) type ).getIntegerLong();
+		else
+			return ( long ) label.getRealDouble();
+	}
+
 	private void setColorBySegment( ARGBType color, S imageSegment )
 	{
+		if ( imageSegment == null )
+		{
+			// the table of this segment is not (yet) loaded
+			color.set( 0 );
+			return;
+		}
+
 		coloringModel.convert( imageSegment, color );
 		final int value = color.get();
 		//final int alpha = alpha( value );
@@ -132,6 +177,7 @@ public class LabelConverter< S extends ImageSegment > implements Converter< Real
 	public void setOpacity( double opacity )
 	{
 		this.opacity = opacity;
+		opacityVersion++;
 	}
 
 	@Override
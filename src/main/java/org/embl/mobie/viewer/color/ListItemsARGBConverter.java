@@ -42,7 +42,9 @@ public class ListItemsARGBConverter< T > implements Converter< RealType, ARGBTyp
 	private final SelectionColoringModel< T > coloringModel;
 	private final List< T > list;
 	private int backgroundARGBIndex; // default, background color
-	private double opacity = 0.5;
+	private volatile double opacity = 0.5;
+	private volatile int opacityVersion = 0;
+	private final ColorCache colorCache = new ColorCache();
 
 	public ListItemsARGBConverter(
 			List< T > list,
@@ -73,6 +75,12 @@ public class ListItemsARGBConverter< T > implements Converter< RealType, ARGBTyp
 			return;
 		}
 
+		// fetch the version before computing the colour,
+		// such that colours of an outdated colouring are not cached
+		final int version = coloringModel.getVersion() + opacityVersion;
+		if ( colorCache.get( index, 0, version, color ) )
+			return;
+
 		final T item = list.get( index );
 
 		if ( item == null )
@@ -84,12 +92,14 @@ public class ListItemsARGBConverter< T > implements Converter< RealType, ARGBTyp
 			coloringModel.convert( item, color );
 		}
 		OpacityAdjuster.adjustAlpha( color, opacity );
+		colorCache.put( index, 0, version, color.get() );
 	}
 
 	@Override
 	public void setOpacity( double opacity )
 	{
 		this.opacity = opacity;
+		opacityVersion++;
 	}
 
 	@Override
@@ -40,6 +40,7 @@ public class SelectionColoringModel< T > extends AbstractColoringModel< T >
 
 	private ARGBType selectionColor;
 	private double opacityNotSelected;
+	private volatile int version = 0;
 
 	public SelectionColoringModel( ColoringModel< T > coloringModel, SelectionModel< T > selectionModel )
 	{
@@ -66,8 +67,6 @@ public class SelectionColoringModel< T > extends AbstractColoringModel< T >
 
 		if ( selectionModel == null ) return;
 
-		// TODO: this is very inefficient as it recomputes the colors all the time
-		//   implement a selectionChanged Listener!
 		if ( selectionModel.isEmpty() ) return;
 
 		final boolean isSelected = selectionModel.isSelected( input );
@@ -98,6 +97,7 @@ public class SelectionColoringModel< T > extends AbstractColoringModel< T >
 	public void setSelectionColor( ARGBType selectionColor )
 	{
 		this.selectionColor = selectionColor;
+		version++;
 		notifyColoringListeners();
 	}
 
@@ -110,8 +110,35 @@ public class SelectionColoringModel< T > extends AbstractColoringModel< T >
 
 	private void notifyListeners()
 	{
+		version++;
 		notifyColoringListeners();
-		coloringModel.listeners().add( () -> notifyColoringListeners() );
+		coloringModel.listeners().add( () -> {
+			version++;
+			notifyColoringListeners();
+		} );
+	}
+
+	/**
+	 * Notifies the listeners that rows have been added, e.g. of tables
+	 * that were loaded after this model was created, such that the
+	 * colours of the new rows are shown.
+	 */
+	public void tableRowsAdded()
+	{
+		version++;
+		notifyColoringListeners();
+	}
+
+	/**
+	 * @return a number that changes whenever the colours
+	 * that this model assigns may have changed
+	 */
+	public int getVersion()
+	{
+		if ( selectionModel == null )
+			return version;
+		else
+			return version + selectionModel.getVersion();
 	}
 
 	public ColoringModel< T > getWrappedColoringModel()
@@ -28,6 +28,7 @@
  */
 package org.embl.mobie.viewer.display;
 
+import org.embl.mobie.viewer.TaskGroup;
 import org.embl.mobie.viewer.bdv.view.AnnotationSliceView;
 import org.embl.mobie.viewer.segment.SegmentAdapter;
 import org.embl.mobie.viewer.bdv.view.SegmentationSliceView;
@@ -48,6 +49,7 @@ public class SegmentationDisplay extends AnnotationDisplay< TableRowImageSegment
 	public transient SegmentAdapter< TableRowImageSegment > segmentAdapter;
 	public transient SegmentsVolumeViewer< TableRowImageSegment > segmentsVolumeViewer;
 	public transient SegmentationSliceView sliceView;
+	public transient TaskGroup tableLoading;
 
 	@Override
 	public AnnotationSliceView< ? > getSliceView()
@@ -33,6 +33,7 @@ import bdv.viewer.TimePointListener;
 import de.embl.cba.bdv.utils.BdvUtils;
 import de.embl.cba.bdv.utils.popup.BdvPopupMenus;
 import org.embl.mobie.viewer.TableColumnNames;
+import org.embl.mobie.viewer.EventDispatcher;
 import org.embl.mobie.viewer.VisibilityListener;
 import de.embl.cba.tables.color.ColoringListener;
 import de.embl.cba.tables.color.ColoringModel;
@@ -93,7 +94,8 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 	private Window window;
 	private NearestNeighborSearchOnKDTree< T > nearestNeighborSearchOnKDTree;
 	private BdvStackSource< ARGBType > scatterPlotSource;
-	private int currentTimepoint;
+	private volatile int currentTimepoint;
+	private int plottedTimepoint; // only accessed on the event dispatch thread
 	private List< VisibilityListener > listeners = new ArrayList<>(  );
 	private boolean showColumnSelectionUI = true;
 	private RadiusNeighborSearchOnKDTree< T > radiusNeighborSearchOnKDTree;
@@ -143,6 +145,24 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 		}
 	}
 
+	/**
+	 * Rebuilds the plot after rows have been added to the table rows.
+	 * Must be called on the event dispatch thread.
+	 */
+	public void tableRowsAdded()
+	{
+		if ( window == null ) return;
+
+		replaceScatterPlotSource();
+	}
+
+	private void replaceScatterPlotSource()
+	{
+		if ( scatterPlotSource != null )
+			scatterPlotSource.removeFromBdv();
+		updateScatterPlotSource();
+	}
+
 	private String[] getColumnNames()
 	{
 		return tableRows.get( 0 ).getColumnNames().stream().toArray( String[]::new );
@@ -159,7 +179,8 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 
 	private void updateScatterPlotSource( )
 	{
-		List< T > tableRows = getTableRows( );
+		plottedTimepoint = currentTimepoint;
+		List< T > tableRows = getTableRows( plottedTimepoint );
 
 		TableRowKDTreeSupplier< T > kdTreeSupplier = new TableRowKDTreeSupplier<>( tableRows, selectedColumns, scaleFactors );
 		KDTree< T > kdTree = kdTreeSupplier.get();
@@ -192,11 +213,11 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 		showInBdv( randomAccessible, FinalInterval.createMinMax( ( long ) min[ 0 ], ( long ) min[ 1 ], 0, ( long ) Math.ceil( max[ 0 ] ), ( long ) Math.ceil( max[ 1 ] ), 0 ), selectedColumns );
 	}
 
-	private List< T > getTableRows( )
+	private List< T > getTableRows( int timepoint )
 	{
 		if ( tableRows.get( 0 ).getColumnNames().contains( TableColumnNames.TIMEPOINT  ) )
 		{
-			return tableRows.stream().filter( t -> Double.parseDouble( t.getCell( TableColumnNames.TIMEPOINT ) ) == currentTimepoint ).collect( Collectors.toList() );
+			return tableRows.stream().filter( t -> Double.parseDouble( t.getCell( TableColumnNames.TIMEPOINT ) ) == timepoint ).collect( Collectors.toList() );
 		}
 		else
 		{
@@ -244,9 +265,7 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 						selectedColumns = dialog.getSelectedColumns();
 						scaleFactors = dialog.getScaleFactors();
 						dotSizeScaleFactor = dialog.getDotSizeScaleFactor();
-						if ( scatterPlotSource != null)
-							scatterPlotSource.removeFromBdv();
-						updateScatterPlotSource();
+						replaceScatterPlotSource();
 					}
 				});
 			}
@@ -390,12 +409,19 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 	@Override
 	public void timePointChanged( int timepoint )
 	{
-		this.currentTimepoint = timepoint;
-		if ( window == null )
-			return;
-		if ( scatterPlotSource != null)
-			scatterPlotSource.removeFromBdv();
-		updateScatterPlotSource();
+		currentTimepoint = timepoint;
+
+		// the plot is rebuilt on the event dispatch thread, like when it is reconfigured;
+		// rebuilding is expensive, thus it is only done for the latest of several quick changes
+		EventDispatcher.dispatch( this, EventDispatcher.Event.TimepointChanged, () -> SwingUtilities.invokeLater( () -> updateTimepoint() ) );
+	}
+
+	private void updateTimepoint()
+	{
+		if ( window == null ) return;
+		if ( plottedTimepoint == currentTimepoint ) return;
+
+		replaceScatterPlotSource();
 	}
 
 	@Override
@@ -416,6 +442,11 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 
 	@Override
 	public void focusEvent( T selection, Object initiator )
+	{
+		SwingUtilities.invokeLater( () -> focus( selection ) );
+	}
+
+	private void focus( T selection )
 	{
 		if ( bdvHandle == null ) return;
 
@@ -425,7 +456,7 @@ public class ScatterPlotViewer< T extends TableRow > implements SelectionListene
 			if ( selectedTimepoint != currentTimepoint )
 			{
 				currentTimepoint = selectedTimepoint;
-				updateScatterPlotSource();
+				replaceScatterPlotSource();
 			}
 		}
 
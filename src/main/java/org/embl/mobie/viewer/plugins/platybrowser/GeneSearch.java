@@ -94,7 +94,7 @@ public class GeneSearch
 		//  moBIE.getViewManager().openAndTransformViewSources( view );
 		//  Since the Prospr sources are not transformed, this does not matter (yet)...
 		if ( prosprSources == null )
-			prosprSources = moBIE.openSourceAndConverters( prosprSourceNames );
+			prosprSources = moBIE.openSourceAndConverters( prosprSourceNames ).asMap();
 
 		final Map< String, Double > geneExpressionLevels = runSearchAndGetLocalExpression( prosprSources );
 
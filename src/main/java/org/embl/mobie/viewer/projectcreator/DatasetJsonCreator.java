@@ -32,10 +32,12 @@ import net.imglib2.realtransform.AffineTransform3D;
 import org.embl.mobie.io.ImageDataFormat;
 import org.embl.mobie.viewer.TableColumnNames;
 import org.embl.mobie.viewer.Dataset;
+import org.embl.mobie.viewer.DatasetManifest;
 import org.embl.mobie.viewer.display.ImageDisplay;
 import org.embl.mobie.viewer.display.SegmentationDisplay;
 import org.embl.mobie.viewer.display.SourceDisplay;
 import org.embl.mobie.viewer.serialize.DatasetJsonParser;
+import org.embl.mobie.viewer.serialize.DatasetManifestJsonParser;
 import org.embl.mobie.viewer.source.*;
 import org.embl.mobie.viewer.table.TableDataFormat;
 import org.embl.mobie.viewer.transform.AffineSourceTransformer;
@@ -239,6 +241,19 @@ public class DatasetJsonCreator {
         }
     }
 
+    public void addSourceMetadata( String datasetName, String imageName, SourceMetadata sourceMetadata ) {
+        try {
+            String manifestJsonPath = IOHelper.combinePath( projectCreator.getProjectLocation().getAbsolutePath(),
+                    datasetName, DatasetManifest.MANIFEST_JSON );
+            DatasetManifestJsonParser manifestJsonParser = new DatasetManifestJsonParser();
+            DatasetManifest manifest = manifestJsonParser.tryParseManifest( manifestJsonPath );
+            manifest.sources.put( imageName, sourceMetadata );
+            manifestJsonParser.saveManifest( manifest, manifestJsonPath );
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     public void writeDatasetJson ( String datasetName, Dataset dataset ) {
         try {
             String datasetJsonPath = IOHelper.combinePath( projectCreator.getProjectLocation().getAbsolutePath(),
@@ -41,6 +41,7 @@ import org.embl.mobie.io.ome.zarr.loaders.N5OMEZarrImageLoader;
 import org.embl.mobie.io.ome.zarr.writers.imageplus.WriteImagePlusToN5OmeZarr;
 
 import org.embl.mobie.io.util.IOHelper;
+import org.embl.mobie.viewer.source.SourceMetadata;
 import de.embl.cba.tables.Tables;
 import ij.IJ;
 import ij.ImagePlus;
@@ -608,6 +609,7 @@ public class ImagesCreator {
         DatasetJsonCreator datasetJsonCreator = projectCreator.getDatasetJsonCreator();
         datasetJsonCreator.addImage( imageName, datasetName, uiSelectionGroup, nTimepoints,
                 imageDataFormat, contrastLimits, colour, exclusive, sourceTransform );
+        updateManifest( imageName, datasetName, imageDataFormat );
     }
 
     private void updateTableAndJsonsForNewSegmentation( String imageName, String datasetName, String uiSelectionGroup,
@@ -617,6 +619,21 @@ public class ImagesCreator {
         DatasetJsonCreator datasetJsonCreator = projectCreator.getDatasetJsonCreator();
         datasetJsonCreator.addSegmentation( imageName, datasetName, uiSelectionGroup, nTimepoints,
                 imageDataFormat, exclusive, sourceTransform );
+        updateManifest( imageName, datasetName, imageDataFormat );
+    }
+
+    // store the metadata of the written image, such that MoBIE can
+    // place it without opening the image container
+    private void updateManifest( String imageName, String datasetName, ImageDataFormat imageDataFormat ) {
+        try {
+            String filePath = getDefaultLocalImagePath( datasetName, imageName, imageDataFormat );
+            SpimData spimData = tryOpenSpimData( imageDataFormat, filePath );
+            SourceMetadata sourceMetadata = SourceMetadata.fromSpimData( spimData, 0 );
+            closeImgLoader( spimData, imageDataFormat );
+            projectCreator.getDatasetJsonCreator().addSourceMetadata( datasetName, imageName, sourceMetadata );
+        } catch ( Exception e ) {
+            IJ.log( "Could not add " + imageName + " to the dataset manifest: " + e.getMessage() );
+        }
     }
 
     private void copyImage ( ImageDataFormat imageFormat, SpimData spimData,
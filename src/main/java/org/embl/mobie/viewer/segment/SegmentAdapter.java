@@ -33,12 +33,11 @@ import de.embl.cba.tables.imagesegment.ImageSegment;
 import de.embl.cba.tables.imagesegment.LabelFrameAndImage;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 public class SegmentAdapter< T extends ImageSegment >
 {
-	private HashMap< LabelFrameAndImage, T > labelFrameAndImageToSegment;
+	private final SegmentIndex< T > segmentIndex = new SegmentIndex<>();
 	private boolean isLazy = false;
 
 	/**
@@ -46,39 +45,40 @@ public class SegmentAdapter< T extends ImageSegment >
 	 */
 	public SegmentAdapter()
 	{
-		labelFrameAndImageToSegment = new HashMap<>();
 		isLazy = true;
 	}
 
 	public SegmentAdapter( List< T > segments )
 	{
-		labelFrameAndImageToSegment = new HashMap<>();
+		addSegments( segments );
+	}
 
+	/**
+	 * Adds segments, e.g. of tables that have been loaded
+	 * after the adapter has been created.
+	 */
+	public void addSegments( List< T > segments )
+	{
 		for ( T segment : segments )
-			labelFrameAndImageToSegment.put( new LabelFrameAndImage( segment ), segment );
+			segmentIndex.put( ( long ) segment.labelId(), segment.timePoint(), segment.imageId(), segment );
 	}
 
-	public synchronized boolean containsSegment( double label, int t, String imageId )
+	public boolean containsSegment( double label, int t, String imageId )
 	{
-		final LabelFrameAndImage labelFrameAndImage = new LabelFrameAndImage( label, t, imageId  );
-
-		return labelFrameAndImageToSegment.containsKey( labelFrameAndImage );
+		return segmentIndex.get( ( long ) label, t, imageId ) != null;
 	}
 
-	public synchronized T getSegmentCreateIfNotExist( double label, int t, String imageId )
+	public T getSegmentCreateIfNotExist( double label, int t, String imageId )
 	{
-		final LabelFrameAndImage labelFrameAndImage = new LabelFrameAndImage( label, t, imageId  );
-
-		if ( ! labelFrameAndImageToSegment.containsKey( labelFrameAndImage ) )
-		{
-			final DefaultImageSegment defaultImageSegment = new DefaultImageSegment( labelFrameAndImage.getImage(), labelFrameAndImage.getLabel(), labelFrameAndImage.getFrame(), 0, 0, 0, null );
-			labelFrameAndImageToSegment.put( labelFrameAndImage, ( T ) defaultImageSegment );
-		}
+		final T segment = segmentIndex.get( ( long ) label, t, imageId );
+		if ( segment != null )
+			return segment;
 
-		return labelFrameAndImageToSegment.get( labelFrameAndImage );
+		final DefaultImageSegment defaultImageSegment = new DefaultImageSegment( imageId, label, t, 0, 0, 0, null );
+		return segmentIndex.putIfAbsent( ( long ) label, t, imageId, ( T ) defaultImageSegment );
 	}
 
-	public synchronized T getSegment( double label, int t, String imageId )
+	public T getSegment( double label, int t, String imageId )
 	{
 		if ( isLazy )
 		{
@@ -86,14 +86,13 @@ public class SegmentAdapter< T extends ImageSegment >
 		}
 		else
 		{
-			final LabelFrameAndImage labelFrameAndImage = new LabelFrameAndImage( label, t, imageId );
-			return getSegment( labelFrameAndImage );
+			return segmentIndex.get( ( long ) label, t, imageId );
 		}
 	}
 
-	public synchronized T getSegment( LabelFrameAndImage labelFrameAndImage )
+	public T getSegment( LabelFrameAndImage labelFrameAndImage )
 	{
-		return labelFrameAndImageToSegment.get( labelFrameAndImage  );
+		return segmentIndex.get( ( long ) labelFrameAndImage.getLabel(), labelFrameAndImage.getFrame(), labelFrameAndImage.getImage() );
 	}
 
 	// deserialize
@@ -103,8 +102,7 @@ public class SegmentAdapter< T extends ImageSegment >
 		for ( String serialisedSegment : serialisedSegments )
 		{
 			final String[] split = serialisedSegment.split( ";" );
-			final LabelFrameAndImage labelFrameAndImage = new LabelFrameAndImage( Double.parseDouble( split[2] ), Integer.parseInt( split[1] ), split[0] );
-			segments.add( getSegment( labelFrameAndImage ) );
+			segments.add( segmentIndex.get( ( long ) Double.parseDouble( split[2] ), Integer.parseInt( split[1] ), split[0] ) );
 		}
 
 		return segments;
@@ -0,0 +1,187 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.segment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An index of objects by label, timepoint and image id,
+ * which can be read concurrently without locking.
+ *
+ * The image ids are interned as integers, such that a key consists of
+ * primitives only and a lookup does not allocate. The entries are held in
+ * an open addressing hash table, which is replaced by a larger copy when
+ * it becomes half full. Writes are serialised, reads are lock-free.
+ */
+public class SegmentIndex< T >
+{
+	private static final int NULL_IMAGE_INDEX = -1;
+
+	private final Map< String, Integer > imageIdToIndex = new ConcurrentHashMap<>();
+	private volatile AtomicReferenceArray< Entry< T > > entries = new AtomicReferenceArray<>( 16 );
+	private int size = 0; // guarded by this
+
+	private static class Entry< T >
+	{
+		final long label;
+		final long imageAndTimepoint;
+		final T value;
+
+		Entry( long label, long imageAndTimepoint, T value )
+		{
+			this.label = label;
+			this.imageAndTimepoint = imageAndTimepoint;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * @return the value, or null if there is none
+	 */
+	public T get( long label, int timepoint, String imageId )
+	{
+		final int imageIndex;
+		if ( imageId == null )
+			imageIndex = NULL_IMAGE_INDEX;
+		else
+		{
+			final Integer index = imageIdToIndex.get( imageId );
+			if ( index == null )
+				return null;
+			imageIndex = index;
+		}
+
+		return get( entries, label, toKey( imageIndex, timepoint ) );
+	}
+
+	public synchronized void put( long label, int timepoint, String imageId, T value )
+	{
+		put( label, toKey( getImageIndex( imageId ), timepoint ), value );
+	}
+
+	/**
+	 * Adds the value if there is no value yet.
+	 *
+	 * @return the value in the index
+	 */
+	public synchronized T putIfAbsent( long label, int timepoint, String imageId, T value )
+	{
+		final long imageAndTimepoint = toKey( getImageIndex( imageId ), timepoint );
+		final T existing = get( entries, label, imageAndTimepoint );
+		if ( existing != null )
+			return existing;
+
+		put( label, imageAndTimepoint, value );
+		return value;
+	}
+
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	private static < T > T get( AtomicReferenceArray< Entry< T > > entries, long label, long imageAndTimepoint )
+	{
+		final int mask = entries.length() - 1;
+		for ( int slot = slot( label, imageAndTimepoint, mask ); ; slot = ( slot + 1 ) & mask )
+		{
+			final Entry< T > entry = entries.get( slot );
+			if ( entry == null )
+				return null;
+			if ( entry.label == label && entry.imageAndTimepoint == imageAndTimepoint )
+				return entry.value;
+		}
+	}
+
+	// must be called while holding the lock
+	private void put( long label, long imageAndTimepoint, T value )
+	{
+		if ( 2 * ( size + 1 ) > entries.length() )
+			entries = resize( entries, 2 * entries.length() );
+
+		if ( insert( entries, new Entry<>( label, imageAndTimepoint, value ) ) )
+			size++;
+	}
+
+	/**
+	 * @return whether the entry has been added rather than replaced
+	 */
+	private static < T > boolean insert( AtomicReferenceArray< Entry< T > > entries, Entry< T > entry )
+	{
+		final int mask = entries.length() - 1;
+		for ( int slot = slot( entry.label, entry.imageAndTimepoint, mask ); ; slot = ( slot + 1 ) & mask )
+		{
+			final Entry< T > existing = entries.get( slot );
+			if ( existing == null )
+			{
+				entries.set( slot, entry );
+				return true;
+			}
+			else if ( existing.label == entry.label && existing.imageAndTimepoint == entry.imageAndTimepoint )
+			{
+				entries.set( slot, entry );
+				return false;
+			}
+		}
+	}
+
+	private static < T > AtomicReferenceArray< Entry< T > > resize( AtomicReferenceArray< Entry< T > > entries, int capacity )
+	{
+		final AtomicReferenceArray< Entry< T > > resized = new AtomicReferenceArray<>( capacity );
+		for ( int slot = 0; slot < entries.length(); slot++ )
+		{
+			final Entry< T > entry = entries.get( slot );
+			if ( entry != null )
+				insert( resized, entry );
+		}
+		return resized;
+	}
+
+	private int getImageIndex( String imageId )
+	{
+		if ( imageId == null )
+			return NULL_IMAGE_INDEX;
+
+		return imageIdToIndex.computeIfAbsent( imageId, id -> imageIdToIndex.size() );
+	}
+
+	private static long toKey( int imageIndex, int timepoint )
+	{
+		return ( ( long ) imageIndex << 32 ) | ( timepoint & 0xFFFFFFFFL );
+	}
+
+	private static int slot( long label, long imageAndTimepoint, int mask )
+	{
+		long hash = ( label * 0x9E3779B97F4A7C15L ) ^ ( imageAndTimepoint * 0xC2B2AE3D27D4EB4FL );
+		hash ^= hash >>> 29;
+		return ( int ) hash & mask;
+	}
+}
@@ -38,6 +38,7 @@ import net.imglib2.RealPoint;
 import net.imglib2.type.numeric.RealType;
 import org.embl.mobie.viewer.SourceNameEncoder;
 import org.embl.mobie.viewer.annotate.AnnotatedMaskAdapter;
+import org.embl.mobie.viewer.color.LabelConverter;
 import org.embl.mobie.viewer.bdv.GlobalMousePositionProvider;
 import org.embl.mobie.viewer.display.RegionDisplay;
 import org.embl.mobie.viewer.display.AnnotationDisplay;
@@ -101,9 +102,10 @@ public class SliceViewRegionSelector implements Runnable
 				{
 					final Source< ? > source = sourceAndConverter.getSpimSource();
 
-					final double pixelValue = getPixelValue( timePoint, position, source );
-					final String sourceName = getSourceName( source, pixelValue );
-					double labelIndex = getLabelIndex( source, pixelValue );
+					final RealType< ? > pixel = getPixel( timePoint, position, source );
+					final SourceNameEncoder sourceNameEncoder = getSourceNameEncoder( source );
+					final String sourceName = getSourceName( source, sourceNameEncoder, pixel );
+					double labelIndex = getLabelIndex( sourceNameEncoder, pixel );
 
 					TableRow tableRow = getTableRow( timePoint, regionDisplay, sourceName, labelIndex );
 
@@ -150,23 +152,36 @@ public class SliceViewRegionSelector implements Runnable
 		}
 	}
 
-	private static double getLabelIndex( Source< ? > source, double pixelValue )
+	/**
+	 * @return the encoder of the source names of a merged grid or null,
+	 * 			if the pixel values of the source are not encoded
+	 */
+	private static SourceNameEncoder getSourceNameEncoder( Source< ? > source )
 	{
-		if ( MergedGridSource.instanceOf( source ) )
+		final MergedGridSource< ? > mergedGridSource = MergedGridSource.unwrap( source );
+		if ( mergedGridSource == null )
+			return null;
+		return mergedGridSource.getSourceNameEncoder();
+	}
+
+	private static double getLabelIndex( SourceNameEncoder sourceNameEncoder, RealType< ? > pixel )
+	{
+		if ( sourceNameEncoder != null )
 		{
-			return SourceNameEncoder.getValue( Double.valueOf( pixelValue ).longValue() );
+			// uint64 labels do not fit into a double without loss
+			return sourceNameEncoder.getValue( LabelConverter.getEncodedLabel( pixel ) );
 		}
 		else
 		{
-			return pixelValue;
+			return pixel.getRealDouble();
 		}
 	}
 
-	private static String getSourceName( Source< ? > source, double labelIndex )
+	private static String getSourceName( Source< ? > source, SourceNameEncoder sourceNameEncoder, RealType< ? > pixel )
 	{
-		if ( MergedGridSource.instanceOf( source ) )
+		if ( sourceNameEncoder != null )
 		{
-			return SourceNameEncoder.getName( Double.valueOf( labelIndex ).longValue() );
+			return sourceNameEncoder.getName( LabelConverter.getEncodedLabel( pixel ) );
 		}
 		else
 		{
@@ -205,12 +220,12 @@ public class SliceViewRegionSelector implements Runnable
 		return containedSourceAndConverters;
 	}
 
-	private static double getPixelValue( int timePoint, RealPoint position, Source< ? > source )
+	private static RealType< ? > getPixel( int timePoint, RealPoint position, Source< ? > source )
 	{
 		final RandomAccess< RealType > randomAccess = ( RandomAccess< RealType > ) source.getSource( timePoint, 0 ).randomAccess();
 		final long[] positionInSource = SourceAndConverterHelper.getVoxelPositionInSource( source, position, timePoint, 0 );
 		randomAccess.setPosition( positionInSource );
-		return randomAccess.get().getRealDouble();
+		return randomAccess.get();
 	}
 
 	@Override
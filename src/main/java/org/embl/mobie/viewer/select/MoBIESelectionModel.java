@@ -28,26 +28,46 @@
  */
 package org.embl.mobie.viewer.select;
 
+import org.embl.mobie.viewer.EventDispatcher;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A selection model that stores the selection as a bitset.
+ *
+ * Each object that is selected for the first time gets the next free
+ * index of the bitset. The selection is an immutable snapshot that is
+ * replaced on every change, such that {@link #isSelected}, {@link #isEmpty}
+ * and {@link #getSelected} do not lock and do not copy; changing the
+ * selection copies the bitset, i.e. one bit per object that ever has been
+ * selected. Changing many objects at once via {@link #setSelected(Collection, boolean)}
+ * copies the bitset only once.
+ */
 public class MoBIESelectionModel< T > implements SelectionModel< T >
 {
 	private final Listeners.SynchronizedList< SelectionListener > listeners;
-	private final Set< T > selected;
+	private final Map< T, Integer > objectToIndex = new ConcurrentHashMap<>();
+	private Object[] indexToObject = new Object[ 64 ]; // guarded by this
+	private volatile Selection< T > selection;
 	private T focusObject;
 
 	public MoBIESelectionModel()
 	{
 		listeners = new Listeners.SynchronizedList<>(  );
-		selected = new HashSet();
+		selection = new Selection<>( new long[ 0 ], 0, 0, indexToObject, objectToIndex );
 	}
 
 	@Override
-	public synchronized boolean isSelected( T object )
+	public boolean isSelected( T object )
 	{
-		return selected.contains( object );
+		return selection.contains( object );
 	}
 
 	@Override
@@ -58,46 +78,54 @@ public class MoBIESelectionModel< T > implements SelectionModel< T >
 
 	private synchronized void setSelected( T object, boolean select, boolean notify )
 	{
-		if ( select )
-			add( object, notify );
-		else
-			remove( object, notify );
-	}
-
-	private synchronized void remove( T object, boolean notify )
-	{
-		if ( selected.contains( object ) )
+		final long[] bits = selection.bits;
+		final long[] changed = set( bits, object, select );
+		if ( changed != bits )
 		{
-			selected.remove( object );
+			publish( changed );
 			if ( notify )
 				notifySelectionListeners();
-			notifySelectionListeners();
 		}
 	}
 
-	private synchronized void add( T object, boolean notify )
+	/**
+	 * @return the given bits if the selection state of the object does
+	 * not change, otherwise a copy with the changed bit
+	 */
+	private long[] set( long[] bits, T object, boolean select )
 	{
-		if ( ! selected.contains( object ) )
+		if ( select )
 		{
-			selected.add( object );
-			if ( notify )
-				notifySelectionListeners();
+			final int index = getOrCreateIndex( object );
+			if ( isSet( bits, index ) )
+				return bits;
+
+			final long[] copy = Arrays.copyOf( bits, Math.max( bits.length, ( index >> 6 ) + 1 ) );
+			copy[ index >> 6 ] |= 1L << index;
+			return copy;
+		}
+		else
+		{
+			final Integer index = objectToIndex.get( object );
+			if ( index == null || ! isSet( bits, index ) )
+				return bits;
+
+			final long[] copy = bits.clone();
+			copy[ index >> 6 ] &= ~( 1L << index );
+			return copy;
 		}
 	}
 
 	private void notifySelectionListeners()
 	{
-		for ( SelectionListener listener : listeners.list )
-			new Thread( () -> listener.selectionChanged() ).start();
+		for ( SelectionListener listener : listeners.listCopy() )
+			EventDispatcher.dispatch( listener, EventDispatcher.Event.SelectionChanged, listener::selectionChanged );
 	}
 
 	@Override
 	public synchronized void toggle( T object )
 	{
-		if ( selected.contains( object ) )
-			remove( object, true );
-		else
-			add( object, true );
+		setSelected( object, ! isSelected( object ), true );
 	}
 
 	@Override
@@ -105,8 +133,8 @@ public class MoBIESelectionModel< T > implements SelectionModel< T >
 	{
 		focusObject = object;
 
-		for ( SelectionListener listener : listeners.list )
-			new Thread( () -> listener.focusEvent( object, initiator ) ).start();
+		for ( SelectionListener listener : listeners.listCopy() )
+			EventDispatcher.dispatch( listener, EventDispatcher.Event.Focus, () -> listener.focusEvent( object, initiator ) );
 	}
 
 	@Override
@@ -121,8 +149,37 @@ public class MoBIESelectionModel< T > implements SelectionModel< T >
 	@Override
 	public synchronized boolean setSelected( Collection< T > objects, boolean select )
 	{
+		long[] bits = selection.bits;
+		boolean isCopy = false;
 		for( T object : objects )
-			setSelected( object, select, false );
+		{
+			if ( isCopy )
+			{
+				// modify the private copy in place
+				if ( select )
+				{
+					final int index = getOrCreateIndex( object );
+					if ( ( index >> 6 ) >= bits.length )
+						bits = Arrays.copyOf( bits, Math.max( 2 * bits.length, ( index >> 6 ) + 1 ) );
+					bits[ index >> 6 ] |= 1L << index;
+				}
+				else
+				{
+					final Integer index = objectToIndex.get( object );
+					if ( index != null && ( index >> 6 ) < bits.length )
+						bits[ index >> 6 ] &= ~( 1L << index );
+				}
+			}
+			else
+			{
+				final long[] changed = set( bits, object, select );
+				isCopy = changed != bits;
+				bits = changed;
+			}
+		}
+
+		if ( isCopy )
+			publish( bits );
 
 		notifySelectionListeners();
 
@@ -132,26 +189,35 @@ public class MoBIESelectionModel< T > implements SelectionModel< T >
 	@Override
 	public synchronized boolean clearSelection()
 	{
-		if ( selected.size() == 0 )
+		if ( selection.isEmpty() )
 			return false;
 		else
 		{
-			selected.clear();
+			publish( new long[ 0 ] );
 			notifySelectionListeners();
 			return true;
 		}
 	}
 
+	/**
+	 * @return an unmodifiable snapshot of the selected objects
+	 */
 	@Override
-	public synchronized Set< T > getSelected()
+	public Set< T > getSelected()
 	{
-		return new HashSet< T >( selected );
+		return selection;
 	}
 
 	@Override
 	public boolean isEmpty()
 	{
-		return selected.isEmpty();
+		return selection.isEmpty();
+	}
+
+	@Override
+	public int getVersion()
+	{
+		return selection.version;
 	}
 
 	@Override
@@ -172,4 +238,119 @@ public class MoBIESelectionModel< T > implements SelectionModel< T >
 
 	}
 
+	// must be called while holding the lock
+	private void publish( long[] bits )
+	{
+		int size = 0;
+		for ( long word : bits )
+			size += Long.bitCount( word );
+		selection = new Selection<>( bits, size, selection.version + 1, indexToObject, objectToIndex );
+	}
+
+	// must be called while holding the lock
+	private int getOrCreateIndex( T object )
+	{
+		final Integer index = objectToIndex.get( object );
+		if ( index != null )
+			return index;
+
+		final int newIndex = objectToIndex.size();
+		if ( newIndex == indexToObject.length )
+			indexToObject = Arrays.copyOf( indexToObject, 2 * indexToObject.length );
+		indexToObject[ newIndex ] = object;
+		objectToIndex.put( object, newIndex );
+		return newIndex;
+	}
+
+	private static boolean isSet( long[] bits, int index )
+	{
+		final int word = index >> 6;
+		return word < bits.length && ( bits[ word ] & ( 1L << index ) ) != 0;
+	}
+
+	/**
+	 * An immutable snapshot of the selection.
+	 */
+	private static class Selection< T > extends AbstractSet< T >
+	{
+		final long[] bits;
+		final int size;
+		final int version;
+		final Object[] indexToObject;
+		final Map< T, Integer > objectToIndex;
+
+		Selection( long[] bits, int size, int version, Object[] indexToObject, Map< T, Integer > objectToIndex )
+		{
+			this.bits = bits;
+			this.size = size;
+			this.version = version;
+			this.indexToObject = indexToObject;
+			this.objectToIndex = objectToIndex;
+		}
+
+		@Override
+		public boolean contains( Object object )
+		{
+			if ( size == 0 || object == null )
+				return false;
+
+			final Integer index = objectToIndex.get( object );
+			return index != null && isSet( bits, index );
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public boolean isEmpty()
+		{
+			return size == 0;
+		}
+
+		@Override
+		public Iterator< T > iterator()
+		{
+			return new Iterator< T >()
+			{
+				private int next = nextSetBit( 0 );
+
+				@Override
+				public boolean hasNext()
+				{
+					return next >= 0;
+				}
+
+				@Override
+				public T next()
+				{
+					if ( next < 0 )
+						throw new NoSuchElementException();
+
+					final T object = ( T ) indexToObject[ next ];
+					next = nextSetBit( next + 1 );
+					return object;
+				}
+			};
+		}
+
+		private int nextSetBit( int fromIndex )
+		{
+			int word = fromIndex >> 6;
+			if ( word >= bits.length )
+				return -1;
+
+			long remaining = bits[ word ] & ( -1L << fromIndex );
+			while ( true )
+			{
+				if ( remaining != 0 )
+					return ( word << 6 ) + Long.numberOfTrailingZeros( remaining );
+				if ( ++word == bits.length )
+					return -1;
+				remaining = bits[ word ];
+			}
+		}
+	}
 }
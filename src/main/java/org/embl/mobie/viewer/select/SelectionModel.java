@@ -106,12 +106,23 @@ public interface SelectionModel< T >
 	/**
 	 * Get the selected imagesegment.
 	 **
-	 * @return a <b>new</b> {@link Set} containing all the selected imagesegment.
+	 * @return an unmodifiable {@link Set} containing all the selected imagesegment,
+	 *         which does not change when the selection changes.
 	 */
 	public Set< T > getSelected();
 
 	public boolean isEmpty();
 
+	/**
+	 * Get the version of the selection, which is incremented
+	 * whenever the selection changes. In contrast to the
+	 * listeners, which are notified asynchronously, the
+	 * version is updated before the selection methods return.
+	 *
+	 * @return the version of the selection
+	 */
+	public int getVersion();
+
 	/**
 	 * Get the list of select listeners. Add a {@link SelectionListener} to
 	 * this list, for being notified when the object/edge select changes.
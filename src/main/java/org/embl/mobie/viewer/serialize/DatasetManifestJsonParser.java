@@ -0,0 +1,70 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.serialize;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.embl.mobie.io.util.IOHelper;
+import org.embl.mobie.viewer.DatasetManifest;
+
+import java.io.IOException;
+
+public class DatasetManifestJsonParser
+{
+	public DatasetManifest parseManifest( String path ) throws IOException
+	{
+		final String json = IOHelper.read( path );
+		return new Gson().fromJson( json, DatasetManifest.class );
+	}
+
+	public void saveManifest( DatasetManifest manifest, String path ) throws IOException
+	{
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		final String json = gson.toJson( manifest ).replaceAll("\t", "  ");
+		IOHelper.write( path, json );
+	}
+
+	/**
+	 * @return the manifest or an empty manifest if it does not exist or cannot be read
+	 */
+	public DatasetManifest tryParseManifest( String path )
+	{
+		try
+		{
+			final DatasetManifest manifest = parseManifest( path );
+			if ( manifest != null && manifest.sources != null )
+				return manifest;
+		}
+		catch ( Exception e )
+		{
+			// older projects do not have a manifest
+		}
+		return new DatasetManifest();
+	}
+}
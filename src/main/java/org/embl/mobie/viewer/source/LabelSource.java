@@ -29,27 +29,53 @@
 package org.embl.mobie.viewer.source;
 
 import bdv.util.Affine3DHelpers;
+import bdv.util.volatiles.VolatileViews;
 import bdv.viewer.Interpolation;
 import bdv.viewer.Source;
 import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealLocalizable;
 import net.imglib2.RealRandomAccess;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.Volatile;
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
 import net.imglib2.position.FunctionRealRandomAccessible;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import org.embl.mobie.viewer.MultiThreading;
+import org.embl.mobie.viewer.cache.CacheManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 
+/**
+ * Renders a label image, optionally only showing the boundaries of the labels.
+ *
+ * The boundaries are computed blockwise for each time point and resolution level
+ * and cached in a {@link CachedCellImg}, such that they are only recomputed
+ * when the boundary width changes.
+ * A volatile label source that is constructed with its non-volatile
+ * counterpart renders volatile views of the same cached boundaries.
+ */
 public class LabelSource<T extends NumericType<T> & RealType<T>> implements Source<T>
 {
+    private static final int[] BOUNDARY_BLOCK_SIZE = new int[]{ 64, 64, 8 };
+
     private final Source<T> source;
     private final float background;
     private final RealMaskRealInterval bounds;
@@ -59,11 +85,56 @@ public class LabelSource<T extends NumericType<T> & RealType<T>> implements Sour
     private float boundaryWidth;
     private ArrayList< Integer > boundaryDimensions;
 
+    // non-volatile counterpart of a volatile label source, which owns the cached boundaries
+    private LabelSource< ? > nonVolatileLabelSource;
+    private volatile BoundaryImgs boundaryImgs;
+
+    /**
+     * The cached boundaries for one boundary width.
+     * They are replaced as a whole when the width changes,
+     * such that a block can never be computed with an outdated width.
+     */
+    private static class BoundaryImgs
+    {
+        final float width;
+        final ArrayList< Integer > dimensions;
+        final Map< Long, CachedCellImg< ?, ? > > imgs = new ConcurrentHashMap<>();
+        final Map< Long, RandomAccessibleInterval< ? > > volatileImgs = new ConcurrentHashMap<>();
+        volatile boolean isReleased;
+
+        BoundaryImgs( float width, ArrayList< Integer > dimensions )
+        {
+            this.width = width;
+            this.dimensions = dimensions;
+        }
+
+        void release()
+        {
+            isReleased = true;
+            volatileImgs.clear();
+            for ( CachedCellImg< ?, ? > img : imgs.values() )
+                CacheManager.getInstance().remove( img );
+            imgs.clear();
+        }
+    }
+
     public LabelSource( final Source<T> source )
     {
         this( source, 0 );
     }
 
+    /**
+     * @param volatileSource
+     *          the volatile label image
+     * @param nonVolatileLabelSource
+     *          the label source wrapping the non-volatile version of the same label image
+     */
+    public LabelSource( final Source<T> volatileSource, LabelSource< ? > nonVolatileLabelSource )
+    {
+        this( volatileSource, nonVolatileLabelSource.background, nonVolatileLabelSource.bounds, nonVolatileLabelSource.timePoints );
+        this.nonVolatileLabelSource = nonVolatileLabelSource;
+    }
+
     public LabelSource( final Source<T> source, float background )
     {
         this( source, background, null );
@@ -82,10 +153,19 @@ public class LabelSource<T extends NumericType<T> & RealType<T>> implements Sour
         this.timePoints = timePoints;
     }
 
-    public void showAsBoundary( boolean showAsBoundaries, float boundaryWidth ) {
-        this.showAsBoundaries = showAsBoundaries;
+    public synchronized void showAsBoundary( boolean showAsBoundaries, float boundaryWidth ) {
         this.boundaryWidth = boundaryWidth;
         this.boundaryDimensions = boundaryDimensions();
+
+        final BoundaryImgs previous = boundaryImgs;
+        if ( previous == null || previous.width != boundaryWidth )
+        {
+            boundaryImgs = new BoundaryImgs( boundaryWidth, boundaryDimensions );
+            if ( previous != null )
+                previous.release();
+        }
+
+        this.showAsBoundaries = showAsBoundaries;
     }
 
     @Override
@@ -110,21 +190,33 @@ public class LabelSource<T extends NumericType<T> & RealType<T>> implements Sour
     @Override
     public RandomAccessibleInterval<T> getSource(final int t, final int level)
     {
-       return source.getSource( t, level );
+        // always the labels, also when showing the boundaries,
+        // because the label values are needed, e.g. for selecting segments
+        return source.getSource( t, level );
     }
 
     @Override
     public RealRandomAccessible<T> getInterpolatedSource(final int t, final int level, final Interpolation method)
     {
+        if ( showAsBoundaries )
+        {
+            final RandomAccessibleInterval< T > boundaries = getBoundaries( t, level );
+            if ( boundaries != null )
+                return Views.interpolate( Views.extendValue( boundaries, createBackground() ), new NearestNeighborInterpolatorFactory<>() );
+        }
+
         final RealRandomAccessible< T > rra = source.getInterpolatedSource( t, level, Interpolation.NEARESTNEIGHBOR );
 
         if ( showAsBoundaries  )
         {
+            // The boundaries cannot be cached, e.g. because the source
+            // is defined in continuous space; compute them on the fly.
+            //
             // Ultimately we need the boundaries in pixel units, because
             // we have to check the voxel values in the rra, which is in voxel units.
             // However, it feels like we could stay longer in physical units here to
             // make this less confusing...
-            final float[] boundarySizePixelUnits = getBoundarySize( t, level );
+            final float[] boundarySizePixelUnits = getBoundarySize( t, level, boundaryWidth );
 
             if ( rra.realRandomAccess().get() instanceof Volatile )
             {
@@ -141,6 +233,143 @@ public class LabelSource<T extends NumericType<T> & RealType<T>> implements Sour
         }
     }
 
+    /**
+     * @return the cached boundaries, or null if they cannot be cached
+     */
+    private RandomAccessibleInterval< T > getBoundaries( int t, int level )
+    {
+        if ( nonVolatileLabelSource != null )
+            return ( RandomAccessibleInterval< T > ) nonVolatileLabelSource.getVolatileBoundaries( t, level );
+
+        if ( ! canCacheBoundaries() )
+            return null;
+
+        final BoundaryImgs boundaryImgs = this.boundaryImgs;
+        if ( boundaryImgs == null )
+            return null;
+
+        return getBoundaries( t, level, boundaryImgs );
+    }
+
+    private RandomAccessibleInterval< T > getBoundaries( int t, int level, BoundaryImgs boundaryImgs )
+    {
+        final RandomAccessibleInterval< T > rai = source.getSource( t, level );
+        final CachedCellImg< ?, ? > img = boundaryImgs.imgs.computeIfAbsent( key( t, level ), k -> createBoundaryImg( rai, getBoundaryOffsets( t, level, boundaryImgs ) ) );
+
+        // the width has been changed while creating the image
+        if ( boundaryImgs.isReleased )
+            CacheManager.getInstance().remove( img );
+
+        return Views.translate( ( RandomAccessibleInterval< T > ) img, Intervals.minAsLongArray( rai ) );
+    }
+
+    private RandomAccessibleInterval< ? > getVolatileBoundaries( int t, int level )
+    {
+        final BoundaryImgs boundaryImgs = this.boundaryImgs;
+        if ( ! showAsBoundaries || boundaryImgs == null || ! canCacheBoundaries() )
+            return null;
+
+        final RandomAccessibleInterval< T > boundaries = getBoundaries( t, level, boundaryImgs );
+        return boundaryImgs.volatileImgs.computeIfAbsent( key( t, level ), k -> VolatileViews.wrapAsVolatile( boundaries, MultiThreading.sharedQueue ) );
+    }
+
+    private boolean canCacheBoundaries()
+    {
+        // label sources with bounds, e.g. region images, are defined in
+        // continuous space and would lose resolution when being rasterised
+        final T type = getType();
+        return bounds == null && type instanceof NativeType && ! ( type instanceof Volatile );
+    }
+
+    private CachedCellImg< ?, ? > createBoundaryImg( RandomAccessibleInterval< T > rai, int[] offsets )
+    {
+        final long[] min = Intervals.minAsLongArray( rai );
+        final RandomAccessible< T > extended = Views.extendValue( rai, createBackground() );
+        final int numDimensions = rai.numDimensions();
+
+        final CellLoader< T > loader = cell ->
+        {
+            final RandomAccess< T > access = extended.randomAccess();
+            final Cursor< T > cursor = cell.localizingCursor();
+            final long[] position = new long[ numDimensions ];
+            final T background = createBackground();
+            final T center = getType().createVariable();
+            while ( cursor.hasNext() )
+            {
+                final T output = cursor.next();
+                cursor.localize( position );
+                for ( int d = 0; d < numDimensions; d++ )
+                    position[ d ] += min[ d ];
+                center.set( access.setPositionAndGet( position ) );
+                // copy the label as it is, wide labels, e.g. of merged grids, do not fit into a float
+                output.set( isBoundary( access, center, background, offsets ) ? center : background );
+            }
+        };
+
+        return CacheManager.getInstance().createImg( getName(), Intervals.dimensionsAsLongArray( rai ), BOUNDARY_BLOCK_SIZE, ( NativeType ) getType().createVariable(), ( CellLoader ) loader );
+    }
+
+    /**
+     * @param access
+     *          positioned at the center
+     * @return whether the center is a label whose neighbours have a different label
+     */
+    private static < T extends RealType< T > > boolean isBoundary( RandomAccess< T > access, T center, T background, int[] offsets )
+    {
+        if ( isSameLabel( center, background ) )
+            return false;
+
+        for ( int d = 0; d < offsets.length; d++ )
+        {
+            if ( offsets[ d ] == 0 ) continue;
+
+            access.move( - offsets[ d ], d );
+            if ( ! isSameLabel( access.get(), center ) )
+                return true;
+            access.move( 2 * offsets[ d ], d );
+            if ( ! isSameLabel( access.get(), center ) )
+                return true;
+            access.move( - offsets[ d ], d ); // move back to center
+        }
+
+        return false;
+    }
+
+    private static < T extends RealType< T > > boolean isSameLabel( T label, T other )
+    {
+        if ( label instanceof IntegerType )
+            return ( ( IntegerType< ? > ) label ).getIntegerLong() == ( ( IntegerType< ? > ) other ).getIntegerLong();
+        else
+            return label.getRealDouble() == other.getRealDouble();
+    }
+
+    /**
+     * @return the boundary width in voxels along the boundary dimensions, at least one voxel
+     */
+    private int[] getBoundaryOffsets( int t, int level, BoundaryImgs boundaryImgs )
+    {
+        final float[] boundarySizePixelUnits = getBoundarySize( t, level, boundaryImgs.width );
+        final int[] offsets = new int[ source.getSource( t, level ).numDimensions() ];
+        for ( Integer d : boundaryImgs.dimensions )
+            if ( d < offsets.length )
+                offsets[ d ] = Math.max( 1, Math.round( boundarySizePixelUnits[ d ] ) );
+        return offsets;
+    }
+
+    private T createBackground()
+    {
+        final T value = getType().createVariable();
+        value.setReal( background );
+        if ( value instanceof Volatile )
+            ( ( Volatile< ? > ) value ).setValid( true );
+        return value;
+    }
+
+    private static long key( int t, int level )
+    {
+        return ( ( long ) t << 32 ) | level;
+    }
+
     private ArrayList< Integer > boundaryDimensions()
     {
         final ArrayList< Integer > dimensions = new ArrayList<>();
@@ -173,7 +402,7 @@ public class LabelSource<T extends NumericType<T> & RealType<T>> implements Sour
         return dimensions;
     }
 
-    private float[] getBoundarySize( int t, int level )
+    private float[] getBoundarySize( int t, int level, float boundaryWidth )
     {
         final float[] boundaries = new float[ 3 ];
         Arrays.fill( boundaries, (float) boundaryWidth );
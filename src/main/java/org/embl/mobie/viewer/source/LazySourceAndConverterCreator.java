@@ -0,0 +1,94 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.source;
+
+import bdv.util.volatiles.VolatileTypeMatcher;
+import bdv.viewer.SourceAndConverter;
+import net.imglib2.converter.Converter;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.ARGBType;
+import sc.fiji.bdvpg.sourceandconverter.SourceAndConverterHelper;
+
+import java.util.function.Supplier;
+
+/**
+ * Creates a {@link SourceAndConverter} with {@link LazySpimSource}s,
+ * such that the underlying image data is only opened once it is accessed.
+ */
+public class LazySourceAndConverterCreator
+{
+	private final String name;
+	private final SourceMetadata metadata;
+	private final Supplier< SourceAndConverter< ? > > opener;
+	private SourceAndConverter< ? > sourceAndConverter;
+
+	/**
+	 * @param opener
+	 * 			opens the actual source and converter, it will be called at most once
+	 */
+	public LazySourceAndConverterCreator( String name, SourceMetadata metadata, Supplier< SourceAndConverter< ? > > opener )
+	{
+		this.name = name;
+		this.metadata = metadata;
+		this.opener = opener;
+	}
+
+	public SourceAndConverter< ? > getSourceAndConverter()
+	{
+		final Object type = metadata.getType();
+		if ( type == null )
+			return open(); // cannot create a converter without knowing the type
+
+		final LazySpimSource source = new LazySpimSource( name, metadata, type, () -> open().getSpimSource() );
+		final Converter< ?, ARGBType > converter = SourceAndConverterHelper.createConverter( source );
+
+		final Object volatileType = type instanceof NativeType ? VolatileTypeMatcher.getVolatileTypeForType( ( NativeType ) type ) : null;
+		// create a volatile version only if the image loader is known to provide one,
+		// such that the volatile source cannot fail while rendering
+		if ( volatileType == null || ! Boolean.TRUE.equals( metadata.hasVolatileVersion ) )
+			return new SourceAndConverter( source, converter );
+
+		final LazySpimSource volatileSource = new LazySpimSource( name, metadata, volatileType, () -> {
+			final SourceAndConverter< ? > volatileSourceAndConverter = open().asVolatile();
+			if ( volatileSourceAndConverter == null )
+				throw new UnsupportedOperationException( "The image data of " + name + " has no volatile version." );
+			return volatileSourceAndConverter.getSpimSource();
+		} );
+		final Converter< ?, ARGBType > volatileConverter = SourceAndConverterHelper.createConverter( volatileSource );
+
+		return new SourceAndConverter( source, converter, new SourceAndConverter( volatileSource, volatileConverter ) );
+	}
+
+	private synchronized SourceAndConverter< ? > open()
+	{
+		if ( sourceAndConverter == null )
+			sourceAndConverter = opener.get();
+		return sourceAndConverter;
+	}
+}
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.source;
+
+import bdv.viewer.Interpolation;
+import bdv.viewer.Source;
+import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.realtransform.AffineTransform3D;
+
+import java.util.function.Supplier;
+
+/**
+ * A source that only opens its image data when the data is accessed.
+ *
+ * Until then, the name, type, voxel size and the transform of the
+ * highest resolution level at the first timepoint are served from
+ * the {@link SourceMetadata}. Other timepoints may have different
+ * transforms, thus asking for them opens the source.
+ */
+public class LazySpimSource< T > implements Source< T >
+{
+	private final String name;
+	private final SourceMetadata metadata;
+	private final T type;
+	private final Supplier< Source< T > > opener;
+	private volatile Source< T > source;
+
+	public LazySpimSource( String name, SourceMetadata metadata, T type, Supplier< Source< T > > opener )
+	{
+		this.name = name;
+		this.metadata = metadata;
+		this.type = type;
+		this.opener = opener;
+	}
+
+	public boolean isOpen()
+	{
+		return source != null;
+	}
+
+	public SourceMetadata getMetadata()
+	{
+		return metadata;
+	}
+
+	public Source< T > openSource()
+	{
+		if ( source == null )
+		{
+			synchronized ( this )
+			{
+				if ( source == null )
+					source = opener.get();
+			}
+		}
+		return source;
+	}
+
+	@Override
+	public boolean isPresent( int t )
+	{
+		if ( source != null )
+			return source.isPresent( t );
+
+		return t >= 0 && t < metadata.numTimepoints;
+	}
+
+	@Override
+	public RandomAccessibleInterval< T > getSource( int t, int level )
+	{
+		return openSource().getSource( t, level );
+	}
+
+	@Override
+	public RealRandomAccessible< T > getInterpolatedSource( int t, int level, Interpolation method )
+	{
+		return openSource().getInterpolatedSource( t, level, method );
+	}
+
+	@Override
+	public void getSourceTransform( int t, int level, AffineTransform3D transform )
+	{
+		if ( source == null && t == 0 && level == 0 && metadata.sourceTransform != null )
+			transform.set( metadata.sourceTransform );
+		else
+			openSource().getSourceTransform( t, level, transform );
+	}
+
+	@Override
+	public T getType()
+	{
+		return type;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public VoxelDimensions getVoxelDimensions()
+	{
+		if ( source == null && metadata.voxelSize != null )
+			return metadata.getVoxelDimensions();
+
+		return openSource().getVoxelDimensions();
+	}
+
+	@Override
+	public int numMipmapLevels()
+	{
+		if ( source == null && metadata.numMipmapLevels > 0 )
+			return metadata.numMipmapLevels;
+
+		return openSource().numMipmapLevels();
+	}
+}
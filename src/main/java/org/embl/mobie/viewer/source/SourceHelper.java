@@ -34,6 +34,8 @@ import bdv.util.BdvHandle;
 import bdv.util.BdvStackSource;
 import bdv.viewer.Source;
 import bdv.viewer.SourceAndConverter;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converter;
 import net.imglib2.img.display.imagej.ImageJFunctions;
@@ -54,9 +56,9 @@ public abstract class SourceHelper
 {
 
     public static <R extends NumericType<R> & RealType<R>> SourceAndConverter<R> replaceConverter(SourceAndConverter<?> source, Converter<RealType<?>, ARGBType> converter) {
-        LabelSource<?> labelVolatileSource = new LabelSource(source.asVolatile().getSpimSource());
-        SourceAndConverter<?> volatileSourceAndConverter = new SourceAndConverter(labelVolatileSource, converter);
         LabelSource<?> labelSource = new LabelSource(source.getSpimSource());
+        LabelSource<?> labelVolatileSource = new LabelSource(source.asVolatile().getSpimSource(), labelSource);
+        SourceAndConverter<?> volatileSourceAndConverter = new SourceAndConverter(labelVolatileSource, converter);
         return new SourceAndConverter(labelSource, converter, volatileSourceAndConverter);
     }
 
@@ -90,6 +92,35 @@ public abstract class SourceHelper
 
     }
 
+    /**
+     * Returns the interval of the highest resolution level
+     * without opening the image data of lazy sources.
+     */
+    public static Interval getInterval( Source< ? > source, int t )
+    {
+        Source< ? > rootSource = source;
+        while ( true )
+        {
+            if ( rootSource instanceof TransformedSource )
+                rootSource = ( ( TransformedSource< ? > ) rootSource ).getWrappedSource();
+            else if ( rootSource instanceof LabelSource )
+                rootSource = ( ( LabelSource< ? > ) rootSource ).getWrappedSource();
+            else if ( rootSource instanceof SourceWrapper )
+                rootSource = ( ( SourceWrapper< ? > ) rootSource ).getWrappedSource();
+            else
+                break;
+        }
+
+        if ( rootSource instanceof LazySpimSource && ! ( ( LazySpimSource< ? > ) rootSource ).isOpen() )
+        {
+            final long[] dimensions = ( ( LazySpimSource< ? > ) rootSource ).getMetadata().dimensions;
+            if ( dimensions != null )
+                return new FinalInterval( dimensions );
+        }
+
+        return source.getSource( t, 0 );
+    }
+
     public static void viewAsHyperstack(BdvStackSource<?> bdvStackSource, int level) {
         RandomAccessibleInterval<?> rai = bdvStackSource.getSources().get(0).getSpimSource().getSource(0, level);
         IntervalView<?> permute = Views.permute(Views.addDimension(rai, 0, 0), 2, 3);
@@ -0,0 +1,187 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.source;
+
+import bdv.ViewerImgLoader;
+import bdv.viewer.Source;
+import mpicbg.spim.data.SpimData;
+import mpicbg.spim.data.sequence.BasicViewSetup;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import mpicbg.spim.data.sequence.ImgLoader;
+import mpicbg.spim.data.sequence.TimePoint;
+import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedLongType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import java.util.List;
+
+/**
+ * The information about a source that is needed to place
+ * it in space without opening its image data.
+ * All values refer to the highest resolution level and the first timepoint.
+ *
+ * The metadata of all sources of a dataset is serialised
+ * into the {@link org.embl.mobie.viewer.DatasetManifest}.
+ */
+public class SourceMetadata
+{
+	// Serialisation
+	public String dataType;
+	public long[] dimensions;
+	public double[] sourceTransform;
+	public String voxelUnit;
+	public double[] voxelSize;
+	public int numTimepoints = 1;
+	public int numMipmapLevels = 0; // 0 if unknown
+	public Boolean hasVolatileVersion; // null if unknown
+
+	// Runtime
+	private transient Object type;
+
+	public static SourceMetadata fromSpimData( SpimData spimData, int setupIndex )
+	{
+		final SourceMetadata metadata = new SourceMetadata();
+
+		final BasicViewSetup viewSetup = spimData.getSequenceDescription().getViewSetupsOrdered().get( setupIndex );
+		final List< TimePoint > timePoints = spimData.getSequenceDescription().getTimePoints().getTimePointsOrdered();
+		metadata.numTimepoints = timePoints.size();
+
+		if ( viewSetup.hasSize() )
+			metadata.dimensions = viewSetup.getSize().dimensionsAsLongArray();
+
+		if ( viewSetup.hasVoxelSize() )
+		{
+			final VoxelDimensions voxelDimensions = viewSetup.getVoxelSize();
+			metadata.voxelUnit = voxelDimensions.unit();
+			metadata.voxelSize = voxelDimensions.dimensionsAsDoubleArray();
+		}
+
+		final AffineTransform3D transform = spimData.getViewRegistrations().getViewRegistration( timePoints.get( 0 ).getId(), viewSetup.getId() ).getModel();
+		metadata.sourceTransform = transform.getRowPackedCopy();
+
+		// for most image loaders this only reads the header of the data set
+		final ImgLoader imgLoader = spimData.getSequenceDescription().getImgLoader();
+		metadata.setType( imgLoader.getSetupImgLoader( viewSetup.getId() ).getImageType() );
+		// only the image loaders of BigDataViewer provide volatile versions of the sources
+		metadata.hasVolatileVersion = imgLoader instanceof ViewerImgLoader;
+		if ( imgLoader instanceof ViewerImgLoader )
+			metadata.numMipmapLevels = ( ( ViewerImgLoader ) imgLoader ).getSetupImgLoader( viewSetup.getId() ).numMipmapLevels();
+
+		return metadata;
+	}
+
+	public static SourceMetadata fromSource( Source< ? > source )
+	{
+		final SourceMetadata metadata = new SourceMetadata();
+		metadata.setType( source.getType() );
+		metadata.numMipmapLevels = source.numMipmapLevels();
+		metadata.dimensions = source.getSource( 0, 0 ).dimensionsAsLongArray();
+		final AffineTransform3D transform = new AffineTransform3D();
+		source.getSourceTransform( 0, 0, transform );
+		metadata.sourceTransform = transform.getRowPackedCopy();
+		if ( source.getVoxelDimensions() != null )
+		{
+			metadata.voxelUnit = source.getVoxelDimensions().unit();
+			metadata.voxelSize = source.getVoxelDimensions().dimensionsAsDoubleArray();
+		}
+		return metadata;
+	}
+
+	public VoxelDimensions getVoxelDimensions()
+	{
+		if ( voxelSize == null ) return null;
+		return new FinalVoxelDimensions( voxelUnit, voxelSize );
+	}
+
+	public AffineTransform3D getSourceTransform()
+	{
+		final AffineTransform3D transform = new AffineTransform3D();
+		if ( sourceTransform != null )
+			transform.set( sourceTransform );
+		return transform;
+	}
+
+	/**
+	 * @return the pixel type, or null if the data type is not supported
+	 */
+	public Object getType()
+	{
+		if ( type == null && dataType != null )
+			type = createType( dataType );
+		return type;
+	}
+
+	public void setType( Object type )
+	{
+		this.type = type;
+		this.dataType = toDataType( type );
+	}
+
+	private static Object createType( String dataType )
+	{
+		switch ( dataType )
+		{
+			case "int8": return new ByteType();
+			case "uint8": return new UnsignedByteType();
+			case "int16": return new ShortType();
+			case "uint16": return new UnsignedShortType();
+			case "int32": return new IntType();
+			case "uint32": return new UnsignedIntType();
+			case "int64": return new LongType();
+			case "uint64": return new UnsignedLongType();
+			case "float32": return new FloatType();
+			case "float64": return new DoubleType();
+			default: return null;
+		}
+	}
+
+	private static String toDataType( Object type )
+	{
+		if ( type instanceof ByteType ) return "int8";
+		if ( type instanceof UnsignedByteType ) return "uint8";
+		if ( type instanceof ShortType ) return "int16";
+		if ( type instanceof UnsignedShortType ) return "uint16";
+		if ( type instanceof IntType ) return "int32";
+		if ( type instanceof UnsignedIntType ) return "uint32";
+		if ( type instanceof LongType ) return "int64";
+		if ( type instanceof UnsignedLongType ) return "uint64";
+		if ( type instanceof FloatType ) return "float32";
+		if ( type instanceof DoubleType ) return "float64";
+		return null;
+	}
+}
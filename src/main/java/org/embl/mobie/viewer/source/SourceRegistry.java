@@ -0,0 +1,147 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.source;
+
+import bdv.viewer.SourceAndConverter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * The sources of a view, indexed by their names.
+ *
+ * In addition, the registry keeps track of the sources that are
+ * contained in other sources, e.g. the grid sources of a merged grid,
+ * such that the contained sources can be found without inspecting
+ * all sources.
+ *
+ * The registry can be accessed concurrently.
+ */
+public class SourceRegistry
+{
+	private final Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter = new ConcurrentHashMap<>();
+	private final Map< String, List< String > > parentToChildren = new ConcurrentHashMap<>();
+
+	/**
+	 * @return the source with the given name, or null if it is not registered
+	 */
+	public SourceAndConverter< ? > get( String sourceName )
+	{
+		return sourceNameToSourceAndConverter.get( sourceName );
+	}
+
+	public void put( String sourceName, SourceAndConverter< ? > sourceAndConverter )
+	{
+		sourceNameToSourceAndConverter.put( sourceName, sourceAndConverter );
+	}
+
+	public boolean contains( String sourceName )
+	{
+		return sourceNameToSourceAndConverter.containsKey( sourceName );
+	}
+
+	public Set< String > getSourceNames()
+	{
+		return Collections.unmodifiableSet( sourceNameToSourceAndConverter.keySet() );
+	}
+
+	public int size()
+	{
+		return sourceNameToSourceAndConverter.size();
+	}
+
+	/**
+	 * @return a read-only view of the registered sources, indexed by their names
+	 */
+	public Map< String, SourceAndConverter< ? > > asMap()
+	{
+		return Collections.unmodifiableMap( sourceNameToSourceAndConverter );
+	}
+
+	/**
+	 * Registers that the children are contained in the parent source.
+	 */
+	public void addChildren( String parent, Collection< String > children )
+	{
+		parentToChildren.computeIfAbsent( parent, p -> Collections.synchronizedList( new ArrayList<>() ) ).addAll( children );
+	}
+
+	/**
+	 * @return the names of the sources that are directly contained in the parent source
+	 */
+	public List< String > getChildren( String parent )
+	{
+		final List< String > children = parentToChildren.get( parent );
+		if ( children == null )
+			return Collections.emptyList();
+
+		synchronized ( children )
+		{
+			return new ArrayList<>( children );
+		}
+	}
+
+	/**
+	 * Transforms a batch of sources and registers the results under their names.
+	 * Sources that are not registered are skipped.
+	 *
+	 * The sources are transformed on the calling thread, because
+	 * this is typically called from tasks of the {@link org.embl.mobie.viewer.MultiThreading}
+	 * executors, which already transform several batches in parallel.
+	 *
+	 * @param transformer
+	 * 			receives the name of a source and the source; returns the transformed source
+	 * @return the transformed sources
+	 */
+	public List< SourceAndConverter< ? > > transform( Collection< String > sourceNames, BiFunction< String, SourceAndConverter< ? >, SourceAndConverter< ? > > transformer )
+	{
+		final List< SourceAndConverter< ? > > transformed = new ArrayList<>( sourceNames.size() );
+		for ( String sourceName : sourceNames )
+		{
+			final SourceAndConverter< ? > sourceAndConverter = get( sourceName );
+			if ( sourceAndConverter == null ) continue;
+
+			final SourceAndConverter< ? > transformedSourceAndConverter = transformer.apply( sourceName, sourceAndConverter );
+			if ( transformedSourceAndConverter == null ) continue;
+
+			transformed.add( transformedSourceAndConverter );
+		}
+
+		for ( SourceAndConverter< ? > sourceAndConverter : transformed )
+			put( sourceAndConverter.getSpimSource().getName(), sourceAndConverter );
+
+		return transformed;
+	}
+}
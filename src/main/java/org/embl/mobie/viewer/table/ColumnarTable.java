@@ -0,0 +1,105 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.table;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table as a map from column names to {@link TypedColumn}s.
+ *
+ * All lists that are put into the table are converted into
+ * {@link TypedColumn}s, such that the table can be passed to all
+ * code that expects the columns as Map< String, List< String > >,
+ * e.g. to create the table rows.
+ */
+public class ColumnarTable extends LinkedHashMap< String, List< String > >
+{
+	public ColumnarTable()
+	{
+		super();
+	}
+
+	public ColumnarTable( Map< String, List< String > > columns )
+	{
+		super();
+		putAll( columns );
+	}
+
+	public static ColumnarTable concatenate( Collection< ? extends Map< String, List< String > > > tables )
+	{
+		final ColumnarTable concatenated = new ColumnarTable();
+		if ( tables.isEmpty() ) return concatenated;
+
+		final Map< String, List< String > > first = tables.iterator().next();
+		for ( String columnName : first.keySet() )
+		{
+			final TypedColumn column = new TypedColumn();
+			for ( Map< String, List< String > > table : tables )
+			{
+				final List< String > values = table.get( columnName );
+				if ( values == null )
+					throw new RuntimeException( "Cannot concatenate tables: column " + columnName + " is missing in one of the tables." );
+				column.addAll( values );
+			}
+			concatenated.put( columnName, column );
+		}
+		return concatenated;
+	}
+
+	@Override
+	public List< String > put( String columnName, List< String > values )
+	{
+		return super.put( columnName, TypedColumn.of( values ) );
+	}
+
+	@Override
+	public void putAll( Map< ? extends String, ? extends List< String > > columns )
+	{
+		for ( Map.Entry< ? extends String, ? extends List< String > > column : columns.entrySet() )
+			put( column.getKey(), column.getValue() );
+	}
+
+	public TypedColumn getColumn( String columnName )
+	{
+		return ( TypedColumn ) get( columnName );
+	}
+
+	public int numRows()
+	{
+		return isEmpty() ? 0 : values().iterator().next().size();
+	}
+
+	public double getDouble( String columnName, int rowIndex )
+	{
+		return getColumn( columnName ).getDouble( rowIndex );
+	}
+}
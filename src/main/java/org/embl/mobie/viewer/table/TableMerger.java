@@ -0,0 +1,366 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.table;
+
+import de.embl.cba.tables.tablerow.TableRow;
+import ij.IJ;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Joins the columns of a table to existing table rows.
+ *
+ * The rows are matched on one or more key columns. Numeric key values
+ * are compared as integers, such that, e.g., the label id 1 matches 1.0;
+ * all other key values are compared as strings. The keys of the table
+ * are stored in a primitive hash index, which is probed in parallel.
+ * If a key occurs more than once in the table, its last row is merged.
+ */
+public class TableMerger
+{
+	public static final String MISSING_VALUE = "NaN";
+
+	private static final int PARTITION_SIZE = 64 * 1024;
+
+	/**
+	 * @param tableRows
+	 * 			the rows to which the columns should be appended
+	 * @param columns
+	 * 			the columns to be appended, including the key columns
+	 * @param keyColumnNames
+	 * 			the columns on which the rows are matched
+	 * @return the columns, excluding the key columns, ordered such that they
+	 * 			match the tableRows; values of rows that are not present in the
+	 * 			columns are {@link #MISSING_VALUE}
+	 */
+	public static Map< String, List< String > > createColumnsForMerging( List< ? extends TableRow > tableRows, Map< String, List< String > > columns, String... keyColumnNames )
+	{
+		final ArrayList< Function< TableRow, ? > > keys = new ArrayList<>();
+		for ( String keyColumnName : keyColumnNames )
+			keys.add( tableRow -> tableRow.getCell( keyColumnName ) );
+		return createColumnsForMerging( tableRows, keys, columns, keyColumnNames );
+	}
+
+	/**
+	 * @param tableRows
+	 * 			the rows to which the columns should be appended
+	 * @param keys
+	 * 			the key values of the rows, one function per key column; numbers
+	 * 			are encoded directly, without creating a string for each row
+	 * @param columns
+	 * 			the columns to be appended, including the key columns
+	 * @param keyColumnNames
+	 * 			the columns on which the rows are matched
+	 * @return the columns, excluding the key columns, ordered such that they
+	 * 			match the tableRows; values of rows that are not present in the
+	 * 			columns are {@link #MISSING_VALUE}
+	 */
+	public static < R > Map< String, List< String > > createColumnsForMerging( List< ? extends R > tableRows, List< ? extends Function< ? super R, ? > > keys, Map< String, List< String > > columns, String... keyColumnNames )
+	{
+		final KeyEncoder encoder = new KeyEncoder();
+		final int numKeys = keyColumnNames.length;
+
+		// the keys of the table rows
+		final int numReferenceRows = tableRows.size();
+		final long[] referenceKeys = new long[ numReferenceRows * numKeys ];
+		forEachPartition( numReferenceRows, ( start, end ) ->
+		{
+			for ( int row = start; row < end; row++ )
+			{
+				final R tableRow = tableRows.get( row );
+				for ( int k = 0; k < numKeys; k++ )
+					referenceKeys[ row * numKeys + k ] = encoder.encode( keys.get( k ).apply( tableRow ) );
+			}
+		} );
+
+		// the keys of the columns
+		final TypedColumn[] keyColumns = new TypedColumn[ numKeys ];
+		for ( int k = 0; k < numKeys; k++ )
+		{
+			final List< String > keyColumn = columns.get( keyColumnNames[ k ] );
+			if ( keyColumn == null )
+				throw new RuntimeException( "Cannot merge table: column " + keyColumnNames[ k ] + " is missing." );
+			keyColumns[ k ] = TypedColumn.of( keyColumn );
+		}
+		final int numRows = keyColumns.length == 0 ? 0 : keyColumns[ 0 ].size();
+		final long[] columnKeys = new long[ numRows * numKeys ];
+		forEachPartition( numRows, ( start, end ) ->
+		{
+			for ( int row = start; row < end; row++ )
+				for ( int k = 0; k < numKeys; k++ )
+					columnKeys[ row * numKeys + k ] = encoder.encode( keyColumns[ k ], row );
+		} );
+
+		// join
+		final KeyIndex index = new KeyIndex( columnKeys, numKeys );
+		if ( index.getDuplicateRow() >= 0 )
+		{
+			final StringBuilder key = new StringBuilder();
+			for ( int k = 0; k < numKeys; k++ )
+				key.append( k == 0 ? "" : ", " ).append( keyColumnNames[ k ] ).append( " = " ).append( keyColumns[ k ].get( index.getDuplicateRow() ) );
+			IJ.log( "[WARNING] The key ( " + key + " ) occurs more than once in the merged table; the values of its last row are used." );
+		}
+
+		final int[] referenceRowToRow = new int[ numReferenceRows ];
+		forEachPartition( numReferenceRows, ( start, end ) ->
+		{
+			for ( int row = start; row < end; row++ )
+				referenceRowToRow[ row ] = index.get( referenceKeys, row );
+		} );
+
+		// reorder the columns
+		final Set< String > excludedColumnNames = new HashSet<>( Arrays.asList( keyColumnNames ) );
+		final List< String > columnNames = columns.keySet().stream().filter( name -> ! excludedColumnNames.contains( name ) ).collect( Collectors.toList() );
+		final Map< String, TypedColumn > selected = new ConcurrentHashMap<>();
+		columnNames.parallelStream().forEach( columnName ->
+				selected.put( columnName, TypedColumn.of( columns.get( columnName ) ).select( referenceRowToRow, MISSING_VALUE ) ) );
+
+		final LinkedHashMap< String, List< String > > columnsForMerging = new LinkedHashMap<>();
+		for ( String columnName : columnNames )
+			columnsForMerging.put( columnName, selected.get( columnName ) );
+		return columnsForMerging;
+	}
+
+	private interface PartitionConsumer
+	{
+		void accept( int start, int end );
+	}
+
+	private static void forEachPartition( int numRows, PartitionConsumer consumer )
+	{
+		final int numPartitions = ( numRows + PARTITION_SIZE - 1 ) / PARTITION_SIZE;
+		IntStream.range( 0, numPartitions ).parallel().forEach( partition ->
+				consumer.accept( partition * PARTITION_SIZE, Math.min( numRows, ( partition + 1 ) * PARTITION_SIZE ) ) );
+	}
+
+	/**
+	 * Encodes key values as long. Integral numbers below {@link #MAX_INTEGRAL}
+	 * are encoded as their value, all other values by a code that is unique
+	 * per distinct string. The string codes start at Long.MIN_VALUE + 1,
+	 * such that they do not collide with the encoded numbers.
+	 */
+	static class KeyEncoder
+	{
+		static final long MAX_INTEGRAL = 1_000_000_000_000_000_000L;
+		private static final long NOT_INTEGRAL = Long.MIN_VALUE;
+
+		private final Map< String, Long > stringToCode = new ConcurrentHashMap<>();
+		private final AtomicInteger numCodes = new AtomicInteger();
+
+		long encode( TypedColumn column, int row )
+		{
+			switch ( column.getType() )
+			{
+				case Long:
+					return encodeIntegral( column.getLong( row ) );
+				case Double:
+					final double value = column.getDouble( row );
+					if ( value == ( long ) value ) return encodeIntegral( ( long ) value );
+					// fall through
+				default:
+					return encode( column.get( row ) );
+			}
+		}
+
+		long encode( Object value )
+		{
+			if ( value instanceof Double || value instanceof Float )
+			{
+				final double number = ( ( Number ) value ).doubleValue();
+				if ( number == ( long ) number ) return encodeIntegral( ( long ) number );
+				return encodeString( value.toString() );
+			}
+
+			if ( value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte )
+				return encodeIntegral( ( ( Number ) value ).longValue() );
+
+			return encode( value == null ? null : value.toString() );
+		}
+
+		long encode( String value )
+		{
+			final long integer = parseIntegral( value );
+			if ( integer != NOT_INTEGRAL ) return integer;
+
+			if ( value != null && ! value.isEmpty() && ( Character.isDigit( value.charAt( 0 ) ) || value.charAt( 0 ) == '-' ) )
+			{
+				try
+				{
+					// large integers, which are not exactly representable as double
+					return encodeIntegral( Long.parseLong( value ) );
+				}
+				catch ( NumberFormatException e )
+				{
+					// not a long
+				}
+
+				try
+				{
+					final double number = Double.parseDouble( value );
+					if ( number == ( long ) number && Math.abs( number ) < MAX_INTEGRAL ) return ( long ) number;
+				}
+				catch ( NumberFormatException e )
+				{
+					// not a number
+				}
+			}
+			return encodeString( value );
+		}
+
+		private long encodeIntegral( long value )
+		{
+			if ( value > - MAX_INTEGRAL && value < MAX_INTEGRAL ) return value;
+			return encodeString( Long.toString( value ) );
+		}
+
+		private long encodeString( String value )
+		{
+			final Long code = stringToCode.get( String.valueOf( value ) );
+			if ( code != null ) return code;
+			return stringToCode.computeIfAbsent( String.valueOf( value ), s -> Long.MIN_VALUE + 1 + numCodes.getAndIncrement() );
+		}
+
+		// fast path for values such as 12, -12 or 12.0
+		static long parseIntegral( String value )
+		{
+			if ( value == null ) return NOT_INTEGRAL;
+			final int length = value.length();
+			final int start = length > 0 && value.charAt( 0 ) == '-' ? 1 : 0;
+			if ( length == start || length - start > 18 ) return NOT_INTEGRAL;
+
+			long integer = 0;
+			int i = start;
+			for ( ; i < length; i++ )
+			{
+				final char c = value.charAt( i );
+				if ( c < '0' || c > '9' ) break;
+				integer = 10 * integer + ( c - '0' );
+			}
+			if ( i == start ) return NOT_INTEGRAL;
+			if ( i < length )
+			{
+				if ( value.charAt( i ) != '.' || i == length - 1 ) return NOT_INTEGRAL;
+				for ( i++; i < length; i++ )
+					if ( value.charAt( i ) != '0' ) return NOT_INTEGRAL;
+			}
+			return start == 1 ? - integer : integer;
+		}
+	}
+
+	/**
+	 * An open addressing hash index from the (composite) keys
+	 * of a table to the row index.
+	 */
+	static class KeyIndex
+	{
+		private final long[] keys;
+		private final int numKeys;
+		private final int[] slots; // row + 1, or 0 if empty
+		private final int mask;
+		private int duplicateRow = -1; // the first one
+
+		KeyIndex( long[] keys, int numKeys )
+		{
+			this.keys = keys;
+			this.numKeys = numKeys;
+			final int numRows = numKeys == 0 ? 0 : keys.length / numKeys;
+			int capacity = 2;
+			while ( capacity < 2 * numRows ) capacity <<= 1;
+			slots = new int[ capacity ];
+			mask = capacity - 1;
+
+			for ( int row = 0; row < numRows; row++ )
+			{
+				int slot = hash( keys, row ) & mask;
+				while ( slots[ slot ] != 0 && ! equals( keys, slots[ slot ] - 1, keys, row ) )
+					slot = ( slot + 1 ) & mask;
+				// the last row of a duplicate key wins
+				if ( slots[ slot ] != 0 && duplicateRow < 0 )
+					duplicateRow = row;
+				slots[ slot ] = row + 1;
+			}
+		}
+
+		/**
+		 * @return the first row whose key also occurs in a previous row, or -1 if the keys are unique
+		 */
+		int getDuplicateRow()
+		{
+			return duplicateRow;
+		}
+
+		/**
+		 * @return the row with the same key as the given row of the
+		 * 			given keys, or -1 if there is no such row
+		 */
+		int get( long[] otherKeys, int otherRow )
+		{
+			int slot = hash( otherKeys, otherRow ) & mask;
+			while ( slots[ slot ] != 0 )
+			{
+				if ( equals( keys, slots[ slot ] - 1, otherKeys, otherRow ) )
+					return slots[ slot ] - 1;
+				slot = ( slot + 1 ) & mask;
+			}
+			return -1;
+		}
+
+		private int hash( long[] keys, int row )
+		{
+			long hash = 0;
+			for ( int k = 0; k < numKeys; k++ )
+			{
+				hash = 31 * hash + keys[ row * numKeys + k ];
+				hash ^= hash >>> 33;
+				hash *= 0xff51afd7ed558ccdL;
+				hash ^= hash >>> 33;
+			}
+			return ( int ) hash;
+		}
+
+		private boolean equals( long[] keys, int row, long[] otherKeys, int otherRow )
+		{
+			for ( int k = 0; k < numKeys; k++ )
+				if ( keys[ row * numKeys + k ] != otherKeys[ otherRow * numKeys + k ] )
+					return false;
+			return true;
+		}
+	}
+}
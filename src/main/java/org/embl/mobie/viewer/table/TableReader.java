@@ -0,0 +1,402 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.table;
+
+import org.embl.mobie.io.util.IOHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reads tab, comma or semicolon separated tables into a {@link ColumnarTable}.
+ *
+ * Local files are memory mapped, remote files are streamed.
+ * In both cases the data is split into chunks of complete lines,
+ * which are parsed in parallel. Only the requested columns are parsed;
+ * the type of each column is determined while parsing, see {@link TypedColumn},
+ * and the chunks are converted to the most general type of each column
+ * before they are concatenated.
+ *
+ * Fields may be enclosed in double quotes, in which case they can contain
+ * the delimiter and escaped ("") double quotes, but no line breaks.
+ */
+public class TableReader
+{
+	private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+
+	public static ColumnarTable read( String path )
+	{
+		return read( path, null );
+	}
+
+	/**
+	 * @param path
+	 * 			local file path or URL
+	 * @param columnNames
+	 * 			the columns to be read; all columns are read if null
+	 * @return the table
+	 */
+	public static ColumnarTable read( String path, Collection< String > columnNames )
+	{
+		try
+		{
+			if ( path.contains( "://" ) )
+				return readStream( IOHelper.getInputStream( path ), columnNames );
+			else
+				return readFile( path, columnNames );
+		}
+		catch ( IOException e )
+		{
+			throw new UncheckedIOException( "Could not read table: " + path, e );
+		}
+	}
+
+	private static ColumnarTable readFile( String path, Collection< String > columnNames ) throws IOException
+	{
+		try ( FileChannel channel = FileChannel.open( Paths.get( path ), StandardOpenOption.READ ) )
+		{
+			final long size = channel.size();
+			final long headerEnd = findLineEnd( channel, 0, size );
+			final ByteBuffer headerBuffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, headerEnd );
+			final Header header = new Header( headerBuffer, 0, ( int ) headerEnd, columnNames );
+
+			// line aligned chunk boundaries
+			final ArrayList< Long > boundaries = new ArrayList<>();
+			long position = headerEnd;
+			boundaries.add( position );
+			while ( position < size )
+			{
+				position = findLineEnd( channel, Math.min( size, position + CHUNK_SIZE ), size );
+				boundaries.add( position );
+			}
+
+			final List< TypedColumn[] > chunks = IntStream.range( 0, boundaries.size() - 1 ).parallel().mapToObj( chunkIndex ->
+			{
+				final long start = boundaries.get( chunkIndex );
+				final long end = boundaries.get( chunkIndex + 1 );
+				try
+				{
+					final ByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, start, end - start );
+					return parse( buffer, 0, ( int ) ( end - start ), header );
+				}
+				catch ( IOException e )
+				{
+					throw new UncheckedIOException( e );
+				}
+			} ).collect( Collectors.toList() );
+
+			return header.createTable( chunks );
+		}
+	}
+
+	private static ColumnarTable readStream( InputStream inputStream, Collection< String > columnNames ) throws IOException
+	{
+		try ( InputStream stream = inputStream )
+		{
+			final ArrayList< CompletableFuture< TypedColumn[] > > futures = new ArrayList<>();
+			Header header = null;
+			byte[] remainder = new byte[ 0 ];
+			while ( true )
+			{
+				// read the next chunk, starting with the incomplete
+				// last line of the previous chunk
+				final byte[] bytes = Arrays.copyOf( remainder, Math.max( CHUNK_SIZE, 2 * remainder.length ) );
+				int length = remainder.length;
+				int numRead = 0;
+				while ( length < bytes.length && ( numRead = stream.read( bytes, length, bytes.length - length ) ) != -1 )
+					length += numRead;
+
+				final boolean isLastChunk = numRead == -1;
+				int lineEnd = length;
+				if ( ! isLastChunk )
+				{
+					while ( lineEnd > 0 && bytes[ lineEnd - 1 ] != '\n' )
+						lineEnd--;
+				}
+				remainder = Arrays.copyOfRange( bytes, lineEnd, length );
+
+				final ByteBuffer buffer = ByteBuffer.wrap( bytes );
+				int start = 0;
+				if ( header == null && lineEnd > 0 )
+				{
+					start = ( int ) findLineEnd( buffer, 0, lineEnd );
+					header = new Header( buffer, 0, start, columnNames );
+				}
+
+				if ( header != null && start < lineEnd )
+				{
+					final Header chunkHeader = header;
+					final int chunkStart = start;
+					final int chunkEnd = lineEnd;
+					futures.add( CompletableFuture.supplyAsync( () -> parse( buffer, chunkStart, chunkEnd, chunkHeader ) ) );
+				}
+
+				if ( isLastChunk ) break;
+			}
+
+			if ( header == null )
+				throw new IOException( "The table is empty." );
+
+			final ArrayList< TypedColumn[] > chunks = new ArrayList<>();
+			for ( CompletableFuture< TypedColumn[] > future : futures )
+				chunks.add( future.join() );
+			return header.createTable( chunks );
+		}
+	}
+
+	private static TypedColumn[] parse( ByteBuffer buffer, int from, int to, Header header )
+	{
+		final int numColumns = header.columnNames.size();
+		final TypedColumn[] columns = new TypedColumn[ numColumns ];
+		for ( int i = 0; i < numColumns; i++ )
+			columns[ i ] = new TypedColumn();
+
+		final byte delimiter = header.delimiter;
+		final int[] fieldToColumn = header.fieldToColumn;
+		final int[] bounds = new int[ 3 ];
+		byte[] scratch = new byte[ 256 ];
+		int numRows = 0;
+		int position = from;
+		while ( position < to )
+		{
+			// skip empty lines
+			final byte first = buffer.get( position );
+			if ( first == '\n' || ( first == '\r' && ( position + 1 == to || buffer.get( position + 1 ) == '\n' ) ) )
+			{
+				position += first == '\n' ? 1 : 2;
+				continue;
+			}
+
+			int field = 0;
+			while ( true )
+			{
+				final boolean isLastField = parseField( buffer, position, to, delimiter, bounds );
+				if ( field < fieldToColumn.length && fieldToColumn[ field ] >= 0 )
+				{
+					if ( bounds[ 1 ] - bounds[ 0 ] > scratch.length )
+						scratch = new byte[ 2 * ( bounds[ 1 ] - bounds[ 0 ] ) ];
+					columns[ fieldToColumn[ field ] ].add( decode( buffer, bounds, scratch ) );
+				}
+				field++;
+				position = bounds[ 2 ];
+				if ( isLastField ) break;
+			}
+
+			numRows++;
+			for ( TypedColumn column : columns )
+				if ( column.size() < numRows )
+					column.add( "" ); // missing value
+		}
+
+		return columns;
+	}
+
+	/**
+	 * Finds the field that starts at the given position.
+	 *
+	 * @param bounds
+	 * 			is set to the start and end of the field value, without enclosing
+	 * 			quotes and line break, and to the position after the delimiter or line break;
+	 * 			the end is negated if the value contains escaped quotes
+	 * @return whether the field is the last one of the line
+	 */
+	private static boolean parseField( ByteBuffer buffer, int position, int to, byte delimiter, int[] bounds )
+	{
+		int start = position;
+		int end;
+		boolean hasEscapedQuotes = false;
+		if ( position < to && buffer.get( position ) == '"' )
+		{
+			start = ++position;
+			while ( position < to )
+			{
+				final byte b = buffer.get( position );
+				if ( b == '"' )
+				{
+					if ( position + 1 < to && buffer.get( position + 1 ) == '"' )
+					{
+						hasEscapedQuotes = true;
+						position += 2;
+						continue;
+					}
+					break;
+				}
+				if ( b == '\n' ) break; // unterminated quote
+				position++;
+			}
+			end = position;
+		}
+		else
+		{
+			end = -1;
+		}
+
+		while ( position < to && buffer.get( position ) != delimiter && buffer.get( position ) != '\n' )
+			position++;
+
+		final boolean isLastField = position >= to || buffer.get( position ) == '\n';
+		if ( end < 0 )
+		{
+			end = position;
+			if ( isLastField && end > start && buffer.get( end - 1 ) == '\r' )
+				end--;
+		}
+
+		bounds[ 0 ] = start;
+		bounds[ 1 ] = hasEscapedQuotes ? -end : end;
+		bounds[ 2 ] = position + 1;
+		return isLastField;
+	}
+
+	private static String decode( ByteBuffer buffer, int[] bounds, byte[] scratch )
+	{
+		final int start = bounds[ 0 ];
+		final int end = Math.abs( bounds[ 1 ] );
+		final ByteBuffer field = buffer.duplicate();
+		field.position( start );
+		field.get( scratch, 0, end - start );
+		final String value = new String( scratch, 0, end - start, StandardCharsets.UTF_8 );
+		return bounds[ 1 ] < 0 ? value.replace( "\"\"", "\"" ) : value;
+	}
+
+	// returns the position after the next line break at or after the given position
+	private static long findLineEnd( FileChannel channel, long position, long size ) throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+		while ( position < size )
+		{
+			buffer.clear();
+			final int numRead = channel.read( buffer, position );
+			if ( numRead <= 0 ) break;
+			for ( int i = 0; i < numRead; i++ )
+				if ( buffer.get( i ) == '\n' )
+					return position + i + 1;
+			position += numRead;
+		}
+		return size;
+	}
+
+	private static long findLineEnd( ByteBuffer buffer, int position, int size )
+	{
+		while ( position < size )
+			if ( buffer.get( position++ ) == '\n' )
+				return position;
+		return size;
+	}
+
+	static class Header
+	{
+		final byte delimiter;
+		final List< String > columnNames = new ArrayList<>();
+		final int[] fieldToColumn;
+
+		Header( ByteBuffer buffer, int start, int end, Collection< String > requestedColumnNames )
+		{
+			final byte[] bytes = new byte[ end - start ];
+			for ( int i = 0; i < bytes.length; i++ )
+				bytes[ i ] = buffer.get( start + i );
+			final String line = new String( bytes, StandardCharsets.UTF_8 );
+
+			if ( line.contains( "\t" ) ) delimiter = '\t';
+			else if ( line.contains( "," ) ) delimiter = ',';
+			else if ( line.contains( ";" ) ) delimiter = ';';
+			else delimiter = '\t'; // single column
+
+			final ArrayList< String > fieldNames = new ArrayList<>();
+			final int[] bounds = new int[ 3 ];
+			int position = start;
+			while ( true )
+			{
+				final boolean isLastField = parseField( buffer, position, end, delimiter, bounds );
+				fieldNames.add( decode( buffer, bounds, new byte[ Math.abs( bounds[ 1 ] ) - bounds[ 0 ] ] ) );
+				position = bounds[ 2 ];
+				if ( isLastField ) break;
+			}
+
+			fieldToColumn = new int[ fieldNames.size() ];
+			for ( int field = 0; field < fieldNames.size(); field++ )
+			{
+				final String name = fieldNames.get( field );
+				if ( requestedColumnNames == null || requestedColumnNames.contains( name ) )
+				{
+					fieldToColumn[ field ] = columnNames.size();
+					columnNames.add( name );
+				}
+				else
+				{
+					fieldToColumn[ field ] = -1;
+				}
+			}
+		}
+
+		ColumnarTable createTable( List< TypedColumn[] > chunks )
+		{
+			final ColumnarTable table = new ColumnarTable();
+			for ( int i = 0; i < columnNames.size(); i++ )
+			{
+				// type the column once for the whole table, such that
+				// the chunks are concatenated without creating strings
+				TypedColumn.Type type = null;
+				int numRows = 0;
+				for ( TypedColumn[] chunk : chunks )
+				{
+					final TypedColumn.Type chunkType = chunk[ i ].getType();
+					if ( type == null || chunkType != null && chunkType.ordinal() > type.ordinal() )
+						type = chunkType;
+					numRows += chunk[ i ].size();
+				}
+
+				final TypedColumn column = new TypedColumn( numRows );
+				for ( int chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++ )
+				{
+					if ( type != null )
+						chunks.get( chunkIndex )[ i ].generalize( type );
+					column.addAll( chunks.get( chunkIndex )[ i ] );
+					chunks.get( chunkIndex )[ i ] = null;
+				}
+				table.put( columnNames.get( i ), column );
+			}
+			return table;
+		}
+	}
+}
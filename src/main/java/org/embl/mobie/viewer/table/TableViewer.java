@@ -30,6 +30,7 @@ package org.embl.mobie.viewer.table;
 
 import de.embl.cba.bdv.utils.lut.GlasbeyARGBLut;
 import org.embl.mobie.io.util.IOHelper;
+import org.embl.mobie.viewer.EventDispatcher;
 import org.embl.mobie.viewer.MoBIE;
 import org.embl.mobie.viewer.MoBIEHelper;
 import org.embl.mobie.viewer.annotate.RegionTableRow;
@@ -52,6 +53,7 @@ import net.imglib2.type.numeric.ARGBType;
 import javax.activation.UnsupportedDataTypeException;
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
 import java.awt.*;
 import java.awt.event.*;
@@ -164,9 +166,14 @@ public class TableViewer< T extends TableRow > implements SelectionListener< T >
 	}
 
 	public void registerAsTableRowListener( List< T > tableRows )
+	{
+		registerAsTableRowListener( tableRows, 0 );
+	}
+
+	private void registerAsTableRowListener( List< T > tableRows, int firstRowIndex )
 	{
 		final int numTableRows = tableRows.size();
-		for ( int rowIndex = 0; rowIndex < numTableRows; rowIndex++ )
+		for ( int rowIndex = firstRowIndex; rowIndex < numTableRows; rowIndex++ )
 		{
 			int finalRowIndex = rowIndex;
 
@@ -194,6 +201,60 @@ public class TableViewer< T extends TableRow > implements SelectionListener< T >
 		return tableRows;
 	}
 
+	/**
+	 * Appends rows to the table, e.g. of tables that are loaded
+	 * after the table viewer has been created.
+	 * Must be called on the event dispatch thread.
+	 */
+	public synchronized void addTableRows( List< T > newTableRows )
+	{
+		if ( newTableRows.isEmpty() ) return;
+
+		final int firstRowIndex = tableRows.size();
+		tableRows.addAll( newTableRows );
+		registerAsTableRowListener( tableRows, firstRowIndex );
+
+		final TableModel model = jTable.getModel();
+		if ( ! ( model instanceof DefaultTableModel ) || model.getRowCount() == 0 )
+		{
+			jTable.setModel( new JTableFromTableRowsModelCreator( tableRows ).createJTable().getModel() );
+			return;
+		}
+
+		final DefaultTableModel tableModel = ( DefaultTableModel ) model;
+		final int numColumns = tableModel.getColumnCount();
+		for ( T tableRow : newTableRows )
+		{
+			final Object[] values = new Object[ numColumns ];
+			for ( int column = 0; column < numColumns; column++ )
+			{
+				final String cell = tableRow.getCell( tableModel.getColumnName( column ) );
+				values[ column ] = toColumnType( cell, tableModel.getValueAt( 0, column ) );
+			}
+			tableModel.addRow( values );
+		}
+	}
+
+	private static Object toColumnType( String cell, Object reference )
+	{
+		try
+		{
+			if ( reference instanceof Double )
+				return Utils.parseDouble( cell );
+			if ( reference instanceof Long )
+				return Long.parseLong( cell );
+			if ( reference instanceof Integer )
+				return Integer.parseInt( cell );
+		}
+		catch ( NumberFormatException e )
+		{
+			// a missing value; it must be of the column type, or null,
+			// otherwise the row sorter fails to compare it
+			return reference instanceof Double ? Double.NaN : null;
+		}
+		return cell;
+	}
+
 
 	private void configureTableRowColoring()
 	{
@@ -432,7 +493,7 @@ public class TableViewer< T extends TableRow > implements SelectionListener< T >
 	{
 		String resolvedPath = MoBIEHelper.resolveTablePath( tablePath );
 		Logger.info( "Opening table:\n" + resolvedPath );
-		return TableColumns.stringColumnsFromTableFile( resolvedPath );
+		return TableReader.read( resolvedPath );
 	}
 
 	private void loadColumnsFromProject()
@@ -999,7 +1060,7 @@ public class TableViewer< T extends TableRow > implements SelectionListener< T >
 	@Override
 	public void coloringChanged()
 	{
-		SwingUtilities.invokeLater( () -> repaintTable() );
+		EventDispatcher.dispatch( this, EventDispatcher.Event.ColoringChanged, () -> SwingUtilities.invokeLater( () -> repaintTable() ) );
 	}
 
 	@Override
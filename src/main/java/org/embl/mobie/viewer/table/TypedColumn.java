@@ -0,0 +1,537 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.table;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A table column that stores its values in primitive arrays.
+ *
+ * Columns whose values are all integers are stored as long[],
+ * numeric columns as double[] and all other columns as int[] codes
+ * into a dictionary of their distinct values.
+ * The strings are created on demand in {@link #get(int)}.
+ *
+ * All values are restored exactly, such that the column can be used as
+ * a drop-in replacement of a List< String >: integers in a floating point
+ * column are flagged, such that they are restored without a decimal point.
+ * Other values whose string representation differs from {@link Double#toString}
+ * (e.g. 1e-05, or missing values such as empty cells, which are stored
+ * as NaN) are additionally kept as strings. If this is the case for most
+ * of the values, or if a value that is not a number is added or set,
+ * the column is converted into a dictionary encoded string column.
+ */
+public class TypedColumn extends AbstractList< String > implements RandomAccess
+{
+	private static final int MIN_OVERRIDES_FOR_CONVERSION = 64;
+	private static final long MAX_EXACT_LONG = 1L << 53;
+
+	public enum Type
+	{
+		Long,
+		Double,
+		String
+	}
+
+	private Type type;
+	private int size;
+	private int initialCapacity;
+
+	private long[] longs;
+	private double[] doubles;
+	private BitSet integers; // of the doubles
+	private HashMap< Integer, String > overrides; // of the doubles
+	private int[] codes;
+	private ArrayList< String > dictionary;
+	private HashMap< String, Integer > valueToCode;
+
+	/**
+	 * Creates an empty column; its type is determined
+	 * by the first value that is added.
+	 */
+	public TypedColumn()
+	{
+		this( 10 );
+	}
+
+	public TypedColumn( int initialCapacity )
+	{
+		this.initialCapacity = Math.max( initialCapacity, 10 );
+	}
+
+	public static TypedColumn of( List< String > values )
+	{
+		if ( values instanceof TypedColumn )
+			return ( TypedColumn ) values;
+
+		final TypedColumn column = new TypedColumn( values.size() );
+		for ( String value : values )
+			column.add( value );
+		return column;
+	}
+
+	public Type getType()
+	{
+		return type;
+	}
+
+	public boolean isNumeric()
+	{
+		return type == Type.Long || type == Type.Double;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public String get( int index )
+	{
+		checkIndex( index );
+		switch ( type )
+		{
+			case Long:
+				return Long.toString( longs[ index ] );
+			case Double:
+				if ( ! overrides.isEmpty() )
+				{
+					final String value = overrides.get( index );
+					if ( value != null ) return value;
+				}
+				if ( integers.get( index ) ) return Long.toString( ( long ) doubles[ index ] );
+				return Double.toString( doubles[ index ] );
+			default:
+				return dictionary.get( codes[ index ] );
+		}
+	}
+
+	/**
+	 * @return the value as double, or NaN if the value is not a number
+	 */
+	public double getDouble( int index )
+	{
+		checkIndex( index );
+		switch ( type )
+		{
+			case Long:
+				return longs[ index ];
+			case Double:
+				return doubles[ index ];
+			default:
+				return parseDouble( dictionary.get( codes[ index ] ) );
+		}
+	}
+
+	public long getLong( int index )
+	{
+		checkIndex( index );
+		switch ( type )
+		{
+			case Long:
+				return longs[ index ];
+			case Double:
+				final String value = overrides.get( index );
+				if ( isLong( value ) ) return Long.parseLong( value ); // avoid loss of precision
+				return ( long ) doubles[ index ];
+			default:
+				return ( long ) parseDouble( dictionary.get( codes[ index ] ) );
+		}
+	}
+
+	@Override
+	public String set( int index, String value )
+	{
+		final String previous = get( index );
+		store( index, value );
+		return previous;
+	}
+
+	@Override
+	public boolean add( String value )
+	{
+		if ( type == null )
+		{
+			type = isLong( value ) ? Type.Long : isNumberOrMissing( value ) ? Type.Double : Type.String;
+			allocate( type, initialCapacity );
+		}
+
+		ensureCapacity( size + 1 );
+		size++;
+		store( size - 1, value );
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean addAll( Collection< ? extends String > values )
+	{
+		if ( ! ( values instanceof TypedColumn ) )
+			return super.addAll( values );
+
+		final TypedColumn other = ( TypedColumn ) values;
+		if ( other.size == 0 ) return false;
+
+		if ( type == null )
+		{
+			type = other.type;
+			allocate( type, Math.max( initialCapacity, other.size ) );
+		}
+
+		if ( type != other.type )
+			return super.addAll( values );
+
+		// copy the primitive values without creating strings
+		ensureCapacity( size + other.size );
+		switch ( type )
+		{
+			case Long:
+				System.arraycopy( other.longs, 0, longs, size, other.size );
+				break;
+			case Double:
+				System.arraycopy( other.doubles, 0, doubles, size, other.size );
+				for ( int i = other.integers.nextSetBit( 0 ); i >= 0; i = other.integers.nextSetBit( i + 1 ) )
+					integers.set( size + i );
+				for ( Map.Entry< Integer, String > override : other.overrides.entrySet() )
+					overrides.put( size + override.getKey(), override.getValue() );
+				break;
+			default:
+				final int[] otherCodeToCode = new int[ other.dictionary.size() ];
+				for ( int code = 0; code < otherCodeToCode.length; code++ )
+					otherCodeToCode[ code ] = encode( other.dictionary.get( code ) );
+				for ( int i = 0; i < other.size; i++ )
+					codes[ size + i ] = otherCodeToCode[ other.codes[ i ] ];
+		}
+		size += other.size;
+		modCount++;
+
+		if ( type == Type.Double && hasTooManyOverrides() )
+			convertToString();
+
+		return true;
+	}
+
+	/**
+	 * Creates a new column with the values at the given indices.
+	 *
+	 * @param indices
+	 * 			the indices of the values; negative indices denote missing values
+	 * @param missingValue
+	 * 			the value for the missing values
+	 * @return the new column
+	 */
+	public TypedColumn select( int[] indices, String missingValue )
+	{
+		final TypedColumn selected = new TypedColumn( indices.length );
+		boolean hasMissingValues = false;
+		for ( int index : indices )
+			if ( index < 0 ) hasMissingValues = true;
+
+		if ( type == null || type == Type.Long && hasMissingValues )
+		{
+			for ( int index : indices )
+				selected.add( index < 0 ? missingValue : get( index ) );
+			return selected;
+		}
+
+		selected.type = type;
+		selected.allocate( type, indices.length );
+		selected.size = indices.length;
+		switch ( type )
+		{
+			case Long:
+				for ( int i = 0; i < indices.length; i++ )
+					selected.longs[ i ] = longs[ indices[ i ] ];
+				break;
+			case Double:
+				for ( int i = 0; i < indices.length; i++ )
+				{
+					if ( indices[ i ] < 0 )
+					{
+						selected.store( i, missingValue );
+						if ( selected.type != Type.Double ) break;
+						continue;
+					}
+					selected.doubles[ i ] = doubles[ indices[ i ] ];
+					if ( integers.get( indices[ i ] ) ) selected.integers.set( i );
+					if ( ! overrides.isEmpty() )
+					{
+						final String value = overrides.get( indices[ i ] );
+						if ( value != null ) selected.overrides.put( i, value );
+					}
+				}
+				if ( selected.type != Type.Double )
+				{
+					// the missing value is not a number
+					for ( int i = 0; i < indices.length; i++ )
+						selected.set( i, indices[ i ] < 0 ? missingValue : get( indices[ i ] ) );
+				}
+				else if ( selected.hasTooManyOverrides() )
+				{
+					selected.convertToString();
+				}
+				break;
+			default:
+				selected.dictionary.addAll( dictionary );
+				selected.valueToCode.putAll( valueToCode );
+				for ( int i = 0; i < indices.length; i++ )
+					selected.codes[ i ] = indices[ i ] < 0 ? selected.encode( missingValue ) : codes[ indices[ i ] ];
+		}
+		return selected;
+	}
+
+	/**
+	 * Converts an integer column into a floating point column,
+	 * such that, e.g., 1 will be represented as 1.0.
+	 * Other column types are not changed.
+	 */
+	public void convertToDouble()
+	{
+		if ( type != Type.Long ) return;
+
+		final double[] doubles = new double[ longs.length ];
+		for ( int i = 0; i < size; i++ )
+			doubles[ i ] = longs[ i ];
+		allocate( Type.Double, longs.length );
+		this.doubles = doubles;
+		type = Type.Double;
+	}
+
+	private void store( int index, String value )
+	{
+		switch ( type )
+		{
+			case Long:
+				if ( isLong( value ) )
+				{
+					longs[ index ] = Long.parseLong( value );
+					return;
+				}
+				if ( ! isNumberOrMissing( value ) )
+					break;
+				convertToDoubleKeepingValues();
+				// fall through
+			case Double:
+				if ( ! isNumberOrMissing( value ) )
+					break;
+				if ( ! overrides.isEmpty() ) overrides.remove( index );
+				if ( isLong( value ) && storeInteger( index, Long.parseLong( value ) ) )
+					return;
+				integers.clear( index );
+				final double number = parseDouble( value );
+				doubles[ index ] = number;
+				if ( value != null && value.equals( Double.toString( number ) ) )
+					return;
+				overrides.put( index, value );
+				if ( hasTooManyOverrides() ) convertToString();
+				return;
+			default:
+				codes[ index ] = encode( value );
+				return;
+		}
+
+		convertToString();
+		codes[ index ] = encode( value );
+	}
+
+	private boolean hasTooManyOverrides()
+	{
+		return overrides.size() > MIN_OVERRIDES_FOR_CONVERSION && overrides.size() > size / 2;
+	}
+
+	// returns false if the value cannot be represented exactly as double
+	private boolean storeInteger( int index, long value )
+	{
+		if ( value > MAX_EXACT_LONG || value < -MAX_EXACT_LONG )
+			return false;
+
+		doubles[ index ] = value;
+		integers.set( index );
+		return true;
+	}
+
+	private void convertToDoubleKeepingValues()
+	{
+		final long[] longs = this.longs;
+		convertToDouble();
+		for ( int i = 0; i < size; i++ )
+			if ( ! storeInteger( i, longs[ i ] ) )
+				overrides.put( i, Long.toString( longs[ i ] ) );
+	}
+
+	/**
+	 * Converts the column into the given type, if it is more general
+	 * than the current type (Long, Double, String), keeping all values.
+	 * This is used to give the chunks of a table that are read in parallel
+	 * the same type before they are concatenated.
+	 */
+	void generalize( Type type )
+	{
+		if ( this.type == null || this.type.ordinal() >= type.ordinal() ) return;
+
+		if ( this.type == Type.Long && type == Type.Double )
+			convertToDoubleKeepingValues();
+		else
+			convertToString();
+	}
+
+	private void convertToString()
+	{
+		final int capacity = type == Type.Long ? longs.length : doubles.length;
+		final String[] values = new String[ size ];
+		for ( int i = 0; i < size; i++ )
+			values[ i ] = get( i );
+
+		allocate( Type.String, capacity );
+		type = Type.String;
+		for ( int i = 0; i < size; i++ )
+			codes[ i ] = encode( values[ i ] );
+	}
+
+	private int encode( String value )
+	{
+		Integer code = valueToCode.get( value );
+		if ( code == null )
+		{
+			code = dictionary.size();
+			dictionary.add( value );
+			valueToCode.put( value, code );
+		}
+		return code;
+	}
+
+	private void allocate( Type type, int capacity )
+	{
+		longs = null;
+		doubles = null;
+		integers = null;
+		overrides = null;
+		codes = null;
+		dictionary = null;
+		valueToCode = null;
+
+		switch ( type )
+		{
+			case Long:
+				longs = new long[ capacity ];
+				break;
+			case Double:
+				doubles = new double[ capacity ];
+				integers = new BitSet();
+				overrides = new HashMap<>();
+				break;
+			default:
+				codes = new int[ capacity ];
+				dictionary = new ArrayList<>();
+				valueToCode = new HashMap<>();
+		}
+	}
+
+	private void ensureCapacity( int minCapacity )
+	{
+		final int capacity = type == Type.Long ? longs.length : type == Type.Double ? doubles.length : codes.length;
+		if ( minCapacity <= capacity ) return;
+
+		final int newCapacity = Math.max( minCapacity, capacity + ( capacity >> 1 ) );
+		switch ( type )
+		{
+			case Long:
+				longs = Arrays.copyOf( longs, newCapacity );
+				break;
+			case Double:
+				doubles = Arrays.copyOf( doubles, newCapacity );
+				break;
+			default:
+				codes = Arrays.copyOf( codes, newCapacity );
+		}
+	}
+
+	private void checkIndex( int index )
+	{
+		if ( index < 0 || index >= size )
+			throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+	}
+
+	private static boolean isLong( String value )
+	{
+		if ( value == null || value.isEmpty() || value.length() > 20 ) return false;
+
+		final int start = value.charAt( 0 ) == '-' ? 1 : 0;
+		if ( start == value.length() ) return false;
+		for ( int i = start; i < value.length(); i++ )
+		{
+			final char c = value.charAt( i );
+			if ( c < '0' || c > '9' ) return false;
+		}
+
+		try
+		{
+			// excludes leading zeros and "-0"
+			return Long.toString( Long.parseLong( value ) ).equals( value );
+		}
+		catch ( NumberFormatException e )
+		{
+			return false;
+		}
+	}
+
+	private static boolean isNumberOrMissing( String value )
+	{
+		if ( value == null || value.isEmpty() ) return true;
+		if ( value.equalsIgnoreCase( "nan" ) || value.equals( "NA" ) ) return true;
+		return ! Double.isNaN( parseDouble( value ) );
+	}
+
+	private static double parseDouble( String value )
+	{
+		if ( value == null || value.isEmpty() ) return Double.NaN;
+
+		final char first = value.charAt( 0 );
+		if ( ( first < '0' || first > '9' ) && first != '-' && first != '+' && first != '.' && first != 'N' && first != 'I' )
+			return Double.NaN;
+
+		try
+		{
+			return Double.parseDouble( value );
+		}
+		catch ( NumberFormatException e )
+		{
+			return Double.NaN;
+		}
+	}
+}
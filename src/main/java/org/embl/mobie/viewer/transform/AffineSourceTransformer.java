@@ -33,8 +33,10 @@ import bdv.viewer.Source;
 import bdv.viewer.SourceAndConverter;
 import org.embl.mobie.viewer.playground.SourceAffineTransformer;
 import net.imglib2.realtransform.AffineTransform3D;
+import org.embl.mobie.viewer.source.SourceRegistry;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -71,29 +73,30 @@ public class AffineSourceTransformer extends AbstractSourceTransformer
 	}
 
 	@Override
-	public void transform( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter )
+	public void transform( SourceRegistry sourceRegistry )
 	{
 		affineTransform3D = new AffineTransform3D();
 		affineTransform3D.set( parameters );
 
-		for ( String sourceName : sourceNameToSourceAndConverter.keySet() )
-		{
-			if ( sources.contains( sourceName ) )
-			{
-				SourceAffineTransformer transformer = createSourceAffineTransformer( sourceName );
+		final Map< String, String > sourceNameToTransformedName = createSourceNameToTransformedName( sources, sourceNamesAfterTransform );
 
-				final SourceAndConverter transformedSource = transformer.apply( sourceNameToSourceAndConverter.get( sourceName ) );
+		sourceRegistry.transform( sources, ( sourceName, sourceAndConverter ) -> createSourceAffineTransformer( sourceName, sourceNameToTransformedName ).apply( sourceAndConverter ) );
+	}
 
-				sourceNameToSourceAndConverter.put( transformedSource.getSpimSource().getName(), transformedSource );
-			}
-		}
+	public static Map< String, String > createSourceNameToTransformedName( List< String > sources, List< String > sourceNamesAfterTransform )
+	{
+		final Map< String, String > sourceNameToTransformedName = new HashMap<>();
+		if ( sourceNamesAfterTransform != null )
+			for ( int sourceIndex = 0; sourceIndex < sources.size(); sourceIndex++ )
+				sourceNameToTransformedName.put( sources.get( sourceIndex ), sourceNamesAfterTransform.get( sourceIndex ) );
+		return sourceNameToTransformedName;
 	}
 
-	private SourceAffineTransformer createSourceAffineTransformer( String sourceName )
+	private SourceAffineTransformer createSourceAffineTransformer( String sourceName, Map< String, String > sourceNameToTransformedName )
 	{
 		if ( sourceNamesAfterTransform != null )
 		{
-			return new SourceAffineTransformer( affineTransform3D, sourceNamesAfterTransform.get( sources.indexOf( sourceName ) ) );
+			return new SourceAffineTransformer( affineTransform3D, sourceNameToTransformedName.get( sourceName ) );
 		}
 		else
 		{
@@ -32,6 +32,7 @@ import bdv.viewer.SourceAndConverter;
 import mpicbg.spim.data.sequence.FinalVoxelDimensions;
 import mpicbg.spim.data.sequence.VoxelDimensions;
 import net.imglib2.FinalRealInterval;
+import org.embl.mobie.viewer.source.SourceRegistry;
 import sc.fiji.bdvpg.sourceandconverter.importer.EmptySourceAndConverterCreator;
 import sc.fiji.bdvpg.sourceandconverter.transform.SourceResampler;
 
@@ -47,43 +48,40 @@ public class CropSourceTransformer extends AbstractSourceTransformer
 	protected boolean centerAtOrigin = false;
 
 	@Override
-	public void transform( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter )
+	public void transform( SourceRegistry sourceRegistry )
 	{
-		for ( String sourceName : sourceNameToSourceAndConverter.keySet() )
-		{
-			if ( sources.contains( sourceName ) )
-			{
-				final SourceAndConverter< ? > sourceAndConverter = sourceNameToSourceAndConverter.get( sourceName );
-				String transformedSourceName = getTransformedSourceName( sourceName );
+		final Map< String, String > sourceNameToTransformedName = AffineSourceTransformer.createSourceNameToTransformedName( sources, sourceNamesAfterTransform );
 
-				// determine number of voxels for resampling
-				// the current method may over-sample quite a bit
-				final double smallestVoxelSize = getSmallestVoxelSize( sourceAndConverter );
-				// slightly enlarge the crop
-				// important to deal with quasi 2D images or crops
-				final double[] minMinusVoxelSize = new double[ 3 ];
-				final double[] maxPlusVoxelSize = new double[ 3 ];
-				for ( int d = 0; d < 3; d++ )
-				{
-					minMinusVoxelSize[ d ] = min[ d ] - smallestVoxelSize;
-					maxPlusVoxelSize[ d ] = max[ d ] + smallestVoxelSize;
-				}
-				final FinalVoxelDimensions croppedSourceVoxelDimensions = new FinalVoxelDimensions( sourceAndConverter.getSpimSource().getVoxelDimensions().unit(), smallestVoxelSize, smallestVoxelSize, smallestVoxelSize );
-				int[] numVoxels = getNumVoxels( smallestVoxelSize, maxPlusVoxelSize, minMinusVoxelSize );
-				SourceAndConverter< ? > cropModel = new EmptySourceAndConverterCreator("Model", new FinalRealInterval( minMinusVoxelSize, maxPlusVoxelSize ), numVoxels[ 0 ], numVoxels[ 1 ], numVoxels[ 2 ], croppedSourceVoxelDimensions ).get();
+		sourceRegistry.transform( sources, ( sourceName, sourceAndConverter ) -> crop( sourceAndConverter, getTransformedSourceName( sourceName, sourceNameToTransformedName ) ) );
+	}
 
-				// resample generative source as model source
-				SourceAndConverter< ? > croppedSourceAndConverter = new SourceResampler( sourceAndConverter, cropModel, transformedSourceName, false,false, false,0).get();
+	private SourceAndConverter< ? > crop( SourceAndConverter< ? > sourceAndConverter, String transformedSourceName )
+	{
+		// determine number of voxels for resampling
+		// the current method may over-sample quite a bit
+		final double smallestVoxelSize = getSmallestVoxelSize( sourceAndConverter );
+		// slightly enlarge the crop
+		// important to deal with quasi 2D images or crops
+		final double[] minMinusVoxelSize = new double[ 3 ];
+		final double[] maxPlusVoxelSize = new double[ 3 ];
+		for ( int d = 0; d < 3; d++ )
+		{
+			minMinusVoxelSize[ d ] = min[ d ] - smallestVoxelSize;
+			maxPlusVoxelSize[ d ] = max[ d ] + smallestVoxelSize;
+		}
+		final FinalVoxelDimensions croppedSourceVoxelDimensions = new FinalVoxelDimensions( sourceAndConverter.getSpimSource().getVoxelDimensions().unit(), smallestVoxelSize, smallestVoxelSize, smallestVoxelSize );
+		int[] numVoxels = getNumVoxels( smallestVoxelSize, maxPlusVoxelSize, minMinusVoxelSize );
+		SourceAndConverter< ? > cropModel = new EmptySourceAndConverterCreator("Model", new FinalRealInterval( minMinusVoxelSize, maxPlusVoxelSize ), numVoxels[ 0 ], numVoxels[ 1 ], numVoxels[ 2 ], croppedSourceVoxelDimensions ).get();
 
-				if ( centerAtOrigin )
-				{
-					croppedSourceAndConverter = TransformHelper.centerAtOrigin( croppedSourceAndConverter );
-				}
+		// resample generative source as model source
+		SourceAndConverter< ? > croppedSourceAndConverter = new SourceResampler( sourceAndConverter, cropModel, transformedSourceName, false,false, false,0).get();
 
-				// store result
-				sourceNameToSourceAndConverter.put( croppedSourceAndConverter.getSpimSource().getName(), croppedSourceAndConverter );
-			}
+		if ( centerAtOrigin )
+		{
+			croppedSourceAndConverter = TransformHelper.centerAtOrigin( croppedSourceAndConverter );
 		}
+
+		return croppedSourceAndConverter;
 	}
 
 	@Override
@@ -115,11 +113,11 @@ public class CropSourceTransformer extends AbstractSourceTransformer
 		return smallestVoxelSize;
 	}
 
-	private String getTransformedSourceName( String inputSourceName )
+	private String getTransformedSourceName( String inputSourceName, Map< String, String > sourceNameToTransformedName )
 	{
 		if ( sourceNamesAfterTransform != null )
 		{
-			return sourceNamesAfterTransform.get( this.sources.indexOf( inputSourceName ) );
+			return sourceNameToTransformedName.get( inputSourceName );
 		}
 		else
 		{
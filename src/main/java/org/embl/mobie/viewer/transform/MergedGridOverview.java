@@ -0,0 +1,362 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.transform;
+
+import ij.IJ;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.NumericType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+import org.embl.mobie.viewer.MoBIE;
+import org.embl.mobie.viewer.MultiThreading;
+import org.embl.mobie.viewer.SourceNameEncoder;
+import org.embl.mobie.viewer.TaskGroup;
+import org.embl.mobie.viewer.cache.CacheManager;
+import org.embl.mobie.viewer.cache.DiskChunkCache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Downsampled versions of the coarsest resolution level of a merged grid
+ * at one timepoint, which are served for the coarse zoom levels, such that
+ * the whole grid can be shown without loading data from every grid source.
+ *
+ * The overview is created once, by reading all grid sources in the background,
+ * and stored in the overview cache of the {@link CacheManager}, such that it is
+ * available immediately when the merged grid is opened again.
+ * Intensities are averaged, whereas labels are subsampled.
+ *
+ * The raw label values are stored, because the encoding of the source names
+ * differs between sessions; the names are encoded when the overview is read.
+ */
+public class MergedGridOverview< T extends NativeType< T > & NumericType< T > >
+{
+	/**
+	 * The maximal size of the finest overview level.
+	 */
+	public static int maxSize = 2048;
+
+	/**
+	 * The minimal size of the coarsest overview level.
+	 */
+	public static int minSize = 256;
+
+	private final RandomAccessibleInterval< T > coarsestLevel;
+	private final int[] gridCellDimensions;
+	private final List< int[] > positions;
+	private final List< String > sourceNames;
+	private final SourceNameEncoder sourceNameEncoder;
+	private final boolean isLabels;
+	private final String name;
+	private final String key;
+	private final T type;
+	private final List< Integer > downsamplingFactors = new ArrayList<>();
+	private final List< ArrayImg< T, ? > > imgs = new ArrayList<>();
+	private volatile boolean ready = false;
+
+	/**
+	 * @param coarsestLevel
+	 * 			the coarsest resolution level of the merged grid, without encoded source names
+	 * @param gridCellDimensions
+	 * 			the dimensions of a grid cell at the coarsest level
+	 * @param sourceNames
+	 * 			the names of the sources at the positions
+	 * @param sourceNameEncoder
+	 * 			encodes the source names into the labels, see {@link SourceNameEncoder};
+	 * 			null, if the pixels are not labels whose source names are encoded
+	 * @param isLabels
+	 * 			whether the pixels are labels, which are subsampled instead of averaged,
+	 * 			also if their source names are not encoded
+	 * @param key
+	 * 			identifies the content of the merged grid in the overview cache
+	 */
+	public MergedGridOverview( RandomAccessibleInterval< T > coarsestLevel, int[] gridCellDimensions, List< int[] > positions, List< String > sourceNames, SourceNameEncoder sourceNameEncoder, boolean isLabels, T type, String name, String key )
+	{
+		this.coarsestLevel = coarsestLevel;
+		this.gridCellDimensions = gridCellDimensions;
+		this.positions = positions;
+		this.sourceNames = sourceNames;
+		this.sourceNameEncoder = sourceNameEncoder;
+		this.isLabels = isLabels || sourceNameEncoder != null;
+		this.type = type;
+		this.name = name;
+		this.key = key;
+
+		final long size = Math.max( coarsestLevel.dimension( 0 ), coarsestLevel.dimension( 1 ) );
+		for ( int factor = 2; size / factor >= minSize; factor *= 2 )
+			if ( size / factor <= maxSize )
+				downsamplingFactors.add( factor );
+	}
+
+	public int getNumLevels()
+	{
+		return downsamplingFactors.size();
+	}
+
+	/**
+	 * @return the downsampling factor of an overview level, relative to the coarsest resolution level
+	 */
+	public int getDownsamplingFactor( int level )
+	{
+		return downsamplingFactors.get( level );
+	}
+
+	public boolean isReady()
+	{
+		return ready;
+	}
+
+	/**
+	 * @return the overview image or null, if it has not been created yet
+	 */
+	public RandomAccessibleInterval< T > getImg( int level )
+	{
+		return ready ? imgs.get( level ) : null;
+	}
+
+	/**
+	 * Reads the overview from the overview cache, or creates it in the background.
+	 */
+	public void loadOrCreate()
+	{
+		if ( getNumLevels() == 0 ) return;
+
+		final ArrayImgFactory< T > factory = new ArrayImgFactory<>( type );
+		for ( int level = 0; level < getNumLevels(); level++ )
+			imgs.add( factory.create( getDimensions( level ) ) );
+
+		if ( load() )
+		{
+			encodeSourceNames();
+			ready = true;
+			return;
+		}
+
+		final long startTime = System.currentTimeMillis();
+		final TaskGroup taskGroup = MultiThreading.createTaskGroup( "Creating overview of " + name );
+		for ( int[] position : positions )
+			taskGroup.submit( () -> downsampleGridCell( position ) );
+
+		MultiThreading.ioExecutorService.submit( () ->
+		{
+			taskGroup.waitUntilFinished();
+			if ( taskGroup.isCancelled() || taskGroup.getFailure() != null )
+				return;
+
+			for ( int level = 1; level < getNumLevels(); level++ )
+			{
+				final int factor = downsamplingFactors.get( level ) / downsamplingFactors.get( level - 1 );
+				downsample( imgs.get( level - 1 ), imgs.get( level ), imgs.get( level ), factor );
+			}
+			save();
+			encodeSourceNames();
+			ready = true;
+
+			final long duration = System.currentTimeMillis() - startTime;
+			if ( duration > MoBIE.minLogTimeMillis )
+				IJ.log( "Created overview of " + name + " in " + duration + " ms." );
+		} );
+	}
+
+	private long[] getDimensions( int level )
+	{
+		final long[] dimensions = coarsestLevel.dimensionsAsLongArray();
+		for ( int d = 0; d < dimensions.length; d++ )
+			dimensions[ d ] = ceilDiv( dimensions[ d ], downsamplingFactors.get( level ) );
+		return dimensions;
+	}
+
+	/**
+	 * @return the part of an overview level that shows the grid cell at the given position
+	 */
+	private Interval getGridCellInterval( int level, int[] position )
+	{
+		final int factor = downsamplingFactors.get( level );
+		final long[] min = imgs.get( level ).minAsLongArray();
+		final long[] max = imgs.get( level ).maxAsLongArray();
+		for ( int d = 0; d < 2; d++ )
+		{
+			min[ d ] = ceilDiv( ( long ) position[ d ] * gridCellDimensions[ d ], factor );
+			max[ d ] = Math.min( max[ d ], ceilDiv( ( long ) ( position[ d ] + 1 ) * gridCellDimensions[ d ], factor ) - 1 );
+		}
+		return new FinalInterval( min, max );
+	}
+
+	private void downsampleGridCell( int[] position )
+	{
+		final long[] min = coarsestLevel.minAsLongArray();
+		final long[] max = coarsestLevel.maxAsLongArray();
+		for ( int d = 0; d < 2; d++ )
+		{
+			min[ d ] = ( long ) position[ d ] * gridCellDimensions[ d ];
+			max[ d ] = Math.min( max[ d ], min[ d ] + gridCellDimensions[ d ] - 1 );
+		}
+		// do not average across the border of the grid cell, such that only this grid source is read
+		final RandomAccessibleInterval< T > gridCell = Views.interval( coarsestLevel, new FinalInterval( min, max ) );
+		downsample( gridCell, imgs.get( 0 ), getGridCellInterval( 0, position ), downsamplingFactors.get( 0 ) );
+	}
+
+	/**
+	 * Writes the downsampled source into the given part of the target;
+	 * intensities are averaged within the blocks of the size of the factor,
+	 * labels are subsampled.
+	 */
+	private void downsample( RandomAccessibleInterval< T > source, RandomAccessibleInterval< T > target, Interval targetInterval, int factor )
+	{
+		final boolean average = ! isLabels && type instanceof RealType;
+		final int numDimensions = source.numDimensions();
+		final Cursor< T > cursor = Views.interval( target, targetInterval ).localizingCursor();
+		final RandomAccess< T > access = source.randomAccess();
+		final long[] min = new long[ numDimensions ];
+		final long[] max = new long[ numDimensions ];
+		final long[] position = new long[ numDimensions ];
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			for ( int d = 0; d < numDimensions; d++ )
+			{
+				min[ d ] = Math.max( source.min( d ), cursor.getLongPosition( d ) * factor );
+				max[ d ] = average ? Math.min( source.max( d ), cursor.getLongPosition( d ) * factor + factor - 1 ) : min[ d ];
+			}
+
+			if ( ! average )
+			{
+				access.setPosition( min );
+				cursor.get().set( access.get() );
+				continue;
+			}
+
+			double sum = 0;
+			long count = 0;
+			System.arraycopy( min, 0, position, 0, numDimensions );
+			while ( true )
+			{
+				access.setPosition( position );
+				sum += ( ( RealType< ? > ) access.get() ).getRealDouble();
+				count++;
+
+				int d = 0;
+				while ( d < numDimensions && position[ d ] == max[ d ] )
+				{
+					position[ d ] = min[ d ];
+					d++;
+				}
+				if ( d == numDimensions ) break;
+				position[ d ]++;
+			}
+			( ( RealType< ? > ) cursor.get() ).setReal( sum / count );
+		}
+	}
+
+	private void encodeSourceNames()
+	{
+		if ( sourceNameEncoder == null ) return;
+
+		for ( int level = 0; level < getNumLevels(); level++ )
+		{
+			for ( int positionIndex = 0; positionIndex < positions.size(); positionIndex++ )
+			{
+				final long encodedName = sourceNameEncoder.getEncodedName( sourceNames.get( positionIndex ), type );
+				for ( T value : Views.interval( imgs.get( level ), getGridCellInterval( level, positions.get( positionIndex ) ) ) )
+				{
+					final IntegerType< ? > label = ( IntegerType< ? > ) value;
+					label.setInteger( label.getIntegerLong() + encodedName );
+				}
+			}
+		}
+	}
+
+	private static long ceilDiv( long x, long y )
+	{
+		return ( x + y - 1 ) / y;
+	}
+
+	private String getCacheKey( int level )
+	{
+		return DiskChunkCache.createKey( "overview:" + key, "raw-overview" + level, imgs.get( level ).dimensionsAsLongArray() );
+	}
+
+	// integer values are stored as longs, such that they are exact, and all other values as doubles
+	private boolean load()
+	{
+		final DiskChunkCache overviewCache = CacheManager.getInstance().getOverviewCache();
+		if ( overviewCache == null || ! ( type instanceof RealType ) ) return false;
+
+		final List< byte[] > levelBytes = new ArrayList<>();
+		for ( int level = 0; level < getNumLevels(); level++ )
+		{
+			final byte[] bytes = overviewCache.get( getCacheKey( level ) );
+			if ( bytes == null || bytes.length != 8 * imgs.get( level ).size() ) return false;
+			levelBytes.add( bytes );
+		}
+
+		for ( int level = 0; level < getNumLevels(); level++ )
+		{
+			final ByteBuffer buffer = ByteBuffer.wrap( levelBytes.get( level ) );
+			for ( T value : imgs.get( level ) )
+			{
+				if ( value instanceof IntegerType )
+					( ( IntegerType< ? > ) value ).setInteger( buffer.getLong() );
+				else
+					( ( RealType< ? > ) value ).setReal( buffer.getDouble() );
+			}
+		}
+		return true;
+	}
+
+	private void save()
+	{
+		final DiskChunkCache overviewCache = CacheManager.getInstance().getOverviewCache();
+		if ( overviewCache == null || ! ( type instanceof RealType ) ) return;
+
+		for ( int level = 0; level < getNumLevels(); level++ )
+		{
+			if ( 8 * imgs.get( level ).size() > Integer.MAX_VALUE ) return;
+			final ByteBuffer buffer = ByteBuffer.allocate( ( int ) ( 8 * imgs.get( level ).size() ) );
+			for ( T value : imgs.get( level ) )
+			{
+				if ( value instanceof IntegerType )
+					buffer.putLong( ( ( IntegerType< ? > ) value ).getIntegerLong() );
+				else
+					buffer.putDouble( ( ( RealType< ? > ) value ).getRealDouble() );
+			}
+			overviewCache.put( getCacheKey( level ), buffer.array() );
+		}
+	}
+}
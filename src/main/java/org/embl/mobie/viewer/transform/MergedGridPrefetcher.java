@@ -0,0 +1,81 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.transform;
+
+import bdv.util.MipmapTransforms;
+import bdv.viewer.Source;
+import bdv.viewer.TimePointListener;
+import bdv.viewer.ViewerPanel;
+import net.imglib2.FinalRealInterval;
+import net.imglib2.Interval;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.util.Intervals;
+
+/**
+ * Prefetches the currently viewed part of a merged grid at the
+ * neighbouring timepoints, whenever the timepoint of the viewer changes.
+ *
+ * Only one prefetcher is needed per merged grid, because the
+ * volatile version of a merged grid shares the cached data.
+ */
+public class MergedGridPrefetcher implements TimePointListener
+{
+	private final ViewerPanel viewerPanel;
+	private final Source< ? > source;
+	private final MergedGridSource< ? > mergedGridSource;
+
+	/**
+	 * @param source
+	 * 			the displayed source, which wraps the merged grid source
+	 */
+	public MergedGridPrefetcher( ViewerPanel viewerPanel, Source< ? > source, MergedGridSource< ? > mergedGridSource )
+	{
+		this.viewerPanel = viewerPanel;
+		this.source = source;
+		this.mergedGridSource = mergedGridSource;
+	}
+
+	@Override
+	public void timePointChanged( int timepoint )
+	{
+		final AffineTransform3D viewerTransform = viewerPanel.state().getViewerTransform();
+		final int level = MipmapTransforms.getBestMipMapLevel( viewerTransform, source, timepoint );
+
+		final AffineTransform3D sourceToScreen = new AffineTransform3D();
+		source.getSourceTransform( timepoint, level, sourceToScreen );
+		sourceToScreen.preConcatenate( viewerTransform );
+
+		final FinalRealInterval screen = new FinalRealInterval(
+				new double[]{ 0, 0, 0 },
+				new double[]{ viewerPanel.getDisplay().getWidth(), viewerPanel.getDisplay().getHeight(), 0 } );
+		final Interval interval = Intervals.smallestContainingInterval( sourceToScreen.inverse().estimateBounds( screen ) );
+
+		mergedGridSource.prefetchNeighbours( timepoint, level, interval );
+	}
+}
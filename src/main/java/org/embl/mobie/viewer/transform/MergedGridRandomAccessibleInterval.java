@@ -0,0 +1,280 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.transform;
+
+import bdv.viewer.Source;
+import net.imglib2.AbstractInterval;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.Volatile;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import org.embl.mobie.viewer.SourceNameEncoder;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A virtual view of a merged grid that directly reads the pixels of the
+ * grid sources, i.e. without copying them into a separate cache.
+ *
+ * A position is routed to its grid source via an array index that is
+ * computed from the grid cell coordinates. Positions that are not covered
+ * by the data of any grid source have the given background value.
+ * If the source names should be encoded, this is done by a converter on
+ * the fly.
+ */
+public class MergedGridRandomAccessibleInterval< T extends Type< T > > extends AbstractInterval implements RandomAccessibleInterval< T >
+{
+	private final int[] gridCellDimensions;
+	private final int numGridCellsX;
+	private final int numGridCellsY;
+	private final Source< T >[] gridCellToSource;
+	private final AtomicReferenceArray< RandomAccessible< T > > gridCellToData;
+	private final int timepoint;
+	private final int level;
+	private final SourceNameEncoder sourceNameEncoder;
+	private final T background;
+
+	/**
+	 * @param dimensions
+	 * 			the dimensions of the merged grid
+	 * @param gridCellDimensions
+	 * 			the dimensions of one grid cell at this resolution level
+	 * @param gridSources
+	 * 			the sources that are placed in the grid
+	 * @param positions
+	 * 			the grid positions of the sources
+	 * @param sourceNameEncoder
+	 * 			encodes the names of the grid sources into the pixel values;
+	 * 			null, if the pixel values are shown as they are
+	 * @param background
+	 * 			the value of the pixels that are not covered by any source
+	 */
+	public MergedGridRandomAccessibleInterval( long[] dimensions, int[] gridCellDimensions, List< ? extends Source< T > > gridSources, List< int[] > positions, int timepoint, int level, SourceNameEncoder sourceNameEncoder, T background )
+	{
+		super( dimensions );
+		this.gridCellDimensions = gridCellDimensions;
+		this.timepoint = timepoint;
+		this.level = level;
+		this.sourceNameEncoder = sourceNameEncoder;
+		this.background = background;
+
+		numGridCellsX = ( int ) ( dimensions[ 0 ] / gridCellDimensions[ 0 ] );
+		numGridCellsY = ( int ) ( dimensions[ 1 ] / gridCellDimensions[ 1 ] );
+
+		gridCellToSource = new Source[ numGridCellsX * numGridCellsY ];
+		for ( int positionIndex = 0; positionIndex < positions.size(); positionIndex++ )
+		{
+			final int[] position = positions.get( positionIndex );
+			gridCellToSource[ position[ 0 ] + position[ 1 ] * numGridCellsX ] = gridSources.get( positionIndex );
+		}
+		gridCellToData = new AtomicReferenceArray<>( gridCellToSource.length );
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess()
+	{
+		return new MergedGridRandomAccess();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess( Interval interval )
+	{
+		return randomAccess();
+	}
+
+	/**
+	 * Triggers the loading of the data of the grid sources within the
+	 * given interval, as far as it is stored in cells; for volatile data,
+	 * the loading is only queued.
+	 */
+	public void prefetch( Interval interval )
+	{
+		final long minX = Math.max( 0, Math.floorDiv( interval.min( 0 ), gridCellDimensions[ 0 ] ) );
+		final long maxX = Math.min( numGridCellsX - 1, Math.floorDiv( interval.max( 0 ), gridCellDimensions[ 0 ] ) );
+		final long minY = Math.max( 0, Math.floorDiv( interval.min( 1 ), gridCellDimensions[ 1 ] ) );
+		final long maxY = Math.min( numGridCellsY - 1, Math.floorDiv( interval.max( 1 ), gridCellDimensions[ 1 ] ) );
+
+		for ( long y = minY; y <= maxY; y++ )
+		{
+			for ( long x = minX; x <= maxX; x++ )
+			{
+				if ( Thread.currentThread().isInterrupted() ) return;
+
+				final int gridCellIndex = ( int ) ( x + y * numGridCellsX );
+				if ( gridCellToSource[ gridCellIndex ] == null ) continue;
+
+				final RandomAccessibleInterval< T > rai = gridCellToSource[ gridCellIndex ].getSource( timepoint, level );
+				if ( ! ( rai instanceof AbstractCellImg ) ) continue;
+
+				// the interval in the coordinates of the grid source
+				final long[] translation = getTranslation( gridCellIndex, rai );
+				final long[] min = new long[ rai.numDimensions() ];
+				final long[] max = new long[ rai.numDimensions() ];
+				for ( int d = 0; d < min.length; d++ )
+				{
+					if ( d >= interval.numDimensions() )
+					{
+						min[ d ] = rai.min( d );
+						max[ d ] = rai.max( d );
+						continue;
+					}
+					final long offset = ( d < 2 ? translation[ d ] : 0 ) - rai.min( d );
+					min[ d ] = interval.min( d ) - offset;
+					max[ d ] = interval.max( d ) - offset;
+				}
+				final FinalInterval intersection = Intervals.intersect( rai, new FinalInterval( min, max ) );
+				if ( Intervals.isEmpty( intersection ) ) continue;
+
+				MergedGridSource.prefetch( ( AbstractCellImg< ?, ?, ?, ? > ) rai, intersection );
+			}
+		}
+	}
+
+	private long[] getTranslation( int gridCellIndex, RandomAccessibleInterval< T > rai )
+	{
+		final long[] gridCellMin = new long[ 2 ];
+		gridCellMin[ 0 ] = ( long ) ( gridCellIndex % numGridCellsX ) * gridCellDimensions[ 0 ];
+		gridCellMin[ 1 ] = ( long ) ( gridCellIndex / numGridCellsX ) * gridCellDimensions[ 1 ];
+		final long[] translation = new long[ rai.numDimensions() ];
+		for ( int d = 0; d < 2; d++ )
+			translation[ d ] = gridCellMin[ d ] + ( long ) ( ( gridCellDimensions[ d ] - rai.dimension( d ) ) / 2.0 );
+		return translation;
+	}
+
+	/**
+	 * The data of the grid sources is only fetched once a position
+	 * within the respective grid cell is accessed, such that grid
+	 * sources that are never looked at are not opened.
+	 */
+	private RandomAccessible< T > getData( int gridCellIndex )
+	{
+		RandomAccessible< T > data = gridCellToData.get( gridCellIndex );
+		if ( data != null ) return data;
+
+		final Source< T > source = gridCellToSource[ gridCellIndex ];
+		RandomAccessibleInterval< T > rai = source.getSource( timepoint, level );
+		rai = Views.translate( Views.zeroMin( rai ), getTranslation( gridCellIndex, rai ) );
+		if ( sourceNameEncoder != null )
+			rai = encodeName( rai, source.getName() );
+
+		data = Views.extendValue( rai, background );
+		gridCellToData.compareAndSet( gridCellIndex, null, data );
+		return gridCellToData.get( gridCellIndex );
+	}
+
+	private RandomAccessibleInterval< T > encodeName( RandomAccessibleInterval< T > rai, String name )
+	{
+		// look up the name only once, not for every pixel
+		final T type = background.createVariable();
+		final long encodedName = sourceNameEncoder.getEncodedName( name, type );
+
+		if ( type instanceof IntegerType )
+		{
+			return Converters.convert( rai, ( input, output ) -> {
+				output.set( input );
+				final IntegerType< ? > value = ( IntegerType< ? > ) output;
+				value.setInteger( value.getIntegerLong() + encodedName );
+			}, type );
+		}
+		else if ( type instanceof Volatile && ( ( Volatile< ? > ) type ).get() instanceof IntegerType )
+		{
+			return Converters.convert( rai, ( input, output ) -> {
+				output.set( input );
+				final IntegerType< ? > value = ( IntegerType< ? > ) ( ( Volatile< ? > ) output ).get();
+				value.setInteger( value.getIntegerLong() + encodedName );
+			}, type );
+		}
+		else
+		{
+			throw new UnsupportedOperationException( "Cannot encode the source name for pixels of type " + type.getClass().getName() );
+		}
+	}
+
+	class MergedGridRandomAccess extends Point implements RandomAccess< T >
+	{
+		private final RandomAccess< T >[] gridCellToAccess;
+
+		MergedGridRandomAccess()
+		{
+			super( MergedGridRandomAccessibleInterval.this.numDimensions() );
+			gridCellToAccess = new RandomAccess[ gridCellToSource.length ];
+		}
+
+		MergedGridRandomAccess( MergedGridRandomAccess randomAccess )
+		{
+			this();
+			setPosition( randomAccess );
+		}
+
+		@Override
+		public T get()
+		{
+			final long gridCellX = Math.floorDiv( position[ 0 ], gridCellDimensions[ 0 ] );
+			final long gridCellY = Math.floorDiv( position[ 1 ], gridCellDimensions[ 1 ] );
+			if ( gridCellX < 0 || gridCellX >= numGridCellsX || gridCellY < 0 || gridCellY >= numGridCellsY )
+				return background;
+
+			final int gridCellIndex = ( int ) ( gridCellX + gridCellY * numGridCellsX );
+			RandomAccess< T > access = gridCellToAccess[ gridCellIndex ];
+			if ( access == null )
+			{
+				if ( gridCellToSource[ gridCellIndex ] == null )
+					return background;
+
+				access = getData( gridCellIndex ).randomAccess();
+				gridCellToAccess[ gridCellIndex ] = access;
+			}
+
+			access.setPosition( this );
+			return access.get();
+		}
+
+		@Override
+		public MergedGridRandomAccess copy()
+		{
+			return new MergedGridRandomAccess( this );
+		}
+
+		@Override
+		public MergedGridRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+}
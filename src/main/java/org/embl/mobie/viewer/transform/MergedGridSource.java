@@ -36,28 +36,40 @@ import bdv.viewer.Source;
 import bdv.viewer.SourceAndConverter;
 import mpicbg.spim.data.sequence.VoxelDimensions;
 import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealRandomAccessible;
+import net.imglib2.Volatile;
 import net.imglib2.cache.img.CachedCellImg;
 import net.imglib2.cache.img.CellLoader;
-import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
-import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
 import net.imglib2.cache.img.SingleCellArrayImg;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.CellGrid;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.roi.RealMaskRealInterval;
 import net.imglib2.roi.geom.GeomMasks;
 import net.imglib2.type.NativeType;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.NumericType;
-import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 import org.embl.mobie.viewer.MoBIEHelper;
+import org.embl.mobie.viewer.MultiThreading;
 import org.embl.mobie.viewer.SourceNameEncoder;
+import org.embl.mobie.viewer.TaskGroup;
+import org.embl.mobie.viewer.cache.CacheManager;
 import org.embl.mobie.viewer.source.LabelSource;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -65,57 +77,169 @@ import java.util.Set;
 
 public class MergedGridSource< T extends NativeType< T > & NumericType< T > > implements Source< T >, RealMaskSource
 {
+	/**
+	 * The default size of the blocks in which the merged grid is loaded and cached.
+	 */
+	public static final int[] DEFAULT_BLOCK_SIZE = new int[]{ 512, 512, 64 };
+
+	/**
+	 * The number of timepoints for which the merged grid is kept in memory,
+	 * i.e. the current timepoint and the prefetched previous and next one.
+	 */
+	public static final int NUM_CACHED_TIMEPOINTS = 3;
+
+	/**
+	 * Merged grids with at least this number of positions get
+	 * an overview for the coarse zoom levels, see {@link MergedGridOverview}.
+	 */
+	public static int overviewMinNumPositions = 100;
+
 	private final T type;
 	private final Source< T > referenceSource;
 	private final String mergedGridSourceName;
-	private final List< RandomAccessibleInterval< T > > mergedRandomAccessibleIntervals;
+	private final Map< Integer, MergedTimepoint > timepointToMergedTimepoint;
 	private final DefaultInterpolators< T > interpolators;
 	private final List< Source< T > > gridSources;
 	private final List< int[] > positions;
 	private final double relativeCellMargin;
-	private final boolean encodeSource;
-	private int currentTimepoint = 0;
+	private final SourceNameEncoder sourceNameEncoder;
+	private final boolean isLabels;
+	private final String location;
+	private final int[] blockSize;
+	private final boolean virtual;
+	private volatile int currentTimepoint = 0;
+	private TaskGroup prefetching;
+	private long[][] mergedDimensions;
 	private Map< String, long[] > sourceNameToVoxelTranslation;
 	private int[][] cellDimensions;
 	private double[] cellRealDimensions;
 	private Set< SourceAndConverter > containedSourceAndConverters;
 	private RealMaskRealInterval mask;
+	// the overviews of the most recently viewed timepoints, access ordered;
+	// they are not accounted for by the CacheManager, but they are small and bounded:
+	// at most NUM_CACHED_TIMEPOINTS overviews, whose finest level has at most MergedGridOverview.maxSize pixels along x and y
+	private final Map< Integer, MergedGridOverview< T > > timepointToOverview = new LinkedHashMap< Integer, MergedGridOverview< T > >( 16, 0.75f, true )
+	{
+		@Override
+		protected boolean removeEldestEntry( Map.Entry< Integer, MergedGridOverview< T > > eldest )
+		{
+			return size() > NUM_CACHED_TIMEPOINTS;
+		}
+	};
+	// the merged grid that creates the overviews, this one or, for a volatile merged grid, the non-volatile one
+	private MergedGridSource< ? > overviewSource;
+	private int[] overviewDownsamplingFactors = new int[ 0 ];
+
+	/**
+	 * @param sourceNameEncoder
+	 * 			encodes the names of the grid sources into the pixel values,
+	 * 			see {@link SourceNameEncoder}; null, if the pixel values
+	 * 			are shown as they are
+	 */
+	public MergedGridSource( List< Source< T > > gridSources, List< int[] > positions, String mergedGridSourceName, double relativeCellMargin, SourceNameEncoder sourceNameEncoder )
+	{
+		this( gridSources, positions, mergedGridSourceName, relativeCellMargin, sourceNameEncoder, sourceNameEncoder != null, "", false, DEFAULT_BLOCK_SIZE );
+	}
+
+	/**
+	 * @param blockSize
+	 * 			the size of the blocks in which the merged grid is loaded and cached;
+	 * 			independent of the size of the grid cells, such that only the visible
+	 * 			parts of the grid sources are loaded
+	 */
+	public MergedGridSource( List< Source< T > > gridSources, List< int[] > positions, String mergedGridSourceName, double relativeCellMargin, SourceNameEncoder sourceNameEncoder, int[] blockSize )
+	{
+		this( gridSources, positions, mergedGridSourceName, relativeCellMargin, sourceNameEncoder, sourceNameEncoder != null, "", false, blockSize );
+	}
+
+	/**
+	 * @param virtual
+	 * 			if true, the pixels are read directly from the grid sources,
+	 * 			see {@link MergedGridRandomAccessibleInterval}; otherwise they are
+	 * 			copied block-wise into a cache of the merged grid.
+	 * 			As the virtual merged grid does not load any data itself,
+	 * 			the grid sources must already be volatile if the merged
+	 * 			grid should be rendered as a volatile source.
+	 */
+	public MergedGridSource( List< Source< T > > gridSources, List< int[] > positions, String mergedGridSourceName, double relativeCellMargin, SourceNameEncoder sourceNameEncoder, boolean virtual )
+	{
+		this( gridSources, positions, mergedGridSourceName, relativeCellMargin, sourceNameEncoder, sourceNameEncoder != null, "", virtual, DEFAULT_BLOCK_SIZE );
+	}
+
+	/**
+	 * @param isLabels
+	 * 			whether the pixels are labels, which are subsampled
+	 * 			instead of averaged in the overview, see {@link MergedGridOverview}
+	 * @param location
+	 * 			where the grid sources are stored, e.g. the root of the dataset;
+	 * 			it identifies the overview in the overview cache, together
+	 * 			with the names and positions of the grid sources
+	 */
+	public MergedGridSource( List< Source< T > > gridSources, List< int[] > positions, String mergedGridSourceName, double relativeCellMargin, SourceNameEncoder sourceNameEncoder, boolean isLabels, String location, boolean virtual )
+	{
+		this( gridSources, positions, mergedGridSourceName, relativeCellMargin, sourceNameEncoder, isLabels, location, virtual, DEFAULT_BLOCK_SIZE );
+	}
 
-	public MergedGridSource( List< Source< T > > gridSources, List< int[] > positions, String mergedGridSourceName, double relativeCellMargin, boolean encodeSource )
+	private MergedGridSource( List< Source< T > > gridSources, List< int[] > positions, String mergedGridSourceName, double relativeCellMargin, SourceNameEncoder sourceNameEncoder, boolean isLabels, String location, boolean virtual, int[] blockSize )
 	{
 		this.gridSources = gridSources;
+		this.blockSize = blockSize;
+		this.virtual = virtual;
 		this.positions = positions;
 		this.relativeCellMargin = relativeCellMargin;
-		this.encodeSource = encodeSource;
+		this.sourceNameEncoder = sourceNameEncoder;
+		this.isLabels = isLabels;
+		this.location = location;
 		this.interpolators = new DefaultInterpolators<>();
 		this.referenceSource = gridSources.get( 0 );
 		this.mergedGridSourceName = mergedGridSourceName;
 		this.type = referenceSource.getType();
 
-		mergedRandomAccessibleIntervals = createMergedRAIs();
+		// insertion ordered, such that the earliest created timepoint is evicted as a whole, see evictDistantTimepoints
+		this.timepointToMergedTimepoint = new LinkedHashMap<>();
+
+		initialise();
+
+		// the overviews can only be created from the actual pixel values,
+		// the volatile version of the merged grid shares them, see setOverviews
+		if ( virtual && ! ( type instanceof Volatile ) && positions.size() >= overviewMinNumPositions )
+		{
+			overviewSource = this;
+			// the downsampling factors are the same for all timepoints
+			final MergedGridOverview< ? > overview = getOverview( 0 );
+			overviewDownsamplingFactors = new int[ overview.getNumLevels() ];
+			for ( int level = 0; level < overviewDownsamplingFactors.length; level++ )
+				overviewDownsamplingFactors[ level ] = overview.getDownsamplingFactor( level );
+			if ( overviewDownsamplingFactors.length == 0 )
+				overviewSource = null;
+		}
 	}
 
 	public static boolean instanceOf( SourceAndConverter< ? > sourceAndConverter )
 	{
-		final Source< ? > source = sourceAndConverter.getSpimSource();
-		return instanceOf( source );
+		return instanceOf( sourceAndConverter.getSpimSource() );
 	}
 
-	public static boolean instanceOf( Source< ? > source )
+	/**
+	 * @return the merged grid source that is wrapped by the given source, or null
+	 */
+	public static MergedGridSource< ? > unwrap( Source< ? > source )
 	{
 		if ( source instanceof LabelSource )
 			source = ( ( LabelSource ) source ).getWrappedSource();
 
-		if ( source instanceof MergedGridSource )
-			return true;
-
 		if ( source instanceof TransformedSource )
 			source = ( ( TransformedSource ) source ).getWrappedSource();
 
 		if ( source instanceof MergedGridSource )
-			return true;
+			return ( MergedGridSource< ? > ) source;
+
+		return null;
+	}
 
-		return false;
+	public static boolean instanceOf( Source< ? > source )
+	{
+		return unwrap( source ) != null;
 	}
 
 	public List< Source< T > > getGridSources()
@@ -123,44 +247,194 @@ public class MergedGridSource< T extends NativeType< T > & NumericType< T > > im
 		return gridSources;
 	}
 
-	private List< RandomAccessibleInterval< T > > createMergedRAIs()
+	private void initialise()
 	{
 		final int numMipmapLevels = referenceSource.getNumMipmapLevels();
 		setCellDimensions( numMipmapLevels );
 		setCellRealDimensions( cellDimensions[ 0 ] );
 		setMask( positions, cellDimensions[ 0 ] );
-		return createMergedRAIs( numMipmapLevels );
+		sourceNameToVoxelTranslation = createSourceNameToTranslation( cellDimensions[ 0 ], gridSources.get( 0 ).getSource( 0, 0 ).dimensionsAsLongArray() );
+
+		mergedDimensions = new long[ numMipmapLevels ][];
+		for ( int level = 0; level < numMipmapLevels; level++ )
+			mergedDimensions[ level ] = getDimensions( positions, cellDimensions[ level ] );
 	}
 
-	private List< RandomAccessibleInterval< T > > createMergedRAIs( int numMipmapLevels )
+	private MergedGridOverview< T > createOverview( int t )
 	{
-		final List< RandomAccessibleInterval< T >> mergedRandomAccessibleIntervals = new ArrayList<>();
+		final int coarsestLevel = referenceSource.getNumMipmapLevels() - 1;
 
-		for ( int level = 0; level < numMipmapLevels; level++ )
+		// the raw values are stored, because the encoding of the source names differs between sessions
+		final MergedGridRandomAccessibleInterval< T > rai = new MergedGridRandomAccessibleInterval<>( mergedDimensions[ coarsestLevel ], cellDimensions[ coarsestLevel ], gridSources, positions, t, coarsestLevel, null, createBackground() );
+
+		final List< String > sourceNames = new ArrayList<>();
+		final StringBuilder key = new StringBuilder( location ).append( "|" ).append( mergedGridSourceName );
+		for ( int positionIndex = 0; positionIndex < positions.size(); positionIndex++ )
 		{
-			long[] mergedDimensions = getDimensions( positions, cellDimensions[ level ] );
+			sourceNames.add( gridSources.get( positionIndex ).getName() );
+			key.append( "|" ).append( gridSources.get( positionIndex ).getName() ).append( Arrays.toString( positions.get( positionIndex ) ) );
+		}
+		key.append( "|" ).append( Arrays.toString( mergedDimensions[ coarsestLevel ] ) );
+		key.append( "|t" ).append( t );
+
+		final MergedGridOverview< T > overview = new MergedGridOverview<>( rai, cellDimensions[ coarsestLevel ], positions, sourceNames, sourceNameEncoder, isLabels, type, mergedGridSourceName, key.toString() );
+		overview.loadOrCreate();
+		return overview;
+	}
+
+	/**
+	 * Reads or creates the overview of a timepoint, see {@link MergedGridOverview}.
+	 *
+	 * @return the overview or null, if this merged grid has no overview
+	 */
+	public MergedGridOverview< ? > getOverview( int t )
+	{
+		if ( overviewSource == null )
+			return null;
+
+		if ( overviewSource != this )
+			return overviewSource.getOverview( t );
+
+		synchronized ( timepointToOverview )
+		{
+			MergedGridOverview< T > overview = timepointToOverview.get( t );
+			if ( overview == null )
+			{
+				overview = createOverview( t );
+				timepointToOverview.put( t, overview );
+			}
+			return overview;
+		}
+	}
 
-			final Map< String, Source< T > > cellKeyToSource = createCellKeyToSource( cellDimensions[ level ] );
+	/**
+	 * Serves the overviews of another version of this merged grid,
+	 * e.g. of the non-volatile version for the volatile one.
+	 */
+	public void setOverviews( MergedGridSource< ? > mergedGridSource )
+	{
+		this.overviewSource = mergedGridSource.overviewSource;
+		this.overviewDownsamplingFactors = mergedGridSource.overviewDownsamplingFactors;
+	}
 
-			if ( level == 0 )
+	private MergedTimepoint getMergedTimepoint( int t )
+	{
+		synchronized ( timepointToMergedTimepoint )
+		{
+			MergedTimepoint mergedTimepoint = timepointToMergedTimepoint.get( t );
+			if ( mergedTimepoint == null )
 			{
-				sourceNameToVoxelTranslation = createSourceNameToTranslation( cellDimensions[ level ], gridSources.get( 0 ).getSource( 0, 0 ).dimensionsAsLongArray() );
+				mergedTimepoint = new MergedTimepoint( t );
+				timepointToMergedTimepoint.put( t, mergedTimepoint );
+				evictDistantTimepoints( t );
 			}
+			return mergedTimepoint;
+		}
+	}
+
+	/*
+	 * Keeps at most NUM_CACHED_TIMEPOINTS timepoints in memory,
+	 * but never evicts the current timepoint, its neighbours and the
+	 * requested timepoint, which may differ from the current one until
+	 * prefetchNeighbours updated it; must be called while holding the
+	 * lock on timepointToMergedTimepoint.
+	 */
+	private void evictDistantTimepoints( int requestedTimepoint )
+	{
+		final Iterator< Map.Entry< Integer, MergedTimepoint > > iterator = timepointToMergedTimepoint.entrySet().iterator();
+		while ( timepointToMergedTimepoint.size() > NUM_CACHED_TIMEPOINTS && iterator.hasNext() )
+		{
+			final Map.Entry< Integer, MergedTimepoint > entry = iterator.next();
+			if ( entry.getKey() == requestedTimepoint || Math.abs( entry.getKey() - currentTimepoint ) <= 1 )
+				continue;
+
+			iterator.remove();
+			entry.getValue().release();
+		}
+	}
+
+	/**
+	 * Removes the merged grid of a timepoint from memory.
+	 */
+	public void evict( int t )
+	{
+		final MergedTimepoint mergedTimepoint;
+		synchronized ( timepointToMergedTimepoint )
+		{
+			mergedTimepoint = timepointToMergedTimepoint.remove( t );
+		}
+		if ( mergedTimepoint != null )
+			mergedTimepoint.release();
+	}
+
+	/**
+	 * Prefetches the given part of the previous and next timepoint,
+	 * such that stepping through the timepoints is fast;
+	 * see {@link MergedGridPrefetcher}.
+	 *
+	 * @param t
+	 * 			the currently viewed timepoint
+	 * @param level
+	 * 			the currently viewed resolution level
+	 * @param interval
+	 * 			the currently viewed part of the merged grid, in voxel coordinates of the level
+	 */
+	public synchronized void prefetchNeighbours( int t, int level, Interval interval )
+	{
+		currentTimepoint = t;
 
-			final RandomAccessibleIntervalCellLoader< T > cellLoader = new RandomAccessibleIntervalCellLoader( cellKeyToSource, level );
+		if ( prefetching != null )
+			prefetching.cancel();
+		prefetching = null;
 
-			final CachedCellImg< T, ? > cachedCellImg =
-					new ReadOnlyCachedCellImgFactory().create(
-						mergedDimensions,
-						type,
-						cellLoader,
-						ReadOnlyCachedCellImgOptions.options().cellDimensions( cellDimensions[ level ] ) );
+		// the overview levels are small, thus only their overviews are prepared
+		if ( level >= referenceSource.getNumMipmapLevels() )
+		{
+			for ( int neighbour : new int[]{ t + 1, t - 1 } )
+				if ( neighbour >= 0 && referenceSource.isPresent( neighbour ) )
+					MultiThreading.ioExecutorService.submit( () -> getOverview( neighbour ) );
+			return;
+		}
 
+		final TaskGroup taskGroup = MultiThreading.createTaskGroup( "Prefetching " + mergedGridSourceName );
+		for ( int neighbour : new int[]{ t + 1, t - 1 } )
+		{
+			if ( neighbour < 0 || ! referenceSource.isPresent( neighbour ) )
+				continue;
 
-			mergedRandomAccessibleIntervals.add( cachedCellImg );
+			taskGroup.submit( () -> getMergedTimepoint( neighbour ).prefetch( level, interval ) );
 		}
+		// such that the group is released once it is done
+		MultiThreading.ioExecutorService.submit( taskGroup::waitUntilFinished );
+		prefetching = taskGroup;
+	}
 
-		return mergedRandomAccessibleIntervals;
+	/**
+	 * Loads the cells of the image that intersect with the given interval.
+	 */
+	static void prefetch( AbstractCellImg< ?, ?, ?, ? > img, Interval interval )
+	{
+		final CellGrid cellGrid = img.getCellGrid();
+		final long[] cellMin = new long[ cellGrid.numDimensions() ];
+		final long[] cellMax = new long[ cellGrid.numDimensions() ];
+		cellGrid.getCellPosition( interval.minAsLongArray(), cellMin );
+		cellGrid.getCellPosition( interval.maxAsLongArray(), cellMax );
+
+		final Cursor< ? > cellCursor = Views.interval( img.getCells(), cellMin, cellMax ).cursor();
+		while ( cellCursor.hasNext() && ! Thread.currentThread().isInterrupted() )
+			cellCursor.next(); // loads the cell
+	}
+
+	private T createBackground()
+	{
+		final T background = type.createVariable();
+		background.setZero();
+		// volatile grid sources are rendered as soon as
+		// their data is valid, thus the empty parts of
+		// the grid must be valid as well
+		if ( background instanceof Volatile )
+			( ( Volatile< ? > ) background ).setValid( true );
+		return background;
 	}
 
 	private void setCellRealDimensions( int[] cellDimension )
@@ -358,11 +632,34 @@ public class MergedGridSource< T extends NativeType< T > & NumericType< T > > im
 	@Override
 	public RandomAccessibleInterval< T > getSource( int t, int level )
 	{
-		if ( t != 0 )
+		final int numNativeLevels = referenceSource.getNumMipmapLevels();
+		if ( level >= numNativeLevels )
+			return getOverviewSource( t, level - numNativeLevels );
+
+		return getMergedTimepoint( t ).getRAI( level );
+	}
+
+	private RandomAccessibleInterval< T > getOverviewSource( int t, int overviewLevel )
+	{
+		final RandomAccessibleInterval< ? > img = getOverview( t ).getImg( overviewLevel );
+		if ( img == null )
 		{
-			throw new UnsupportedOperationException( "Multiple time points not yet implemented for merged grid source."); // TODO
+			// the overview is not yet created, thus sample the coarsest resolution level
+			final RandomAccessibleInterval< T > coarsestLevel = getMergedTimepoint( t ).getRAI( referenceSource.getNumMipmapLevels() - 1 );
+			return Views.subsample( coarsestLevel, overviewDownsamplingFactors[ overviewLevel ] );
+		}
+
+		if ( type instanceof Volatile )
+		{
+			final Converter< Type, Volatile > converter = ( input, output ) ->
+			{
+				( ( Type ) output.get() ).set( input );
+				output.setValid( true );
+			};
+			return Converters.convert( ( RandomAccessibleInterval ) img, converter, type.createVariable() );
 		}
-		return mergedRandomAccessibleIntervals.get( level );
+
+		return ( RandomAccessibleInterval< T > ) img;
 	}
 
 	@Override
@@ -374,13 +671,25 @@ public class MergedGridSource< T extends NativeType< T > & NumericType< T > > im
 	@Override
 	public RealRandomAccessible< T > getInterpolatedSource( int t, int level, Interpolation method )
 	{
-		return Views.interpolate( Views.extendZero( getSource( t, level ) ), interpolators.get( method ) );
+		return Views.interpolate( Views.extendValue( getSource( t, level ), createBackground() ), interpolators.get( method ) );
 	}
 
 	@Override
 	public void getSourceTransform( int t, int level, AffineTransform3D affineTransform3D )
 	{
-		referenceSource.getSourceTransform( t, level, affineTransform3D );
+		final int numNativeLevels = referenceSource.getNumMipmapLevels();
+		if ( level < numNativeLevels )
+		{
+			referenceSource.getSourceTransform( t, level, affineTransform3D );
+			return;
+		}
+
+		referenceSource.getSourceTransform( t, numNativeLevels - 1, affineTransform3D );
+		final int factor = overviewDownsamplingFactors[ level - numNativeLevels ];
+		final AffineTransform3D downsampling = new AffineTransform3D();
+		for ( int d = 0; d < 3; d++ )
+			downsampling.set( factor, d, d );
+		affineTransform3D.concatenate( downsampling );
 	}
 
 	@Override
@@ -395,6 +704,14 @@ public class MergedGridSource< T extends NativeType< T > & NumericType< T > > im
 		return mergedGridSourceName;
 	}
 
+	/**
+	 * @return the encoder of the source names or null, if the source names are not encoded
+	 */
+	public SourceNameEncoder getSourceNameEncoder()
+	{
+		return sourceNameEncoder;
+	}
+
 	@Override
 	public VoxelDimensions getVoxelDimensions()
 	{
@@ -404,7 +721,7 @@ public class MergedGridSource< T extends NativeType< T > & NumericType< T > > im
 	@Override
 	public int getNumMipmapLevels()
 	{
-		return referenceSource.getNumMipmapLevels();
+		return referenceSource.getNumMipmapLevels() + overviewDownsamplingFactors.length;
 	}
 
 	public void setContainedSourceAndConverters( Set< SourceAndConverter > containedSourceAndConverters )
@@ -418,58 +735,137 @@ public class MergedGridSource< T extends NativeType< T > & NumericType< T > > im
 		return containedSourceAndConverters;
 	}
 
+	/**
+	 * The merged grid at one timepoint.
+	 */
+	class MergedTimepoint
+	{
+		private final List< RandomAccessibleInterval< T > > rais = new ArrayList<>();
+
+		MergedTimepoint( int t )
+		{
+			for ( int level = 0; level < mergedDimensions.length; level++ )
+			{
+				if ( virtual )
+				{
+					rais.add( new MergedGridRandomAccessibleInterval<>( mergedDimensions[ level ], cellDimensions[ level ], gridSources, positions, t, level, sourceNameEncoder, createBackground() ) );
+					continue;
+				}
+
+				final int[] blockDimensions = new int[ cellDimensions[ level ].length ];
+				for ( int d = 0; d < blockDimensions.length; d++ )
+					blockDimensions[ d ] = Math.max( 1, Math.min( blockSize[ d ], cellDimensions[ level ][ d ] ) );
+
+				final Map< String, Source< T > > cellKeyToSource = createCellKeyToSource( cellDimensions[ level ] );
+				final RandomAccessibleIntervalCellLoader< T > cellLoader = new RandomAccessibleIntervalCellLoader( cellKeyToSource, t, level, cellDimensions[ level ] );
+
+				final CachedCellImg< T, ? > cachedCellImg = CacheManager.getInstance().createImg( mergedGridSourceName, mergedDimensions[ level ], blockDimensions, type, cellLoader );
+
+				rais.add( cachedCellImg );
+			}
+		}
+
+		/**
+		 * Releases the cached data of this timepoint.
+		 */
+		void release()
+		{
+			for ( RandomAccessibleInterval< T > rai : rais )
+				if ( rai instanceof CachedCellImg )
+					CacheManager.getInstance().remove( ( CachedCellImg< ?, ? > ) rai );
+		}
+
+		RandomAccessibleInterval< T > getRAI( int level )
+		{
+			return rais.get( level );
+		}
+
+		/**
+		 * Loads the given part of this timepoint at the given resolution level.
+		 */
+		void prefetch( int level, Interval interval )
+		{
+			final RandomAccessibleInterval< T > rai = rais.get( level );
+			final FinalInterval intersection = Intervals.intersect( rai, interval );
+			if ( Intervals.isEmpty( intersection ) ) return;
+
+			if ( virtual )
+				( ( MergedGridRandomAccessibleInterval< T > ) rai ).prefetch( intersection );
+			else
+				MergedGridSource.prefetch( ( CachedCellImg< T, ? > ) rai, intersection );
+		}
+	}
+
+	/**
+	 * Loads a block of the merged grid by copying the overlapping
+	 * parts of the grid sources; a block can overlap with several
+	 * grid cells and only covers a part of a grid cell.
+	 */
 	class RandomAccessibleIntervalCellLoader< T extends NativeType< T > > implements CellLoader< T >
 	{
 		private final Map< String, Source< T > > cellKeyToSource;
+		private final int timepoint;
 		private final int level;
+		private final int[] gridCellDimensions;
 
-		public RandomAccessibleIntervalCellLoader( Map< String, Source< T > > cellKeyToSource, int level )
+		public RandomAccessibleIntervalCellLoader( Map< String, Source< T > > cellKeyToSource, int timepoint, int level, int[] gridCellDimensions )
 		{
 			this.cellKeyToSource = cellKeyToSource;
+			this.timepoint = timepoint;
 			this.level = level;
+			this.gridCellDimensions = gridCellDimensions;
 		}
 
 		@Override
 		public void load( SingleCellArrayImg< T, ? > cell ) throws Exception
 		{
-			final String cellKey = getCellKey( cell.minAsLongArray() );
+			final long[] blockMin = cell.minAsLongArray();
+			final long[] blockMax = cell.maxAsLongArray();
 
-			if ( ! cellKeyToSource.containsKey( cellKey ) )
-			{
-				return;
-			}
-			else
+			for ( long x = blockMin[ 0 ] / gridCellDimensions[ 0 ]; x <= blockMax[ 0 ] / gridCellDimensions[ 0 ]; x++ )
 			{
-				// Get the RAI for this cell
-				final Source< T > source = cellKeyToSource.get( cellKey );
-				RandomAccessibleInterval< T > data = source.getSource( currentTimepoint, level );
+				for ( long y = blockMin[ 1 ] / gridCellDimensions[ 1 ]; y <= blockMax[ 1 ] / gridCellDimensions[ 1 ]; y++ )
+				{
+					final long[] gridCellMin = new long[]{ x * gridCellDimensions[ 0 ], y * gridCellDimensions[ 1 ], 0 };
+					final Source< T > source = cellKeyToSource.get( getCellKey( gridCellMin ) );
+					if ( source == null ) continue;
 
-				// Create a view that is shifted to the cell position
-				final long[] offset = computeTranslation( MoBIEHelper.asInts( cell.dimensionsAsLongArray() ), cell.minAsLongArray(), data.dimensionsAsLongArray() );
-				data = Views.translate( Views.zeroMin( data ), offset );
+					// Create a view that is shifted to the grid cell position
+					RandomAccessibleInterval< T > data = source.getSource( timepoint, level );
+					final long[] offset = computeTranslation( gridCellDimensions, gridCellMin, data.dimensionsAsLongArray() );
+					data = Views.translate( Views.zeroMin( data ), offset );
 
-				// copy RAI into cell
-				Cursor< T > sourceCursor = Views.iterable( data ).cursor();
-				RandomAccess< T > targetAccess = cell.randomAccess();
+					// only the part of the data within this block is loaded
+					final FinalInterval intersection = Intervals.intersect( data, cell );
+					if ( Intervals.isEmpty( intersection ) ) continue;
 
-				if ( encodeSource )
+					copy( Views.interval( data, intersection ), cell, source.getName() );
+				}
+			}
+		}
+
+		private void copy( RandomAccessibleInterval< T > data, SingleCellArrayImg< T, ? > cell, String name )
+		{
+			Cursor< T > sourceCursor = Views.iterable( data ).cursor();
+			RandomAccess< T > targetAccess = cell.randomAccess();
+
+			if ( sourceNameEncoder != null )
+			{
+				final long encodedName = sourceNameEncoder.getEncodedName( name, type );
+				while ( sourceCursor.hasNext() )
 				{
-					final String name = source.getName();
-					while ( sourceCursor.hasNext() )
-					{
-						sourceCursor.fwd();
-						// copy the sourceCursor in order not to modify it by the source name encoding
-						targetAccess.setPositionAndGet( sourceCursor ).set( sourceCursor.get().copy() );
-						SourceNameEncoder.encodeName( ( UnsignedIntType ) targetAccess.get(), name );
-					}
+					sourceCursor.fwd();
+					targetAccess.setPositionAndGet( sourceCursor ).set( sourceCursor.get() );
+					final IntegerType< ? > value = ( IntegerType< ? > ) targetAccess.get();
+					value.setInteger( value.getIntegerLong() + encodedName );
 				}
-				else
+			}
+			else
+			{
+				while ( sourceCursor.hasNext() )
 				{
-					while ( sourceCursor.hasNext() )
-					{
-						sourceCursor.fwd();
-						targetAccess.setPositionAndGet( sourceCursor ).set( sourceCursor.get() );
-					}
+					sourceCursor.fwd();
+					targetAccess.setPositionAndGet( sourceCursor ).set( sourceCursor.get() );
 				}
 			}
 		}
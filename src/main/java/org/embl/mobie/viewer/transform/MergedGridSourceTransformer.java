@@ -38,10 +38,11 @@ import net.imglib2.converter.Converter;
 import net.imglib2.type.numeric.ARGBType;
 import org.embl.mobie.viewer.MoBIE;
 import org.embl.mobie.viewer.MultiThreading;
+import org.embl.mobie.viewer.SourceNameEncoder;
+import org.embl.mobie.viewer.source.SourceRegistry;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
@@ -60,9 +61,12 @@ public class MergedGridSourceTransformer extends AbstractSourceTransformer
 	private transient MergedGridSource< ? > mergedGridSource;
 	private transient double[] translationRealOffset;
 	private transient Set< SourceAndConverter > transformedSourceAndConverters;
+	private transient int labelValueBits = SourceNameEncoder.DEFAULT_VALUE_BITS;
+	private transient boolean isLabels = false;
+	private transient String location = "";
 
 	@Override
-	public void transform( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter )
+	public void transform( SourceRegistry sourceRegistry )
 	{
 		if ( centerAtOrigin == true )
 		{
@@ -73,20 +77,21 @@ public class MergedGridSourceTransformer extends AbstractSourceTransformer
 
 		final long startTime = System.currentTimeMillis();
 
-		final List< SourceAndConverter< ? > > gridSources = getGridSources( sourceNameToSourceAndConverter );
+		final List< SourceAndConverter< ? > > gridSources = getGridSources( sourceRegistry );
 
 		if ( positions == null )
 			positions = createPositions( gridSources.size() );
 
-		SourceAndConverter< ? > mergedSourceAndConverter = createMergedSourceAndConverter( gridSources.stream().map( sac -> sac.getSpimSource() ).collect( Collectors.toList() ), gridSources.get( 0 ).asVolatile().getConverter(), gridSources.get( 0 ).getConverter() );
+		SourceAndConverter< ? > mergedSourceAndConverter = createMergedSourceAndConverter( gridSources, gridSources.get( 0 ).asVolatile().getConverter(), gridSources.get( 0 ).getConverter() );
 
-		sourceNameToSourceAndConverter.put( mergedSourceAndConverter.getSpimSource().getName(), mergedSourceAndConverter );
+		sourceRegistry.put( mergedSourceAndConverter.getSpimSource().getName(), mergedSourceAndConverter );
+		sourceRegistry.addChildren( mergedSourceAndConverter.getSpimSource().getName(), sources );
 
 		// Transform (i.e. adapt the positions) all contained sources,
 		// because several parts of the code refer to them and their
 		// positions.
 		transformedSourceAndConverters = ConcurrentHashMap.newKeySet();
-		transformContainedSources( sourceNameToSourceAndConverter, gridSources );
+		transformContainedSources( sourceRegistry, gridSources );
 		mergedGridSource.setContainedSourceAndConverters( transformedSourceAndConverters );
 
 		final long duration = System.currentTimeMillis() - startTime;
@@ -94,7 +99,7 @@ public class MergedGridSourceTransformer extends AbstractSourceTransformer
 			IJ.log("Merged " + sources.size() + " sources into " + mergedGridSourceName + " in " + duration + "ms (centerAtOrigin="+centerAtOrigin+").");
 	}
 
-	private void transformContainedSources( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter, List< SourceAndConverter< ? > > gridSources )
+	private void transformContainedSources( SourceRegistry sourceRegistry, List< SourceAndConverter< ? > > gridSources )
 	{
 		final ArrayList< SourceAndConverter< ? > > referenceSources = new ArrayList<>();
 		referenceSources.add( gridSources.get( 0 ) );
@@ -113,7 +118,7 @@ public class MergedGridSourceTransformer extends AbstractSourceTransformer
 			final ArrayList< String > sourceNamesAtGridPosition = getSourcesAtGridPosition( gridSources, finalPositionIndex );
 
 			futures.add( MultiThreading.executorService.submit( () -> {
-				recursivelyTransformSources( sourceNameToSourceAndConverter, gridCellRealDimensions, finalPositionIndex, sourceNamesAtGridPosition );
+				recursivelyTransformSources( sourceRegistry, gridCellRealDimensions, finalPositionIndex, sourceNamesAtGridPosition );
 			} ) );
 		}
 		MultiThreading.waitUntilFinished( futures );
@@ -134,35 +139,37 @@ public class MergedGridSourceTransformer extends AbstractSourceTransformer
 		return translationOffset;
 	}
 
-	private void recursivelyTransformSources( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter, double[] gridCellRealDimensions, int finalPositionIndex, ArrayList< String > transformedSourceNames )
+	private void recursivelyTransformSources( SourceRegistry sourceRegistry, double[] gridCellRealDimensions, int finalPositionIndex, List< String > transformedSourceNames )
 	{
 		// transform the sources
 		final double translationX = gridCellRealDimensions[ 0 ] * positions.get( finalPositionIndex )[ 0 ] + translationRealOffset[ 0 ];
 		final double translationY = gridCellRealDimensions[ 1 ] * positions.get( finalPositionIndex )[ 1 ] + translationRealOffset[ 1 ];
 
-		TransformedGridSourceTransformer.translate( sourceNameToSourceAndConverter, transformedSourceNames, null, centerAtOrigin, translationX, translationY );
-		addTransformedSources( sourceNameToSourceAndConverter, transformedSourceNames );
+		final List< SourceAndConverter< ? > > translatedSources = TransformedGridSourceTransformer.translate( sourceRegistry, transformedSourceNames, null, centerAtOrigin, translationX, translationY );
+		transformedSourceAndConverters.addAll( translatedSources );
 
 		// if there are any, also transform contained sources
-		final ArrayList< String > containedSourceNames = fetchContainedSourceNames( sourceNameToSourceAndConverter, transformedSourceNames );
+		final List< String > containedSourceNames = fetchContainedSourceNames( sourceRegistry, transformedSourceNames );
 		if ( containedSourceNames.size() > 0 )
 		{
-			recursivelyTransformSources( sourceNameToSourceAndConverter, gridCellRealDimensions, finalPositionIndex, containedSourceNames );
+			recursivelyTransformSources( sourceRegistry, gridCellRealDimensions, finalPositionIndex, containedSourceNames );
 		}
 	}
 
-	private void addTransformedSources( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter, ArrayList< String > containedSourceNames )
-	{
-		final List< SourceAndConverter< ? > > sourceAndConverters = sourceNameToSourceAndConverter.values().stream().filter( sac -> containedSourceNames.contains( sac.getSpimSource().getName() ) ).collect( Collectors.toList() );
-		transformedSourceAndConverters.addAll( sourceAndConverters );
-	}
-
-	private ArrayList< String > fetchContainedSourceNames( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter, ArrayList< String > sourceNames )
+	private List< String > fetchContainedSourceNames( SourceRegistry sourceRegistry, List< String > sourceNames )
 	{
 		final ArrayList< String > containedSourceNames = new ArrayList<>();
 		for ( String sourceName : sourceNames )
 		{
-			Source< ? > source = sourceNameToSourceAndConverter.get( sourceName ).getSpimSource();
+			final List< String > children = sourceRegistry.getChildren( sourceName );
+			if ( ! children.isEmpty() )
+			{
+				containedSourceNames.addAll( children );
+				continue;
+			}
+
+			// the source may have been merged in another registry
+			Source< ? > source = sourceRegistry.get( sourceName ).getSpimSource();
 			if ( source instanceof TransformedSource )
 			{
 				source = ( ( TransformedSource< ? > ) source ).getWrappedSource();
@@ -189,11 +196,62 @@ public class MergedGridSourceTransformer extends AbstractSourceTransformer
 		return sources;
 	}
 
-	private SourceAndConverter< ? > createMergedSourceAndConverter( List< Source< ? > > gridSources, Converter< ?, ARGBType > volatileConverter, Converter< ?, ARGBType > converter )
+	public String getMergedGridSourceName()
 	{
-		mergedGridSource = new MergedGridSource( gridSources, positions, mergedGridSourceName, TransformedGridSourceTransformer.RELATIVE_CELL_MARGIN, encodeSource );
+		return mergedGridSourceName;
+	}
+
+	/**
+	 * Sets how many bits of the labels hold the label value of a grid source,
+	 * if the source names are encoded, see {@link SourceNameEncoder}.
+	 */
+	public void setLabelValueBits( int labelValueBits )
+	{
+		this.labelValueBits = labelValueBits;
+	}
 
-		final VolatileSource< ?, ? > volatileMergedGridSource = new VolatileSource<>( mergedGridSource, MultiThreading.sharedQueue );
+	/**
+	 * Sets whether the grid sources are labels, which must not be
+	 * averaged in the overview of the merged grid, see {@link MergedGridOverview}.
+	 */
+	public void setIsLabels( boolean isLabels )
+	{
+		this.isLabels = isLabels;
+	}
+
+	/**
+	 * Sets where the grid sources are stored, e.g. the root of the dataset,
+	 * such that merged grids of different datasets with the same names
+	 * do not share their overviews in the overview cache.
+	 */
+	public void setLocation( String location )
+	{
+		this.location = location;
+	}
+
+	private SourceAndConverter< ? > createMergedSourceAndConverter( List< SourceAndConverter< ? > > gridSourceAndConverters, Converter< ?, ARGBType > volatileConverter, Converter< ?, ARGBType > converter )
+	{
+		final List< Source< ? > > gridSources = gridSourceAndConverters.stream().map( sac -> sac.getSpimSource() ).collect( Collectors.toList() );
+
+		final SourceNameEncoder sourceNameEncoder = encodeSource ? new SourceNameEncoder( labelValueBits ) : null;
+
+		final Source< ? > volatileMergedGridSource;
+		if ( gridSourceAndConverters.stream().allMatch( sac -> sac.asVolatile() != null ) )
+		{
+			// Read the pixels directly from the grid sources,
+			// such that they are not cached a second time.
+			mergedGridSource = new MergedGridSource( gridSources, positions, mergedGridSourceName, TransformedGridSourceTransformer.RELATIVE_CELL_MARGIN, sourceNameEncoder, isLabels, location, true );
+
+			final List< Source< ? > > volatileGridSources = gridSourceAndConverters.stream().map( sac -> sac.asVolatile().getSpimSource() ).collect( Collectors.toList() );
+			final MergedGridSource< ? > volatileVirtualMergedGridSource = new MergedGridSource( volatileGridSources, positions, mergedGridSourceName, TransformedGridSourceTransformer.RELATIVE_CELL_MARGIN, sourceNameEncoder, isLabels, location, true );
+			volatileVirtualMergedGridSource.setOverviews( mergedGridSource );
+			volatileMergedGridSource = volatileVirtualMergedGridSource;
+		}
+		else
+		{
+			mergedGridSource = new MergedGridSource( gridSources, positions, mergedGridSourceName, TransformedGridSourceTransformer.RELATIVE_CELL_MARGIN, sourceNameEncoder, isLabels, location, false );
+			volatileMergedGridSource = new VolatileSource<>( mergedGridSource, MultiThreading.sharedQueue );
+		}
 
 		final SourceAndConverter< ? > volatileSourceAndConverter = new SourceAndConverter( volatileMergedGridSource, volatileConverter );
 
@@ -202,12 +260,12 @@ public class MergedGridSourceTransformer extends AbstractSourceTransformer
 		return mergedSourceAndConverter;
 	}
 
-	private List< SourceAndConverter< ? > > getGridSources( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter )
+	private List< SourceAndConverter< ? > > getGridSources( SourceRegistry sourceRegistry )
 	{
 		final List< SourceAndConverter< ? > > gridSources = new ArrayList<>();
 		for ( String sourceName : sources )
 		{
-			gridSources.add( sourceNameToSourceAndConverter.get( sourceName ) );
+			gridSources.add( sourceRegistry.get( sourceName ) );
 		}
 		return gridSources;
 	}
@@ -28,16 +28,16 @@
  */
 package org.embl.mobie.viewer.transform;
 
-import bdv.viewer.SourceAndConverter;
-import net.imglib2.realtransform.AffineTransform3D;
-import net.imglib2.type.numeric.NumericType;
+import org.embl.mobie.viewer.source.SourceRegistry;
 
 import java.util.List;
-import java.util.Map;
 
 public interface SourceTransformer
 {
-	void transform( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter );
+	/**
+	 * Transforms the sources and registers the transformed sources in the registry.
+	 */
+	void transform( SourceRegistry sourceRegistry );
 
 	//AffineTransform3D getTransform( String name );
 
@@ -37,6 +37,7 @@ import net.imglib2.realtransform.Scale3D;
 import net.imglib2.roi.RealMaskRealInterval;
 import org.embl.mobie.viewer.playground.BdvPlaygroundHelper;
 import org.embl.mobie.viewer.playground.SourceAffineTransformer;
+import org.embl.mobie.viewer.source.SourceHelper;
 import net.imglib2.FinalRealInterval;
 import net.imglib2.RealInterval;
 import net.imglib2.realtransform.AffineTransform3D;
@@ -233,7 +234,7 @@ public class TransformHelper
 		// else:
 		final AffineTransform3D affineTransform3D = new AffineTransform3D();
 		source.getSourceTransform( t, 0, affineTransform3D );
-		final FinalRealInterval bounds = affineTransform3D.estimateBounds( source.getSource( t, 0 ) );
+		final FinalRealInterval bounds = affineTransform3D.estimateBounds( SourceHelper.getInterval( source, t ) );
 		return bounds;
 	}
 }
@@ -33,6 +33,7 @@ import de.embl.cba.tables.Logger;
 import org.embl.mobie.viewer.MoBIE;
 import org.embl.mobie.viewer.MultiThreading;
 import org.embl.mobie.viewer.playground.SourceAffineTransformer;
+import org.embl.mobie.viewer.source.SourceRegistry;
 import net.imglib2.realtransform.AffineTransform3D;
 
 import java.util.ArrayList;
@@ -52,16 +53,16 @@ public class TransformedGridSourceTransformer extends AbstractSourceTransformer
 	public static final double RELATIVE_CELL_MARGIN = 0.1;
 
 	@Override
-	public void transform( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter )
+	public void transform( SourceRegistry sourceRegistry )
 	{
 		final long startTime = System.currentTimeMillis();
 		if ( positions == null )
 			autoSetPositions();
 
 		// TODO: https://github.com/mobie/mobie-viewer-fiji/issues/674
-		final double[] cellRealDimensions = TransformHelper.getMaximalSourceUnionRealDimensions( sourceNameToSourceAndConverter, nestedSources );
+		final double[] cellRealDimensions = TransformHelper.getMaximalSourceUnionRealDimensions( sourceRegistry.asMap(), nestedSources );
 
-		transform( sourceNameToSourceAndConverter, cellRealDimensions );
+		transform( sourceRegistry, cellRealDimensions );
 		final long duration = System.currentTimeMillis() - startTime;
 		if ( duration > MoBIE.minLogTimeMillis )
 			Logger.info("Transformed " + nestedSources.size() + " group(s) with "+ nestedSources.get( 0 ).size() +" source(s) each into a grid in " + duration + "ms (centerAtOrigin="+centerAtOrigin+").");
@@ -76,7 +77,7 @@ public class TransformedGridSourceTransformer extends AbstractSourceTransformer
 		return allSources;
 	}
 
-	private void transform( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter, double[] cellRealDimensions )
+	private void transform( SourceRegistry sourceRegistry, double[] cellRealDimensions )
 	{
 		final int numGridPositions = nestedSources.size();
 
@@ -86,38 +87,36 @@ public class TransformedGridSourceTransformer extends AbstractSourceTransformer
 			int finalGridIndex = gridIndex;
 			futures.add( MultiThreading.executorService.submit( () -> {
 				if ( sourceNamesAfterTransform != null )
-					translate( sourceNameToSourceAndConverter, nestedSources.get( finalGridIndex ), sourceNamesAfterTransform.get( finalGridIndex ), centerAtOrigin, cellRealDimensions[ 0 ] * positions.get( finalGridIndex )[ 0 ], cellRealDimensions[ 1 ] * positions.get( finalGridIndex )[ 1 ] );
+					translate( sourceRegistry, nestedSources.get( finalGridIndex ), sourceNamesAfterTransform.get( finalGridIndex ), centerAtOrigin, cellRealDimensions[ 0 ] * positions.get( finalGridIndex )[ 0 ], cellRealDimensions[ 1 ] * positions.get( finalGridIndex )[ 1 ] );
 				else
-					translate( sourceNameToSourceAndConverter, nestedSources.get( finalGridIndex ), null, centerAtOrigin, cellRealDimensions[ 0 ] * positions.get( finalGridIndex )[ 0 ], cellRealDimensions[ 1 ] * positions.get( finalGridIndex )[ 1 ] );
+					translate( sourceRegistry, nestedSources.get( finalGridIndex ), null, centerAtOrigin, cellRealDimensions[ 0 ] * positions.get( finalGridIndex )[ 0 ], cellRealDimensions[ 1 ] * positions.get( finalGridIndex )[ 1 ] );
 			} ) );
 		}
 		MultiThreading.waitUntilFinished( futures );
 	}
 
-	public static void translate( Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverter, List< String > sourceNames, List< String > sourceNamesAfterTransform, boolean centerAtOrigin, double translationX, double translationY )
+	/**
+	 * @return the translated sources
+	 */
+	public static List< SourceAndConverter< ? > > translate( SourceRegistry sourceRegistry, List< String > sourceNames, List< String > sourceNamesAfterTransform, boolean centerAtOrigin, double translationX, double translationY )
 	{
-		for ( String sourceName : sourceNames )
-		{
-			final SourceAndConverter< ? > sourceAndConverter = sourceNameToSourceAndConverter.get( sourceName );
-
-			if ( sourceAndConverter == null )
-			  continue;
+		final Map< String, String > sourceNameToTransformedName = AffineSourceTransformer.createSourceNameToTransformedName( sourceNames, sourceNamesAfterTransform );
 
+		return sourceRegistry.transform( sourceNames, ( sourceName, sourceAndConverter ) ->
+		{
 			AffineTransform3D translationTransform = TransformHelper.createTranslationTransform3D( translationX, translationY, sourceAndConverter, centerAtOrigin );
 
-			final SourceAffineTransformer transformer = createSourceAffineTransformer( sourceName, sourceNames, sourceNamesAfterTransform, translationTransform );
+			final SourceAffineTransformer transformer = createSourceAffineTransformer( sourceName, sourceNameToTransformedName, translationTransform );
 
-			final SourceAndConverter transformedSource = transformer.apply( sourceNameToSourceAndConverter.get( sourceName ) );
-
-			sourceNameToSourceAndConverter.put( transformedSource.getSpimSource().getName(), transformedSource );
-		}
+			return transformer.apply( sourceAndConverter );
+		} );
 	}
 
-	public static SourceAffineTransformer createSourceAffineTransformer( String sourceName, List< String > sourceNames, List< String > sourceNamesAfterTransform, AffineTransform3D affineTransform3D )
+	private static SourceAffineTransformer createSourceAffineTransformer( String sourceName, Map< String, String > sourceNameToTransformedName, AffineTransform3D affineTransform3D )
 	{
-		if ( sourceNamesAfterTransform != null )
+		if ( sourceNameToTransformedName.containsKey( sourceName ) )
 		{
-			return new SourceAffineTransformer( affineTransform3D, sourceNamesAfterTransform.get( sourceNames.indexOf( sourceName ) ) );
+			return new SourceAffineTransformer( affineTransform3D, sourceNameToTransformedName.get( sourceName ) );
 		}
 		else
 		{
@@ -40,7 +40,9 @@ import ij.IJ;
 import net.imglib2.realtransform.AffineTransform3D;
 import org.apache.commons.lang.ArrayUtils;
 import org.embl.mobie.viewer.MoBIE;
+import org.embl.mobie.viewer.MultiThreading;
 import org.embl.mobie.viewer.SourceNameEncoder;
+import org.embl.mobie.viewer.TaskGroup;
 import org.embl.mobie.viewer.annotate.AnnotatedMaskAdapter;
 import org.embl.mobie.viewer.annotate.RegionTableRow;
 import org.embl.mobie.viewer.bdv.view.RegionSliceView;
@@ -54,8 +56,11 @@ import org.embl.mobie.viewer.plot.ScatterPlotViewer;
 import org.embl.mobie.viewer.segment.SegmentAdapter;
 import org.embl.mobie.viewer.select.MoBIESelectionModel;
 import org.embl.mobie.viewer.source.LabelSource;
+import org.embl.mobie.viewer.source.SegmentationSource;
+import org.embl.mobie.viewer.source.SourceRegistry;
 import org.embl.mobie.viewer.table.TableViewer;
 import org.embl.mobie.viewer.transform.AffineSourceTransformer;
+import org.embl.mobie.viewer.transform.MergedGridSourceTransformer;
 import org.embl.mobie.viewer.transform.SliceViewLocationChanger;
 import org.embl.mobie.viewer.transform.NormalizedAffineViewerTransform;
 import org.embl.mobie.viewer.transform.SourceTransformer;
@@ -74,12 +79,20 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class ViewManager
 {
 	static { net.imagej.patcher.LegacyInjector.preinit(); }
 
+	// signals the end of the table loading, see pollSegments
+	private static final List< TableRowImageSegment > NO_MORE_SEGMENTS = Collections.unmodifiableList( new ArrayList<>() );
+
 	private final MoBIE moBIE;
 	private final UserInterface userInterface;
 	private final SliceViewer sliceViewer;
@@ -246,7 +259,26 @@ public class ViewManager
 		show( moBIE.getViews().get( view ) );
 	}
 
-	public synchronized void show( View view )
+	public void show( View view )
+	{
+		if ( view.isExclusive() )
+		{
+			// the loading of the previous view is obsolete,
+			// stop it such that it does not compete for I/O
+			MultiThreading.cancelTaskGroups( moBIE );
+		}
+
+		try
+		{
+			showView( view );
+		}
+		catch ( CancellationException e )
+		{
+			IJ.log( "Stopped opening view " + view.getName() + ": " + e.getMessage() );
+		}
+	}
+
+	private synchronized void showView( View view )
 	{
 		if ( view.isExclusive() )
 		{
@@ -275,6 +307,19 @@ public class ViewManager
 		getSliceViewer().getSourceNameRenderer().transformChanged( sliceViewer.getBdvHandle().getViewerPanel().state().getViewerTransform() );
 	}
 
+	private void configureMergedGrid( MergedGridSourceTransformer transformer, View view )
+	{
+		transformer.setLabelValueBits( moBIE.getSettings().values.getLabelValueBits() );
+		transformer.setLocation( moBIE.getDatasetPath() );
+
+		// the grid sources are labels if they or the merged grid are shown as segmentations
+		boolean isLabels = transformer.getSources().stream().anyMatch( source -> moBIE.getDataset().sources.containsKey( source ) && moBIE.getDataset().sources.get( source ).get() instanceof SegmentationSource );
+		for ( SourceDisplay sourceDisplay : view.getSourceDisplays() )
+			if ( sourceDisplay instanceof SegmentationDisplay && sourceDisplay.getSources().contains( transformer.getMergedGridSourceName() ) )
+				isLabels = true;
+		transformer.setIsLabels( isLabels );
+	}
+
 	public void openAndTransformSources( View view )
 	{
 		// fetch the names of all sources that are either shown or to be transformed
@@ -285,7 +330,7 @@ public class ViewManager
 		final Set< String > rawSources = sources.stream().filter( s -> moBIE.getDataset().sources.containsKey( s ) ).collect( Collectors.toSet() );
 
 		// open all raw sources
-		Map< String, SourceAndConverter< ? > > sourceNameToSourceAndConverters = moBIE.openSourceAndConverters( rawSources );
+		SourceRegistry sourceNameToSourceAndConverters = moBIE.openSourceAndConverters( rawSources );
 
 		// create transformed sources
 		final List< SourceTransformer > sourceTransformers = view.getSourceTransforms();
@@ -293,13 +338,15 @@ public class ViewManager
 		for ( SourceTransformer sourceTransformer : sourceTransformers )
 		{
 			currentSourceTransformers.add( sourceTransformer );
+			if ( sourceTransformer instanceof MergedGridSourceTransformer )
+				configureMergedGrid( ( MergedGridSourceTransformer ) sourceTransformer, view );
 			sourceTransformer.transform( sourceNameToSourceAndConverters );
 		}
 
 		// Wrap all in a final transformed source.
 		// This is so any manual transformations can be
 		// retrieved separate from any from sourceTransformers.
-		for ( String sourceName : sourceNameToSourceAndConverters.keySet() ) {
+		for ( String sourceName : sourceNameToSourceAndConverters.getSourceNames() ) {
 			SourceAndConverter<?> sourceAndConverter = new SourceAffineTransformer( sourceNameToSourceAndConverters.get( sourceName ), new AffineTransform3D()).getSourceOut();
 			sourceNameToSourceAndConverters.put( sourceName, sourceAndConverter );
 		}
@@ -307,7 +354,7 @@ public class ViewManager
 		// register all available (transformed) sources in MoBIE
 		// this is where the source and segmentation displays will
 		// get the sources from
-		moBIE.addSourceAndConverters( sourceNameToSourceAndConverters );
+		moBIE.addSourceAndConverters( sourceNameToSourceAndConverters.asMap() );
 	}
 
 	public Set< String > fetchSources( View view )
@@ -423,7 +470,21 @@ public class ViewManager
 	private void showSegmentationDisplay( SegmentationDisplay segmentationDisplay )
 	{
 		segmentationDisplay.sliceViewer = sliceViewer;
-		loadTablesAndCreateImageSegments( segmentationDisplay );
+
+		// the tables are loaded per source; the first loaded segments
+		// are used to initialise the viewers, the others are appended
+		// as they arrive, see appendSegments
+		final LinkedBlockingQueue< List< TableRowImageSegment > > loadedSegments = new LinkedBlockingQueue<>();
+		if ( segmentationDisplay.getTables() != null )
+		{
+			segmentationDisplay.tableLoading = moBIE.loadSegmentsTables( segmentationDisplay, loadedSegments::add );
+			segmentationDisplay.tableLoading.addProgressListener( ( taskGroup, numFinished, numTasks ) -> {
+				if ( numFinished == numTasks ) loadedSegments.add( NO_MORE_SEGMENTS );
+			} );
+			// the rows are appended on the EDT while other threads may read them
+			segmentationDisplay.tableRows = new CopyOnWriteArrayList<>( takeFirstSegments( segmentationDisplay.tableLoading, loadedSegments ) );
+			checkLabelIds( segmentationDisplay.tableRows );
+		}
 
 		if ( segmentationDisplay.tableRows != null )
 			segmentationDisplay.segmentAdapter = new SegmentAdapter( segmentationDisplay.tableRows );
@@ -433,13 +494,6 @@ public class ViewManager
 		segmentationDisplay.selectionModel = new MoBIESelectionModel<>();
 		configureColoringModel( segmentationDisplay );
 
-		// set selected segments
-		if ( segmentationDisplay.getSelectedTableRows() != null )
-		{
-			final List< TableRowImageSegment > segments = segmentationDisplay.segmentAdapter.getSegments( segmentationDisplay.getSelectedTableRows() );
-			segmentationDisplay.selectionModel.setSelected( segments, true );
-		}
-
 		segmentationDisplay.sliceView = new SegmentationSliceView( moBIE, segmentationDisplay );
 
 		if ( segmentationDisplay.tableRows != null )
@@ -448,6 +502,9 @@ public class ViewManager
 			initScatterPlotViewer( segmentationDisplay );
 			initSegmentationVolumeViewer( segmentationDisplay );
 			setTablePosition( segmentationDisplay.sliceViewer.getWindow(), segmentationDisplay.tableViewer.getWindow() );
+			final Thread appender = new Thread( () -> appendSegments( segmentationDisplay, loadedSegments ), "Appending segments of " + segmentationDisplay.getName() );
+			appender.setDaemon( true );
+			appender.start();
 		}
 	}
 
@@ -456,24 +513,127 @@ public class ViewManager
 		SwingUtilities.invokeLater( () -> WindowArrangementHelper.bottomAlignWindow( reference, table, ( numCurrentTables - 1 ) * 10 ) );
 	}
 
-	private void loadTablesAndCreateImageSegments( SegmentationDisplay segmentationDisplay )
+	private static List< TableRowImageSegment > takeFirstSegments( TaskGroup tableLoading, BlockingQueue< List< TableRowImageSegment > > loadedSegments )
+	{
+		try
+		{
+			while ( true )
+			{
+				final List< TableRowImageSegment > segments = pollSegments( tableLoading, loadedSegments );
+				if ( segments == NO_MORE_SEGMENTS )
+				{
+					loadedSegments.add( NO_MORE_SEGMENTS ); // for appendSegments
+					tableLoading.join(); // throws if the loading has failed
+					return new ArrayList<>();
+				}
+
+				if ( segments != null && ! segments.isEmpty() )
+					return segments;
+			}
+		}
+		catch ( InterruptedException e )
+		{
+			tableLoading.cancel();
+			Thread.currentThread().interrupt();
+			throw new CancellationException( "Loading of the tables was interrupted." );
+		}
+	}
+
+	/**
+	 * Waits for the next loaded segments. The end of the loading is
+	 * signalled by {@link #NO_MORE_SEGMENTS}, which is also returned if
+	 * the loading has failed or was cancelled.
+	 *
+	 * @return the segments, or null if there are none yet
+	 */
+	private static List< TableRowImageSegment > pollSegments( TaskGroup tableLoading, BlockingQueue< List< TableRowImageSegment > > loadedSegments ) throws InterruptedException
 	{
-		final List< String > tables = segmentationDisplay.getTables();
+		final List< TableRowImageSegment > segments = loadedSegments.poll( 1, TimeUnit.SECONDS );
+		if ( segments != null ) return segments;
 
-		if ( tables == null ) return;
+		// in case of failure or cancellation not all tasks finish
+		if ( tableLoading.isDone() && loadedSegments.isEmpty() )
+			return NO_MORE_SEGMENTS;
 
-		// primary table
-		moBIE.loadPrimarySegmentsTables( segmentationDisplay );
+		return null;
+	}
 
-		// secondary tables
-		if ( tables.size() > 1 )
+	private void appendSegments( SegmentationDisplay segmentationDisplay, BlockingQueue< List< TableRowImageSegment > > loadedSegments )
+	{
+		final TaskGroup tableLoading = segmentationDisplay.tableLoading;
+		final long startTimeMillis = System.currentTimeMillis();
+		int numAppended = 0;
+		try
 		{
-			final List< String > additionalTables = tables.subList( 1, tables.size() );
-
-			moBIE.appendSegmentTableColumns( segmentationDisplay, additionalTables );
+			while ( true )
+			{
+				final List< TableRowImageSegment > segments = pollSegments( tableLoading, loadedSegments );
+				if ( segments == NO_MORE_SEGMENTS ) break;
+				if ( segments == null || segments.isEmpty() ) continue;
+
+				// append all segments that have arrived in the meantime at once,
+				// because each append copies the table rows
+				final ArrayList< TableRowImageSegment > batch = new ArrayList<>( segments );
+				final ArrayList< List< TableRowImageSegment > > moreSegments = new ArrayList<>();
+				loadedSegments.drainTo( moreSegments );
+				boolean isLastBatch = false;
+				for ( List< TableRowImageSegment > more : moreSegments )
+				{
+					if ( more == NO_MORE_SEGMENTS ) isLastBatch = true;
+					else batch.addAll( more );
+				}
+
+				checkLabelIds( batch );
+				SwingUtilities.invokeAndWait( () ->
+				{
+					segmentationDisplay.segmentAdapter.addSegments( batch );
+					segmentationDisplay.tableViewer.addTableRows( batch );
+					segmentationDisplay.selectionColoringModel.tableRowsAdded();
+				} );
+				numAppended += batch.size();
+				if ( isLastBatch ) break;
+			}
+			tableLoading.join();
+		}
+		catch ( CancellationException e )
+		{
+			return;
+		}
+		catch ( Exception e )
+		{
+			IJ.log( "[ERROR] Could not load all tables of " + segmentationDisplay.getName() + ": " + e.getMessage() );
+			return;
 		}
 
-		for ( TableRowImageSegment segment : segmentationDisplay.tableRows )
+		final boolean hasAppendedSegments = numAppended > 0;
+		if ( hasAppendedSegments )
+			IJ.log( segmentationDisplay.getName() + ": loaded " + numAppended + " more segments; " + ( System.currentTimeMillis() - startTimeMillis ) + " ms after the first table." );
+
+		SwingUtilities.invokeLater( () ->
+		{
+			// the value range of the coloring depends on all segments
+			if ( hasAppendedSegments && segmentationDisplay.getColorByColumn() != null && segmentationDisplay.getValueLimits() == null )
+			{
+				final ColumnColoringModelCreator< TableRowImageSegment > modelCreator = new ColumnColoringModelCreator( segmentationDisplay.tableRows );
+				segmentationDisplay.selectionColoringModel.setColoringModel( modelCreator.createColoringModel( segmentationDisplay.getColorByColumn(), segmentationDisplay.getLut(), null, null ) );
+			}
+
+			if ( hasAppendedSegments && segmentationDisplay.scatterPlotViewer != null )
+				segmentationDisplay.scatterPlotViewer.tableRowsAdded();
+
+			// the selected segments can be in any table
+			if ( segmentationDisplay.getSelectedTableRows() != null )
+			{
+				final List< TableRowImageSegment > segments = segmentationDisplay.segmentAdapter.getSegments( segmentationDisplay.getSelectedTableRows() );
+				segments.removeIf( Objects::isNull );
+				segmentationDisplay.selectionModel.setSelected( segments, true );
+			}
+		} );
+	}
+
+	private static void checkLabelIds( List< TableRowImageSegment > segments )
+	{
+		for ( TableRowImageSegment segment : segments )
 		{
 			if ( segment.labelId() == 0 )
 			{
@@ -504,6 +664,9 @@ public class ViewManager
 		if ( sourceDisplay instanceof AnnotationDisplay )
 		{
 			final AnnotationDisplay< ? > regionDisplay = ( AnnotationDisplay< ? > ) sourceDisplay;
+			if ( regionDisplay instanceof SegmentationDisplay && ( ( SegmentationDisplay ) regionDisplay ).tableLoading != null )
+				( ( SegmentationDisplay ) regionDisplay ).tableLoading.cancel();
+
 			regionDisplay.getSliceView().close( closeImgLoader );
 
 			if ( regionDisplay.tableRows != null )
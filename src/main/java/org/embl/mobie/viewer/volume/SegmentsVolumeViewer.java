@@ -31,6 +31,7 @@ package org.embl.mobie.viewer.volume;
 import bdv.viewer.Source;
 import bdv.viewer.SourceAndConverter;
 import customnode.CustomTriangleMesh;
+import org.embl.mobie.viewer.EventDispatcher;
 import org.embl.mobie.viewer.VisibilityListener;
 import org.embl.mobie.viewer.mesh.MeshCreator;
 import de.embl.cba.tables.color.ColorUtils;
@@ -432,7 +433,7 @@ public class SegmentsVolumeViewer< S extends ImageSegment > implements ColoringL
 	@Override
 	public void coloringChanged()
 	{
-		updateSegmentColors();
+		EventDispatcher.dispatch( this, EventDispatcher.Event.ColoringChanged, this::updateSegmentColors );
 	}
 
 	@Override
@@ -0,0 +1,179 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package benchmark;
+
+import bdv.viewer.render.AccumulateProjectorARGB;
+import bdv.viewer.render.VolatileProjector;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.ARGBType;
+import org.embl.mobie.viewer.bdv.render.AccumulateOccludingProjectorARGB;
+import org.embl.mobie.viewer.bdv.render.BlendingMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compositing of MoBIE's occluding projector
+ * with BigDataViewer's default accumulate projector.
+ *
+ * Half of the sources only cover the left half of the screen,
+ * which is typical for views with many channels or grid positions.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public class AccumulateProjectorBenchmark
+{
+	@Param( { "2", "8" } )
+	public int numSources;
+
+	@Param( { "1", "4" } )
+	public int numThreads;
+
+	private static final int WIDTH = 1920;
+	private static final int HEIGHT = 1080;
+
+	private ExecutorService executorService;
+	private VolatileProjector occludingProjector;
+	private VolatileProjector bdvProjector;
+
+	@Setup( Level.Trial )
+	public void setup()
+	{
+		executorService = Executors.newFixedThreadPool( numThreads );
+
+		final Random random = new Random( 42 );
+		final List< ArrayImg< ARGBType, IntArray > > sourceScreenImages = new ArrayList<>();
+		final BlendingMode[] blendingModes = new BlendingMode[ numSources ];
+		for ( int sourceIndex = 0; sourceIndex < numSources; sourceIndex++ )
+		{
+			final ArrayImg< ARGBType, IntArray > image = ArrayImgs.argbs( WIDTH, HEIGHT );
+			final int[] data = image.update( null ).getCurrentStorageArray();
+			final int maxX = sourceIndex % 2 == 0 ? WIDTH : WIDTH / 2;
+			for ( int y = 0; y < HEIGHT; y++ )
+				for ( int x = 0; x < maxX; x++ )
+					data[ y * WIDTH + x ] = ARGBType.rgba( random.nextInt( 256 ), random.nextInt( 256 ), random.nextInt( 256 ), 128 + random.nextInt( 128 ) );
+			sourceScreenImages.add( image );
+			blendingModes[ sourceIndex ] = sourceIndex % 2 == 0 ? BlendingMode.Sum : BlendingMode.SumOccluding;
+		}
+
+		final List< VolatileProjector > sourceProjectors = new ArrayList<>( Collections.nCopies( numSources, new ValidProjector() ) );
+
+		occludingProjector = new AccumulateOccludingProjectorARGB( sourceProjectors, blendingModes, sourceScreenImages, ArrayImgs.argbs( WIDTH, HEIGHT ), numThreads, executorService );
+		bdvProjector = AccumulateProjectorARGB.factory.createProjector( sourceProjectors, null, sourceScreenImages, ArrayImgs.argbs( WIDTH, HEIGHT ), numThreads, executorService );
+	}
+
+	@TearDown( Level.Trial )
+	public void tearDown()
+	{
+		executorService.shutdown();
+	}
+
+	@Benchmark
+	public boolean occluding()
+	{
+		return occludingProjector.map();
+	}
+
+	@Benchmark
+	public boolean bdvDefault()
+	{
+		return bdvProjector.map();
+	}
+
+	public static void main( String[] args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( AccumulateProjectorBenchmark.class.getSimpleName() )
+				.build();
+		new Runner( options ).run();
+	}
+
+	/**
+	 * Stands in for the projectors of the sources, whose screen images are already rendered.
+	 */
+	static class ValidProjector implements VolatileProjector
+	{
+		@Override
+		public boolean map()
+		{
+			return true;
+		}
+
+		@Override
+		public boolean map( boolean clearUntouchedTargetPixels )
+		{
+			return true;
+		}
+
+		@Override
+		public void cancel()
+		{
+		}
+
+		@Override
+		public long getLastFrameRenderNanoTime()
+		{
+			return 0;
+		}
+
+		@Override
+		public boolean isValid()
+		{
+			return true;
+		}
+	}
+}
@@ -60,11 +60,12 @@ public class DevelopSourceNameBitEncoding
 
 		SourceNameEncoder.addName( "hello" );
 		SourceNameEncoder.addName( "world" );
+		final SourceNameEncoder encoder = new SourceNameEncoder();
 		final UnsignedIntType labelIndex = new UnsignedIntType( 133 );
-		SourceNameEncoder.encodeName( labelIndex, "hello" );
+		encoder.encodeName( labelIndex, "hello" );
 		System.out.println(labelIndex.get());
-		System.out.println("name: " + SourceNameEncoder.getName( labelIndex ));
-		System.out.println("value: " + SourceNameEncoder.getValue( labelIndex ));
+		System.out.println("name: " + encoder.getName( labelIndex ));
+		System.out.println("value: " + encoder.getValue( labelIndex ));
 
 	}
 }
@@ -0,0 +1,70 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer;
+
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceNameEncoderTest {
+
+    @Test
+    void encodeAndDecode() {
+        final SourceNameEncoder encoder = new SourceNameEncoder();
+        final long encoded = encoder.getEncodedName( "encodeAndDecode" ) + 42;
+
+        assertEquals( "encodeAndDecode", encoder.getName( encoded ) );
+        assertEquals( 42, encoder.getValue( encoded ) );
+    }
+
+    @Test
+    void encodeWideLabels() {
+        final SourceNameEncoder encoder = new SourceNameEncoder( 40 );
+        final long value = ( 1L << 39 ) + 7;
+        final long encoded = encoder.getEncodedName( "encodeWideLabels" ) + value;
+
+        assertEquals( "encodeWideLabels", encoder.getName( encoded ) );
+        assertEquals( value, encoder.getValue( encoded ) );
+        assertEquals( "encodeWideLabels", new SourceNameEncoder( 40 ).getName( encoded ) );
+    }
+
+    @Test
+    void rejectsLabelsThatDoNotFitTheType() {
+        final SourceNameEncoder encoder = new SourceNameEncoder();
+
+        assertThrows( UnsupportedOperationException.class, () -> encoder.getEncodedName( "rejectsLabelsThatDoNotFitTheType", new UnsignedByteType() ) );
+    }
+
+    @Test
+    void addNameIsIdempotent() {
+        final int index = SourceNameEncoder.addName( "addNameIsIdempotent" );
+        assertEquals( index, SourceNameEncoder.addName( "addNameIsIdempotent" ) );
+    }
+}
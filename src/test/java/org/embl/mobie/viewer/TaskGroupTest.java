@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskGroupTest {
+
+    @Test
+    void failureCancelsSiblings() {
+        final TaskGroup taskGroup = MultiThreading.createTaskGroup( "test" );
+        final AtomicInteger numCompleted = new AtomicInteger();
+        for ( int i = 0; i < 20; i++ ) {
+            final int index = i;
+            taskGroup.submit( () -> {
+                if ( index == 0 ) throw new RuntimeException( "failed" );
+                sleep( 2000 );
+                numCompleted.incrementAndGet();
+            } );
+        }
+
+        final long start = System.currentTimeMillis();
+        assertThrows( RuntimeException.class, taskGroup::join );
+        assertTrue( System.currentTimeMillis() - start < 2000 );
+        assertEquals( 0, numCompleted.get() );
+        assertNotNull( taskGroup.getFailure() );
+    }
+
+    @Test
+    void timeout() {
+        final TaskGroup taskGroup = MultiThreading.createTaskGroup( "test" );
+        taskGroup.submit( () -> sleep( 5000 ), 100 );
+        assertThrows( RuntimeException.class, taskGroup::join );
+    }
+
+    @Test
+    void continueOnFailure() {
+        final TaskGroup taskGroup = MultiThreading.createTaskGroup( "test" ).continueOnFailure();
+        final AtomicInteger numCompleted = new AtomicInteger();
+        for ( int i = 0; i < 10; i++ ) {
+            final int index = i;
+            taskGroup.submit( () -> {
+                if ( index % 5 == 0 ) throw new RuntimeException( "failed" );
+                numCompleted.incrementAndGet();
+            } );
+        }
+
+        taskGroup.join();
+        assertEquals( 8, numCompleted.get() );
+        assertEquals( 2, taskGroup.getFailures().size() );
+    }
+
+    @Test
+    void cancel() {
+        final Object owner = new Object();
+        final TaskGroup taskGroup = MultiThreading.createTaskGroup( "test", owner );
+        final TaskGroup otherTaskGroup = MultiThreading.createTaskGroup( "other", new Object() );
+        taskGroup.submit( () -> sleep( 5000 ) );
+        otherTaskGroup.submit( () -> sleep( 200 ) );
+        MultiThreading.cancelTaskGroups( owner );
+        assertThrows( CancellationException.class, taskGroup::join );
+        otherTaskGroup.join();
+        assertTrue( otherTaskGroup.isDone() );
+    }
+
+    @Test
+    void progress() {
+        final TaskGroup taskGroup = MultiThreading.createTaskGroup( "test" );
+        final AtomicInteger numProgressEvents = new AtomicInteger();
+        taskGroup.addProgressListener( ( group, numFinished, numTasks ) -> numProgressEvents.incrementAndGet() );
+        for ( int i = 0; i < 10; i++ )
+            taskGroup.submit( () -> {} );
+        taskGroup.join();
+        assertEquals( 10, numProgressEvents.get() );
+    }
+
+    private static void sleep( long millis ) {
+        try {
+            Thread.sleep( millis );
+        } catch ( InterruptedException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.annotate;
+
+import net.imglib2.RealPoint;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionIndexTest {
+
+    private static List< RealMaskRealInterval > createWells( int numColumns, int numRows ) {
+        final List< RealMaskRealInterval > wells = new ArrayList<>();
+        for ( int y = 0; y < numRows; y++ )
+            for ( int x = 0; x < numColumns; x++ )
+                wells.add( GeomMasks.closedBox( new double[]{ x * 10, y * 10, 0 }, new double[]{ x * 10 + 8, y * 10 + 8, 0 } ) );
+        return wells;
+    }
+
+    @Test
+    void findsRegions() {
+        final RegionIndex index = new RegionIndex( createWells( 50, 30 ) );
+
+        assertEquals( 0, index.getRegionIndex( new RealPoint( 1, 1, 0 ) ) );
+        assertEquals( 51, index.getRegionIndex( new RealPoint( 18, 18, 0 ) ) );
+        assertEquals( 1499, index.getRegionIndex( new RealPoint( 498, 298, 0 ) ) );
+        assertEquals( -1, index.getRegionIndex( new RealPoint( 9, 1, 0 ) ) );
+        assertEquals( -1, index.getRegionIndex( new RealPoint( 1, 1, 1 ) ) );
+        assertEquals( -1, index.getRegionIndex( new RealPoint( -1, 1, 0 ) ) );
+
+        // about one cell per region
+        assertTrue( index.getNumCells() <= 3000 );
+    }
+
+    @Test
+    void findsFirstOfOverlappingRegions() {
+        final List< RealMaskRealInterval > regions = createWells( 2, 1 );
+        regions.add( 0, GeomMasks.closedBox( new double[]{ 5, 0, 0 }, new double[]{ 15, 8, 0 } ) );
+        final RegionIndex index = new RegionIndex( regions );
+
+        assertEquals( 1, index.getRegionIndex( new RealPoint( 1, 1, 0 ) ) );
+        assertEquals( 0, index.getRegionIndex( new RealPoint( 6, 1, 0 ) ) );
+        assertEquals( 0, index.getRegionIndex( new RealPoint( 12, 1, 0 ) ) );
+        assertEquals( 2, index.getRegionIndex( new RealPoint( 17, 1, 0 ) ) );
+    }
+
+    @Test
+    void unionMaskIsExact() {
+        final RealMaskRealInterval unionMask = new RegionIndex( createWells( 2, 2 ) ).getUnionMask();
+
+        assertTrue( unionMask.test( new RealPoint( 4, 14, 0 ) ) );
+        assertFalse( unionMask.test( new RealPoint( 9, 9, 0 ) ) );
+        assertEquals( 18, unionMask.realMax( 0 ) );
+    }
+}
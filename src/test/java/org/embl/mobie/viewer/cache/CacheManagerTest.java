@@ -0,0 +1,103 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheManagerTest {
+
+    @Test
+    void evictsLeastRecentlyUsed() throws ExecutionException {
+        final CacheManager cacheManager = new CacheManager( 100 );
+        final ManagedLoaderCache< String, String > cache = cacheManager.createCache( "image", value -> 40 );
+
+        cache.get( "a", key -> key );
+        cache.get( "b", key -> key );
+        cache.get( "a", key -> key );
+        cache.get( "c", key -> key );
+
+        assertNotNull( cache.getIfPresent( "a" ) );
+        assertNull( cache.getIfPresent( "b" ) );
+        assertNotNull( cache.getIfPresent( "c" ) );
+        assertEquals( 1, cacheManager.getEvictions() );
+        assertEquals( 80, cacheManager.getUsedBytes() );
+        assertEquals( 80, cacheManager.getUsedBytes( "image" ) );
+    }
+
+    @Test
+    void evictsInvisibleSourcesFirst() throws ExecutionException {
+        final CacheManager cacheManager = new CacheManager( 100 );
+        final ManagedLoaderCache< String, String > visible = cacheManager.createCache( "visible", value -> 40 );
+        final ManagedLoaderCache< String, String > hidden = cacheManager.createCache( "hidden", value -> 40 );
+        cacheManager.setVisible( "viewer", Collections.singletonList( "visible" ) );
+
+        visible.get( "a", key -> key );
+        hidden.get( "b", key -> key );
+        visible.get( "c", key -> key );
+
+        assertNotNull( visible.getIfPresent( "a" ) );
+        assertNull( hidden.getIfPresent( "b" ) );
+        assertEquals( 80, ( long ) cacheManager.getUsedBytesPerSource().get( "visible" ) );
+        assertEquals( 0, ( long ) cacheManager.getUsedBytesPerSource().get( "hidden" ) );
+    }
+
+    @Test
+    void usesLargestRequestedBudget() {
+        final CacheManager cacheManager = new CacheManager( 100 );
+        final Object project = new Object();
+        final Object otherProject = new Object();
+
+        cacheManager.setMaxBytes( project, 200 );
+        cacheManager.setMaxBytes( otherProject, 50 );
+        assertEquals( 200, cacheManager.getMaxBytes() );
+
+        cacheManager.removeMaxBytes( project );
+        assertEquals( 50, cacheManager.getMaxBytes() );
+
+        cacheManager.removeMaxBytes( otherProject );
+        assertEquals( 100, cacheManager.getMaxBytes() );
+    }
+
+    @Test
+    void removeReleasesMemory() throws ExecutionException {
+        final CacheManager cacheManager = new CacheManager( 100 );
+        final ManagedLoaderCache< String, String > cache = cacheManager.createCache( "image", value -> 40 );
+        cache.get( "a", key -> key );
+
+        cacheManager.remove( cache );
+
+        assertEquals( 0, cacheManager.getUsedBytes() );
+        assertNull( cache.getIfPresent( "a" ) );
+    }
+}
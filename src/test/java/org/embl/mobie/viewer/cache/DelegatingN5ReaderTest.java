@@ -0,0 +1,82 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import mpicbg.spim.data.sequence.ImgLoader;
+import mpicbg.spim.data.sequence.SetupImgLoader;
+import org.janelia.saalfeldlab.n5.N5Reader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelegatingN5ReaderTest {
+
+    private static class Reader extends DelegatingN5Reader {
+        Reader( N5Reader reader ) {
+            super( reader );
+        }
+    }
+
+    private static class Loader implements ImgLoader {
+        private N5Reader reader = new DelegatingN5Reader( null ) {};
+
+        @Override
+        public SetupImgLoader< ? > getSetupImgLoader( int setupId ) {
+            return null;
+        }
+    }
+
+    private static class ConcreteReaderLoader implements ImgLoader {
+        private Reader reader = new Reader( null );
+
+        @Override
+        public SetupImgLoader< ? > getSetupImgLoader( int setupId ) {
+            return null;
+        }
+    }
+
+    @Test
+    void wrapsReader() {
+        final Loader loader = new Loader();
+        final N5Reader reader = loader.reader;
+
+        assertTrue( DelegatingN5Reader.install( loader, Reader::new ) );
+        assertTrue( loader.reader instanceof Reader );
+        assertSame( reader, ( ( Reader ) loader.reader ).getReader() );
+    }
+
+    @Test
+    void reportsReaderThatCannotBeReplaced() {
+        final ConcreteReaderLoader loader = new ConcreteReaderLoader();
+        final Reader reader = loader.reader;
+
+        assertFalse( DelegatingN5Reader.install( loader, r -> new DelegatingN5Reader( r ) {} ) );
+        assertSame( reader, loader.reader );
+    }
+}
@@ -0,0 +1,84 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskChunkCacheTest {
+
+    private File cacheDir;
+
+    @BeforeEach
+    void setUp( @TempDir Path tempDir ) {
+        cacheDir = tempDir.toFile();
+    }
+
+    @Test
+    void putAndGet() {
+        final DiskChunkCache cache = new DiskChunkCache( cacheDir, 1000 );
+        final String key = DiskChunkCache.createKey( "s3://bucket/image.ome.zarr", "s0", new long[]{ 1, 2, 3 } );
+
+        assertNull( cache.get( key ) );
+        cache.put( key, new byte[]{ 1, 2, 3 } );
+        assertArrayEquals( new byte[]{ 1, 2, 3 }, cache.get( key ) );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        final DiskChunkCache cache = new DiskChunkCache( cacheDir, 250 );
+        cache.put( "a", new byte[ 100 ] );
+        cache.put( "b", new byte[ 100 ] );
+        cache.get( "a" );
+        cache.put( "c", new byte[ 100 ] );
+
+        assertNotNull( cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertNotNull( cache.get( "c" ) );
+        assertEquals( 1, cache.getEvictions() );
+        assertEquals( 200, cache.getUsedBytes() );
+    }
+
+    @Test
+    void survivesRestart() {
+        new DiskChunkCache( cacheDir, 1000 ).put( "a", new byte[]{ 42 } );
+
+        final DiskChunkCache cache = new DiskChunkCache( cacheDir, 1000 );
+        assertEquals( 1, cache.getNumChunks() );
+        assertArrayEquals( new byte[]{ 42 }, cache.get( "a" ) );
+    }
+}
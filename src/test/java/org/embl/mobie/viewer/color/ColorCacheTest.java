@@ -0,0 +1,73 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.color;
+
+import net.imglib2.type.numeric.ARGBType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorCacheTest {
+
+    @Test
+    void putAndGet() {
+        final ColorCache cache = new ColorCache( 16 );
+        final ARGBType color = new ARGBType();
+
+        assertFalse( cache.get( 42, 0, 0, color ) );
+        cache.put( 42, 0, 0, 0xff00ff00 );
+        assertTrue( cache.get( 42, 0, 0, color ) );
+        assertEquals( 0xff00ff00, color.get() );
+        assertFalse( cache.get( 42, 1, 0, color ) );
+    }
+
+    @Test
+    void ignoresOtherVersions() {
+        final ColorCache cache = new ColorCache( 16 );
+        cache.put( 42, 0, 0, 0xff00ff00 );
+
+        assertFalse( cache.get( 42, 0, 1, new ARGBType() ) );
+    }
+
+    @Test
+    void collidingKeysReplaceEachOther() {
+        final ColorCache cache = new ColorCache( 1 );
+        final ARGBType color = new ARGBType();
+        for ( int key = 0; key < 100; key++ )
+            cache.put( key, 0, 0, key );
+
+        int numCached = 0;
+        for ( int key = 0; key < 100; key++ )
+            if ( cache.get( key, 0, 0, color ) ) {
+                assertEquals( key, color.get() );
+                numCached++;
+            }
+        assertTrue( numCached <= 2 );
+    }
+}
@@ -36,7 +36,9 @@ import org.embl.mobie.io.n5.writers.WriteImagePlusToN5;
 import org.embl.mobie.io.ome.zarr.writers.imageplus.WriteImagePlusToN5OmeZarr;
 import org.embl.mobie.io.util.IOHelper;
 import org.embl.mobie.viewer.Dataset;
+import org.embl.mobie.viewer.DatasetManifest;
 import org.embl.mobie.viewer.serialize.DatasetJsonParser;
+import org.embl.mobie.viewer.serialize.DatasetManifestJsonParser;
 import org.embl.mobie.viewer.source.SegmentationSource;
 import org.embl.mobie.viewer.table.TableDataFormat;
 
@@ -98,6 +100,13 @@ class ImagesCreatorTest {
         assertTrue( dataset.sources.containsKey(imageName) );
         assertTrue( dataset.views.containsKey(imageName) );
         assertTrue( dataset.sources.get(imageName).get().imageData.containsKey(imageDataFormat) );
+
+        String manifestJsonPath = IOHelper.combinePath( projectCreator.getProjectLocation().getAbsolutePath(),
+                datasetName, DatasetManifest.MANIFEST_JSON );
+        DatasetManifest manifest = new DatasetManifestJsonParser().parseManifest( manifestJsonPath );
+        assertTrue( manifest.sources.containsKey(imageName) );
+        assertNotNull( manifest.sources.get(imageName).getType() );
+        assertNotNull( manifest.sources.get(imageName).dimensions );
     }
 
     void assertionsForN5( boolean onlyXmls ) throws SpimDataException {
@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.segment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentIndexTest {
+
+    @Test
+    void putAndGet() {
+        final SegmentIndex< String > index = new SegmentIndex<>();
+        for ( int label = 1; label <= 1000; label++ ) {
+            index.put( label, 0, "image-a", "a" + label );
+            index.put( label, 1, "image-a", "a" + label + "t1" );
+            index.put( label, 0, "image-b", "b" + label );
+        }
+
+        assertEquals( 3000, index.size() );
+        assertEquals( "a42", index.get( 42, 0, "image-a" ) );
+        assertEquals( "a42t1", index.get( 42, 1, "image-a" ) );
+        assertEquals( "b42", index.get( 42, 0, "image-b" ) );
+        assertNull( index.get( 1001, 0, "image-a" ) );
+        assertNull( index.get( 42, 0, "image-c" ) );
+    }
+
+    @Test
+    void putIfAbsentKeepsExistingValue() {
+        final SegmentIndex< String > index = new SegmentIndex<>();
+
+        assertEquals( "first", index.putIfAbsent( 1, 0, null, "first" ) );
+        assertEquals( "first", index.putIfAbsent( 1, 0, null, "second" ) );
+        assertEquals( 1, index.size() );
+    }
+
+    @Test
+    void concurrentPutIfAbsent() throws Exception {
+        final SegmentIndex< Long > index = new SegmentIndex<>();
+        final ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+        final List< Future< ? > > futures = new ArrayList<>();
+        for ( int thread = 0; thread < 4; thread++ )
+            futures.add( executorService.submit( () -> {
+                for ( long label = 0; label < 10000; label++ )
+                    assertEquals( label, index.putIfAbsent( label, 0, "image", label ) );
+            } ) );
+        for ( Future< ? > future : futures )
+            future.get();
+        executorService.shutdown();
+
+        assertEquals( 10000, index.size() );
+    }
+}
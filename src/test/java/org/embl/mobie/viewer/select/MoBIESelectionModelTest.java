@@ -0,0 +1,84 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.select;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoBIESelectionModelTest {
+
+    @Test
+    void selectAndDeselect() {
+        final MoBIESelectionModel< String > selectionModel = new MoBIESelectionModel<>();
+        assertTrue( selectionModel.isEmpty() );
+
+        selectionModel.setSelected( "a", true );
+        selectionModel.setSelected( "b", true );
+        selectionModel.toggle( "a" );
+
+        assertFalse( selectionModel.isSelected( "a" ) );
+        assertTrue( selectionModel.isSelected( "b" ) );
+        assertEquals( 1, selectionModel.getSelected().size() );
+    }
+
+    @Test
+    void selectManyObjects() {
+        final MoBIESelectionModel< Integer > selectionModel = new MoBIESelectionModel<>();
+        final List< Integer > objects = new ArrayList<>();
+        for ( int i = 0; i < 200_000; i++ )
+            objects.add( i );
+
+        selectionModel.setSelected( objects, true );
+        selectionModel.setSelected( objects.subList( 0, 100_000 ), false );
+
+        final Set< Integer > selected = selectionModel.getSelected();
+        assertEquals( 100_000, selected.size() );
+        assertEquals( new HashSet<>( objects.subList( 100_000, 200_000 ) ), new HashSet<>( selected ) );
+    }
+
+    @Test
+    void selectedIsASnapshot() {
+        final MoBIESelectionModel< String > selectionModel = new MoBIESelectionModel<>();
+        selectionModel.setSelected( "a", true );
+        final Set< String > selected = selectionModel.getSelected();
+        final int version = selectionModel.getVersion();
+
+        selectionModel.clearSelection();
+
+        assertTrue( selected.contains( "a" ) );
+        assertTrue( selectionModel.getSelected().isEmpty() );
+        assertTrue( selectionModel.getVersion() > version );
+    }
+}
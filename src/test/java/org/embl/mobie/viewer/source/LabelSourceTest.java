@@ -0,0 +1,67 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.source;
+
+import bdv.util.RandomAccessibleIntervalSource;
+import bdv.viewer.Interpolation;
+import net.imglib2.RandomAccess;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.type.numeric.integer.UnsignedLongType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabelSourceTest {
+
+    @Test
+    void boundariesKeepWideLabels() {
+        // both labels are rounded to the same float
+        final long label = ( 1L << 40 ) + 1;
+        final long neighbour = ( 1L << 40 ) + 2;
+
+        final ArrayImg< UnsignedLongType, LongArray > img = ArrayImgs.unsignedLongs( 4, 3, 1 );
+        img.forEach( pixel -> pixel.set( label ) );
+        final RandomAccess< UnsignedLongType > imgAccess = img.randomAccess();
+        for ( long y = 0; y < 3; y++ )
+            for ( long x = 2; x < 4; x++ )
+                imgAccess.setPositionAndGet( x, y, 0 ).set( neighbour );
+
+        final LabelSource< UnsignedLongType > labelSource = new LabelSource<>( new RandomAccessibleIntervalSource<>( img, new UnsignedLongType(), "labels" ) );
+        labelSource.showAsBoundary( true, 1 );
+
+        final RealRandomAccess< UnsignedLongType > access = labelSource.getInterpolatedSource( 0, 0, Interpolation.NEARESTNEIGHBOR ).realRandomAccess();
+        access.setPosition( new double[]{ 1, 1, 0 } );
+        assertEquals( label, access.get().getIntegerLong() );
+        access.setPosition( new double[]{ 2, 1, 0 } );
+        assertEquals( neighbour, access.get().getIntegerLong() );
+    }
+}
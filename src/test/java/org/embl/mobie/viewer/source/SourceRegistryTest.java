@@ -0,0 +1,82 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.source;
+
+import bdv.util.RandomAccessibleIntervalSource;
+import bdv.viewer.SourceAndConverter;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceRegistryTest {
+
+    private static SourceAndConverter< ? > createSource( String name ) {
+        final RandomAccessibleIntervalSource< UnsignedByteType > source = new RandomAccessibleIntervalSource<>( ArrayImgs.unsignedBytes( 1, 1, 1 ), new UnsignedByteType(), name );
+        return new SourceAndConverter<>( source, null );
+    }
+
+    @Test
+    void transformRegistersTransformedSources() {
+        final SourceRegistry registry = new SourceRegistry();
+        registry.put( "a", createSource( "a" ) );
+        registry.put( "b", createSource( "b" ) );
+
+        final int numSources = registry.transform( Arrays.asList( "a", "b", "missing" ), ( name, source ) -> createSource( name + "-transformed" ) ).size();
+
+        assertEquals( 2, numSources );
+        assertEquals( 4, registry.size() );
+        assertEquals( "a-transformed", registry.get( "a-transformed" ).getSpimSource().getName() );
+        assertTrue( registry.contains( "a" ) );
+        assertFalse( registry.contains( "missing-transformed" ) );
+    }
+
+    @Test
+    void children() {
+        final SourceRegistry registry = new SourceRegistry();
+        registry.addChildren( "grid", Arrays.asList( "a", "b" ) );
+        registry.addChildren( "grid", Collections.singletonList( "c" ) );
+
+        assertEquals( Arrays.asList( "a", "b", "c" ), registry.getChildren( "grid" ) );
+        assertTrue( registry.getChildren( "a" ).isEmpty() );
+    }
+
+    @Test
+    void mapViewIsReadOnly() {
+        final SourceRegistry registry = new SourceRegistry();
+        registry.put( "a", createSource( "a" ) );
+
+        assertEquals( 1, registry.asMap().size() );
+        assertThrows( UnsupportedOperationException.class, () -> registry.asMap().put( "b", createSource( "b" ) ) );
+    }
+}
@@ -0,0 +1,102 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.table;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableMergerTest {
+
+    @Test
+    void merge() {
+        final List< String[] > rows = Arrays.asList(
+                new String[]{ "a", "1" },
+                new String[]{ "a", "-2" },
+                new String[]{ "b", "1.0" },
+                new String[]{ "b", "3" } );
+
+        final Map< String, List< String > > columns = new LinkedHashMap<>();
+        columns.put( "image_id", Arrays.asList( "b", "a", "a", "b" ) );
+        columns.put( "label_id", Arrays.asList( "1", "-2.0", "1", "-3" ) );
+        columns.put( "value", Arrays.asList( "x", "y", "z", "w" ) );
+
+        final Map< String, List< String > > merged = createColumnsForMerging( rows, columns );
+        assertEquals( Arrays.asList( "value" ), Arrays.asList( merged.keySet().toArray() ) );
+        assertEquals( Arrays.asList( "z", "y", "x", TableMerger.MISSING_VALUE ), merged.get( "value" ) );
+    }
+
+    @Test
+    void numericKeys() {
+        final List< Object[] > rows = Arrays.asList(
+                new Object[]{ -1.0 },
+                new Object[]{ 2.0 },
+                new Object[]{ 1.5 } );
+
+        final Map< String, List< String > > columns = new LinkedHashMap<>();
+        columns.put( "label_id", Arrays.asList( "2", "-1", "1.5" ) );
+        columns.put( "value", Arrays.asList( "x", "y", "z" ) );
+
+        final Function< Object[], Object > key = row -> row[ 0 ];
+        final Map< String, List< String > > merged = TableMerger.createColumnsForMerging( rows, Arrays.asList( key ), columns, "label_id" );
+        assertEquals( Arrays.asList( "y", "x", "z" ), merged.get( "value" ) );
+    }
+
+    @Test
+    void lastRowOfDuplicateKeyWins() {
+        final List< String[] > rows = Arrays.asList( new String[][]{ { "a", "1" } } );
+
+        final Map< String, List< String > > columns = new LinkedHashMap<>();
+        columns.put( "image_id", Arrays.asList( "a", "a" ) );
+        columns.put( "label_id", Arrays.asList( "1", "1.0" ) );
+        columns.put( "value", Arrays.asList( "x", "y" ) );
+
+        assertEquals( Arrays.asList( "y" ), createColumnsForMerging( rows, columns ).get( "value" ) );
+    }
+
+    @Test
+    void parseIntegral() {
+        assertEquals( 12L, TableMerger.KeyEncoder.parseIntegral( "12" ) );
+        assertEquals( -12L, TableMerger.KeyEncoder.parseIntegral( "-12.00" ) );
+        assertEquals( Long.MIN_VALUE, TableMerger.KeyEncoder.parseIntegral( "-" ) );
+        assertEquals( Long.MIN_VALUE, TableMerger.KeyEncoder.parseIntegral( "-1.5" ) );
+    }
+
+    private static Map< String, List< String > > createColumnsForMerging( List< String[] > rows, Map< String, List< String > > columns ) {
+        final Function< String[], Object > imageId = row -> row[ 0 ];
+        final Function< String[], Object > labelId = row -> row[ 1 ];
+        return TableMerger.createColumnsForMerging( rows, Arrays.asList( imageId, labelId ), columns, "image_id", "label_id" );
+    }
+}
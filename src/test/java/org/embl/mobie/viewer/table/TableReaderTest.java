@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.table;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableReaderTest {
+
+    @Test
+    void readTsv( @TempDir Path tempDir ) throws IOException {
+        final Path path = tempDir.resolve( "default.tsv" );
+        Files.write( path, "label_id\tx\tname\n1\t0.5\ta\n2\t1e-05\tb\n\n3\t\t\"c\"\n".getBytes( StandardCharsets.UTF_8 ) );
+
+        final ColumnarTable table = TableReader.read( path.toString() );
+        assertEquals( Arrays.asList( "label_id", "x", "name" ), Arrays.asList( table.keySet().toArray() ) );
+        assertEquals( 3, table.numRows() );
+        assertEquals( TypedColumn.Type.Long, table.getColumn( "label_id" ).getType() );
+        assertEquals( TypedColumn.Type.Double, table.getColumn( "x" ).getType() );
+        assertEquals( Arrays.asList( "0.5", "1e-05", "" ), table.get( "x" ) );
+        assertEquals( Arrays.asList( "a", "b", "c" ), table.get( "name" ) );
+    }
+
+    @Test
+    void readProjectedCsvColumns( @TempDir Path tempDir ) throws IOException {
+        final Path path = tempDir.resolve( "default.csv" );
+        Files.write( path, "label_id,x,name\r\n1,0.5,a\r\n2,1.5,b".getBytes( StandardCharsets.UTF_8 ) );
+
+        final ColumnarTable table = TableReader.read( path.toString(), Collections.singletonList( "name" ) );
+        assertEquals( Collections.singleton( "name" ), table.keySet() );
+        assertEquals( Arrays.asList( "a", "b" ), table.get( "name" ) );
+    }
+
+    @Test
+    void readQuotedCsvFields( @TempDir Path tempDir ) throws IOException {
+        final Path path = tempDir.resolve( "default.csv" );
+        Files.write( path, "label_id,\"name, long\"\n1,\"a, b\"\n2,\"say \"\"hi\"\"\"\n3,c\n".getBytes( StandardCharsets.UTF_8 ) );
+
+        final ColumnarTable table = TableReader.read( path.toString() );
+        assertEquals( Arrays.asList( "label_id", "name, long" ), Arrays.asList( table.keySet().toArray() ) );
+        assertEquals( Arrays.asList( "a, b", "say \"hi\"", "c" ), table.get( "name, long" ) );
+        assertEquals( Arrays.asList( "1", "2", "3" ), table.get( "label_id" ) );
+    }
+}
@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2022 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.viewer.table;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypedColumnTest {
+
+    @Test
+    void determineTypes() {
+        assertEquals( TypedColumn.Type.Long, TypedColumn.of( Arrays.asList( "1", "-2", "3" ) ).getType() );
+        assertEquals( TypedColumn.Type.Double, TypedColumn.of( Arrays.asList( "1.0", "2.5", "NaN" ) ).getType() );
+        assertEquals( TypedColumn.Type.Double, TypedColumn.of( Arrays.asList( "1", "2.5" ) ).getType() );
+        assertEquals( TypedColumn.Type.String, TypedColumn.of( Arrays.asList( "1", "a" ) ).getType() );
+        assertEquals( TypedColumn.Type.String, TypedColumn.of( Arrays.asList( "a", "b", "a" ) ).getType() );
+    }
+
+    @Test
+    void valuesAreRestoredExactly() {
+        final List< String > values = Arrays.asList( "1", "007", "1e3", "0.0001", "-0", "nan", "", "0.5" );
+        final TypedColumn column = TypedColumn.of( values );
+        assertEquals( TypedColumn.Type.Double, column.getType() );
+        assertEquals( values, column );
+        assertEquals( 1000.0, column.getDouble( 2 ) );
+        assertTrue( Double.isNaN( column.getDouble( 6 ) ) );
+    }
+
+    @Test
+    void integersInDoubleColumn() {
+        final TypedColumn column = TypedColumn.of( Arrays.asList( "1", "9007199254740993", "", "2" ) );
+        assertEquals( TypedColumn.Type.Double, column.getType() );
+        assertEquals( Arrays.asList( "1", "9007199254740993", "", "2" ), column );
+        assertEquals( 9007199254740993L, column.getLong( 1 ) );
+        assertEquals( 2.0, column.getDouble( 3 ) );
+    }
+
+    @Test
+    void generalize() {
+        final TypedColumn column = TypedColumn.of( Arrays.asList( "1", "2" ) );
+        column.generalize( TypedColumn.Type.Double );
+        assertEquals( TypedColumn.Type.Double, column.getType() );
+        assertEquals( Arrays.asList( "1", "2" ), column );
+        column.generalize( TypedColumn.Type.Long );
+        assertEquals( TypedColumn.Type.Double, column.getType() );
+        column.generalize( TypedColumn.Type.String );
+        assertEquals( Arrays.asList( "1", "2" ), column );
+    }
+
+    @Test
+    void setPromotesToString() {
+        final TypedColumn column = TypedColumn.of( new ArrayList<>( Arrays.asList( "1", "2", "3" ) ) );
+        assertEquals( "2", column.set( 1, "two" ) );
+        assertEquals( TypedColumn.Type.String, column.getType() );
+        assertEquals( Arrays.asList( "1", "two", "3" ), column );
+        assertEquals( 3.0, column.getDouble( 2 ) );
+    }
+
+    @Test
+    void convertToDouble() {
+        final TypedColumn column = TypedColumn.of( Arrays.asList( "1", "2" ) );
+        column.convertToDouble();
+        assertEquals( Arrays.asList( "1.0", "2.0" ), column );
+        assertEquals( 2L, column.getLong( 1 ) );
+    }
+
+    @Test
+    void tableConvertsAndConcatenatesColumns() {
+        final ColumnarTable a = new ColumnarTable();
+        a.put( "label_id", Arrays.asList( "1", "2" ) );
+        a.put( "name", Arrays.asList( "x", "y" ) );
+        final ColumnarTable b = new ColumnarTable();
+        b.put( "label_id", Arrays.asList( "3" ) );
+        b.put( "name", Arrays.asList( "x" ) );
+
+        final ColumnarTable table = ColumnarTable.concatenate( Arrays.< Map< String, List< String > > >asList( a, b ) );
+        assertEquals( 3, table.numRows() );
+        assertEquals( TypedColumn.Type.Long, table.getColumn( "label_id" ).getType() );
+        assertEquals( Arrays.asList( "x", "y", "x" ), table.get( "name" ) );
+        assertEquals( 3.0, table.getDouble( "label_id", 2 ) );
+    }
+}